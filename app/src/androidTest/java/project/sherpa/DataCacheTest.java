@@ -0,0 +1,106 @@
+package project.sherpa;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import project.sherpa.models.datamodels.Area;
+import project.sherpa.models.datamodels.Section;
+import project.sherpa.utilities.DataCache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the DataCache's CacheStats count hits, misses, and evictions for each type of model.
+ */
+
+@RunWith(AndroidJUnit4.class)
+public class DataCacheTest {
+    // ** Constants ** //
+    private static final String TAG = DataCacheTest.class.getSimpleName();
+
+    // Name of each type's CacheStats in DataCache.getStats()
+    private static final String OTHER_STATS_NAME    = "Other";
+    private static final String SECTION_STATS_NAME  = "Section";
+
+    @Before
+    public void resetStats() {
+        DataCache.getInstance().evictAll();
+        DataCache.getInstance().resetStats();
+    }
+
+    @Test
+    public void testModelStats() {
+
+        // Store an Area and retrieve it twice
+        Area area = TestUtilities.getArea1();
+        DataCache.getInstance().store(area);
+        DataCache.getInstance().get(area.firebaseId);
+        DataCache.getInstance().get(area.firebaseId);
+
+        // Request a model that was never cached
+        DataCache.getInstance().get("missingFirebaseId");
+
+        DataCache.CacheStats stats = getStats(OTHER_STATS_NAME);
+
+        Log.d(TAG, DataCache.getInstance().dumpStats());
+
+        String errorHits = "Retrieving a cached model was not counted as a hit";
+        assertEquals(errorHits, 2, stats.getHits());
+
+        String errorUnresolved = "Retrieving a model that isn't cached was not counted as a miss";
+        assertEquals(errorUnresolved, 1, DataCache.getInstance().getUnresolvedMisses());
+
+        String errorBytes = "Estimated bytes were not recorded for the cached model";
+        assertTrue(errorBytes, stats.getBytes() > 0);
+
+        // Evict everything
+        DataCache.getInstance().evictAll();
+
+        String errorEvictions = "Evicting the cached model was not counted";
+        assertEquals(errorEvictions, 1, stats.getEvictions());
+        assertEquals(errorEvictions, 0, stats.getBytes());
+    }
+
+    @Test
+    public void testSectionStats() {
+
+        // Store Sections and retrieve them
+        Section[] sections = {TestUtilities.getSection()};
+        DataCache.getInstance().store(sections);
+        DataCache.getInstance().getSections(sections[0].guideId);
+
+        // Request Sections that were never cached
+        DataCache.getInstance().getSections("missingGuideId");
+
+        DataCache.CacheStats stats = getStats(SECTION_STATS_NAME);
+
+        Log.d(TAG, DataCache.getInstance().dumpStats());
+
+        String errorHits = "Retrieving cached Sections was not counted as a hit";
+        assertEquals(errorHits, 1, stats.getHits());
+
+        String errorMisses = "Retrieving Sections that aren't cached was not counted as a miss";
+        assertEquals(errorMisses, 1, stats.getMisses());
+    }
+
+    /**
+     * Finds the CacheStats for a type of model by its name so the test doesn't depend on the order
+     * of DataCache.getStats()
+     *
+     * @param name    Name of the CacheStats
+     * @return CacheStats with the name
+     */
+    private static DataCache.CacheStats getStats(String name) {
+
+        for (DataCache.CacheStats stats : DataCache.getInstance().getStats()) {
+            if (stats.getName().equals(name)) return stats;
+        }
+
+        throw new AssertionError("No CacheStats named " + name);
+    }
+}
@@ -7,6 +7,8 @@ import android.net.Uri;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
+import com.google.android.gms.tasks.Tasks;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -15,6 +17,7 @@ import org.junit.runner.RunWith;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -104,6 +107,28 @@ public class FirebaseStorageTest {
         assertNull(errorUriExists, downloadUri);
     }
 
+    @Test
+    public void testTransferBatch() throws Exception {
+        // Upload the File to Storage without blocking on the upload
+        ImageFile srcFile = downloadTestImage();
+        TransferBatch uploads = mProvider.uploadFilesAsync(Collections.singletonList(srcFile));
+
+        String errorBatchSize = "TransferBatch does not contain a task for each File";
+        assertEquals(errorBatchSize, 1, uploads.getTasks().size());
+
+        Tasks.await(uploads.getTask());
+
+        // Download the File without requesting its download URL first
+        ImageFile destFile = ImageFile.getDestinationFile(mContext, srcFile.firebaseId);
+        Tasks.await(mProvider.downloadFileAsync(destFile));
+
+        String errorImageIncomplete = "Size of the image does not match the expected size of the image";
+        assertEquals(errorImageIncomplete, srcFile.length(), destFile.length());
+
+        // Delete the image
+        destFile.delete();
+    }
+
     /**
      * Helper method for downloading an image from the Internet to be used as the test image
      *
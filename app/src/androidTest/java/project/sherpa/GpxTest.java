@@ -3,13 +3,19 @@ package project.sherpa;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
+import org.gavaghan.geodesy.Ellipsoid;
+import org.gavaghan.geodesy.GeodeticCalculator;
+import org.gavaghan.geodesy.GeodeticMeasurement;
+import org.gavaghan.geodesy.GlobalPosition;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.File;
 
+import project.sherpa.utilities.GeodesicUtils;
 import project.sherpa.utilities.objects.GpxStats;
 import project.sherpa.utilities.GpxUtils;
+import project.sherpa.utilities.objects.GpxTrack;
 
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
@@ -45,4 +51,53 @@ public class GpxTest {
         String errorElevationInaccurate = "Elevation calculated is greater than 100ft different than the expected elevation";
         assertTrue(errorElevationInaccurate, elevation < 3300 && elevation > 3100);
     }
+
+    @Test
+    public void testFastDistanceError() {
+        // Get the Gpx File
+        File file = TestUtilities.downloadFile(InstrumentationRegistry.getTargetContext(), GPX_URL);
+
+        // Parse the GpxTrack
+        GpxTrack track = GpxUtils.getGpxTrack(file);
+
+        String errorParsingTrack = "GpxUtils was unable to parse a GpxTrack for the Gpx File downloaded";
+        assertNotNull(errorParsingTrack, track);
+
+        // Calculate the total distance using both DistanceModes
+        double vincenty = GpxUtils.getTrackDistance(track, GeodesicUtils.DistanceMode.VINCENTY);
+        double fast = GpxUtils.getTrackDistance(track, GeodesicUtils.DistanceMode.FAST);
+
+        // Check the FAST distance is within the documented bound of the Vincenty distance
+        String errorFastInaccurate = "Distance calculated in FAST mode differs from VINCENTY by more than "
+                + GeodesicUtils.FAST_MAX_RELATIVE_ERROR;
+        assertTrue(errorFastInaccurate,
+                Math.abs(fast - vincenty) / vincenty < GeodesicUtils.FAST_MAX_RELATIVE_ERROR);
+
+        // Check the allocation-free Vincenty matches the previous calculation to within a meter
+        String errorVincentyInaccurate = "Distance calculated in VINCENTY mode is more than 1 meter different than the GeodeticCalculator";
+        assertTrue(errorVincentyInaccurate, Math.abs(vincenty - getGeodeticCalculatorDistance(track)) < 1);
+    }
+
+    /**
+     * Calculates the distance of a GpxTrack using the GeodeticCalculator from the geodesy library
+     *
+     * @param track    GpxTrack to calculate the distance for
+     * @return Total distance of the track in meters
+     */
+    private double getGeodeticCalculatorDistance(GpxTrack track) {
+        GeodeticCalculator calculator = new GeodeticCalculator();
+        double totalDistance = 0;
+
+        for (int segment = 0; segment < track.getSegmentCount(); segment++) {
+            for (int i = track.getSegmentStart(segment) + 1; i < track.getSegmentEnd(segment); i++) {
+                GeodeticMeasurement measurement = calculator.calculateGeodeticMeasurement(Ellipsoid.WGS84,
+                        new GlobalPosition(track.getLatitude(i - 1), track.getLongitude(i - 1), 0),
+                        new GlobalPosition(track.getLatitude(i), track.getLongitude(i), 0));
+
+                totalDistance += measurement.getPointToPointDistance();
+            }
+        }
+
+        return totalDistance;
+    }
 }
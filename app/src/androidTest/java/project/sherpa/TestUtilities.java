@@ -155,7 +155,7 @@ class TestUtilities {
         guide.trailName = "testTrailName";
         guide.difficulty = 3;
         guide.setImageUri(downloadFile(context, "http://www.norcalhiker.com/wp-content/uploads/2014/09/09.jpg"));
-        guide.setGpxUri(downloadFile(context, "http://www.norcalhiker.com/maps/FourMileTrail.gpx"));
+        guide.setGpxUri(context, downloadFile(context, "http://www.norcalhiker.com/maps/FourMileTrail.gpx"));
 
         return guide;
     }
@@ -164,7 +164,7 @@ class TestUtilities {
         Guide guide = new Guide(System.currentTimeMillis());
         guide.difficulty = 2;
         guide.setImageUri(downloadFile(context, "http://www.norcalhiker.com/wp-content/uploads/2015/03/000.jpg"));
-        guide.setGpxUri(downloadFile(context, "http://www.norcalhiker.com/maps/Snow_Mtn.gpx"));
+        guide.setGpxUri(context, downloadFile(context, "http://www.norcalhiker.com/maps/Snow_Mtn.gpx"));
 
         return guide;
     }
@@ -173,7 +173,7 @@ class TestUtilities {
         Guide guide = new Guide(System.currentTimeMillis());
         guide.difficulty = 3;
         guide.setImageUri(downloadFile(context, "http://www.norcalhiker.com/wp-content/uploads/2016/01/00-1.jpg"));
-        guide.setGpxUri(downloadFile(context, "http://www.norcalhiker.com/maps/Falls_Trail.gpx"));
+        guide.setGpxUri(context, downloadFile(context, "http://www.norcalhiker.com/maps/Falls_Trail.gpx"));
 
         return guide;
     }
@@ -182,7 +182,7 @@ class TestUtilities {
         Guide guide = new Guide(System.currentTimeMillis());
         guide.difficulty = 4;
         guide.setImageUri(downloadFile(context, "http://www.norcalhiker.com/wp-content/uploads/2013/10/032.jpg"));
-        guide.setGpxUri(downloadFile(context, "http://www.norcalhiker.com/maps/Muir_Hike.gpx"));
+        guide.setGpxUri(context, downloadFile(context, "http://www.norcalhiker.com/maps/Muir_Hike.gpx"));
 
         return guide;
     }
@@ -2,6 +2,8 @@ package project.sherpa;
 
 import android.support.multidex.MultiDexApplication;
 
+import project.sherpa.services.offlinesync.FavoritesSyncService;
+import project.sherpa.utilities.DataCache;
 import timber.log.Timber;
 
 /**
@@ -15,5 +17,22 @@ public class SherpaApplication extends MultiDexApplication {
         if (BuildConfig.DEBUG) {
             Timber.plant(new Timber.DebugTree());
         }
+
+        // Make sure the favorites sync job matches the user's preference
+        FavoritesSyncService.updateSchedule(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Release cached models according to how much memory the system needs back
+        DataCache.getInstance().trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        DataCache.getInstance().evictAll();
     }
 }
@@ -3,6 +3,7 @@ package project.sherpa.data;
 import net.simonvt.schematic.annotation.AutoIncrement;
 import net.simonvt.schematic.annotation.ConflictResolutionType;
 import net.simonvt.schematic.annotation.DataType;
+import net.simonvt.schematic.annotation.DefaultValue;
 import net.simonvt.schematic.annotation.NotNull;
 import net.simonvt.schematic.annotation.PrimaryKey;
 import net.simonvt.schematic.annotation.References;
@@ -51,6 +52,7 @@ public class GuideContract {
         @DataType(DataType.Type.TEXT) String AREA                                   = "area";
 
         @DataType(DataType.Type.TEXT) String IMAGE_URI                              = "imageUri";
+        @DataType(DataType.Type.TEXT) String IMAGE_HASH                             = "imageHash";
         @DataType(DataType.Type.TEXT) String GPX_URI                                = "gpxUri";
 
         @DataType(DataType.Type.INTEGER) String DRAFT                               = "draft";
@@ -100,6 +102,7 @@ public class GuideContract {
         @DataType(DataType.Type.INTEGER) @NotNull String SECTION                    = "section";
         @DataType(DataType.Type.TEXT) String CONTENT                                = "content";
         @DataType(DataType.Type.TEXT) String IMAGE_URI                              = "imageUri";
+        @DataType(DataType.Type.TEXT) String IMAGE_HASH                             = "imageHash";
 
         @DataType(DataType.Type.INTEGER) String DRAFT                               = "draft";
     }
@@ -153,4 +156,92 @@ public class GuideContract {
         @DataType(DataType.Type.INTEGER)
         String MESSAGE_COUNT        = Chat.MESSAGE_COUNT;
     }
+
+    @UniqueConstraint(
+            columns = {GpxStatsEntry.HASH},
+            onConflict = ConflictResolutionType.REPLACE)
+    public interface GpxStatsEntry {
+        @DataType(DataType.Type.INTEGER) @PrimaryKey @AutoIncrement
+        String _ID                  = "_id";
+        @DataType(DataType.Type.TEXT) @NotNull
+        String HASH                 = "hash";
+        @DataType(DataType.Type.REAL)
+        String DISTANCE             = "distance";
+        @DataType(DataType.Type.REAL)
+        String ELEVATION            = "elevation";
+        @DataType(DataType.Type.REAL)
+        String LATITUDE             = "latitude";
+        @DataType(DataType.Type.REAL)
+        String LONGITUDE            = "longitude";
+        @DataType(DataType.Type.REAL)
+        String MID_LATITUDE         = "midLatitude";
+        @DataType(DataType.Type.REAL)
+        String MID_LONGITUDE        = "midLongitude";
+        @DataType(DataType.Type.REAL)
+        String NORTH                = "north";
+        @DataType(DataType.Type.REAL)
+        String SOUTH                = "south";
+        @DataType(DataType.Type.REAL)
+        String EAST                 = "east";
+        @DataType(DataType.Type.REAL)
+        String WEST                 = "west";
+    }
+
+    @UniqueConstraint(
+            columns = {OfflineRegionEntry.REGION_ID},
+            onConflict = ConflictResolutionType.REPLACE)
+    public interface OfflineRegionEntry {
+        @DataType(DataType.Type.INTEGER) @PrimaryKey @AutoIncrement
+        String _ID                  = "_id";
+        @DataType(DataType.Type.INTEGER) @NotNull
+        String REGION_ID            = "regionId";
+        @DataType(DataType.Type.TEXT)
+        String AREA                 = "area";
+
+        // Tiles covered by the region at ZOOM
+        @DataType(DataType.Type.INTEGER)
+        String ZOOM                 = "zoom";
+        @DataType(DataType.Type.INTEGER)
+        String MIN_X                = "minX";
+        @DataType(DataType.Type.INTEGER)
+        String MIN_Y                = "minY";
+        @DataType(DataType.Type.INTEGER)
+        String MAX_X                = "maxX";
+        @DataType(DataType.Type.INTEGER)
+        String MAX_Y                = "maxY";
+    }
+
+    @UniqueConstraint(
+            columns = {OfflineRegionGuideEntry.REGION_ID, OfflineRegionGuideEntry.GUIDE_ID},
+            onConflict = ConflictResolutionType.REPLACE)
+    public interface OfflineRegionGuideEntry {
+        @DataType(DataType.Type.INTEGER) @PrimaryKey @AutoIncrement
+        String _ID                  = "_id";
+        @DataType(DataType.Type.INTEGER) @NotNull
+        String REGION_ID            = "regionId";
+        @DataType(DataType.Type.TEXT) @NotNull
+        String GUIDE_ID             = "guideId";
+    }
+
+    @UniqueConstraint(
+            columns = {OfflineGuideEntry.GUIDE_ID},
+            onConflict = ConflictResolutionType.REPLACE)
+    public interface OfflineGuideEntry {
+        @DataType(DataType.Type.INTEGER) @PrimaryKey @AutoIncrement
+        String _ID                  = "_id";
+        @DataType(DataType.Type.TEXT) @NotNull
+        String GUIDE_ID             = "guideId";
+        @DataType(DataType.Type.INTEGER)
+        String LAST_ACCESSED        = "lastAccessed";
+
+        // Bytes used by the Guide's database rows and files, and its share of the map tiles
+        @DataType(DataType.Type.INTEGER)
+        String FILE_SIZE            = "fileSize";
+        @DataType(DataType.Type.INTEGER)
+        String MAP_SIZE             = "mapSize";
+
+        // Time the Guide was last modified on Firebase when it was saved
+        @DataType(DataType.Type.INTEGER) @DefaultValue("0")
+        String VERSION              = "version";
+    }
 }
@@ -17,7 +17,7 @@ import project.sherpa.data.generated.GuideDatabase.*;
         version = GuideDatabase.VERSION)
 public class GuideDatabase {
     // ** Constants ** //
-    public static final int VERSION = 1;
+    public static final int VERSION = 6;
     public static final String DATABASE_NAME = "guides.db";
 
     @Table(GuideContract.GuideEntry.class)
@@ -41,20 +41,84 @@ public class GuideDatabase {
     @Table(GuideContract.ChatEntry.class)
     public static final String CHATS = "chats";
 
-//    @OnUpgrade
-//    public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-//        switch (oldVersion) {
-//            case 1:
-//                db.beginTransaction();
-//                try {
-//
-//                    // Create MESSAGES and CHATS tables
-//                    db.execSQL(project.sherpa.data.generated.GuideDatabase.MESSAGES);
-//                    db.execSQL(project.sherpa.data.generated.GuideDatabase.CHATS);
-//                    db.setTransactionSuccessful();
-//                } finally {
-//                    db.endTransaction();
-//                }
-//        }
-//    }
+    @Table(GuideContract.GpxStatsEntry.class)
+    public static final String GPX_STATS = "gpxStats";
+
+    @Table(GuideContract.OfflineRegionEntry.class)
+    public static final String OFFLINE_REGIONS = "offlineRegions";
+
+    @Table(GuideContract.OfflineRegionGuideEntry.class)
+    public static final String OFFLINE_REGION_GUIDES = "offlineRegionGuides";
+
+    @Table(GuideContract.OfflineGuideEntry.class)
+    public static final String OFFLINE_GUIDES = "offlineGuides";
+
+    @OnUpgrade
+    public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        switch (oldVersion) {
+            case 1:
+                db.beginTransaction();
+                try {
+
+                    // Create GPX_STATS table
+                    db.execSQL(project.sherpa.data.generated.GuideDatabase.GPX_STATS);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+            case 2:
+                db.beginTransaction();
+                try {
+
+                    // Create tables for tracking the offline map regions shared between Guides
+                    db.execSQL(project.sherpa.data.generated.GuideDatabase.OFFLINE_REGIONS);
+                    db.execSQL(project.sherpa.data.generated.GuideDatabase.OFFLINE_REGION_GUIDES);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+            case 3:
+                db.beginTransaction();
+                try {
+
+                    // Create table for tracking the storage used by each cached Guide
+                    db.execSQL(project.sherpa.data.generated.GuideDatabase.OFFLINE_GUIDES);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+            case 4:
+
+                // The table created in the previous step already has the column
+                if (oldVersion == 4) {
+                    db.beginTransaction();
+                    try {
+
+                        // Add the version of each cached Guide so it can be checked for updates
+                        db.execSQL("ALTER TABLE " + OFFLINE_GUIDES + " ADD COLUMN "
+                                + GuideContract.OfflineGuideEntry.VERSION + " INTEGER DEFAULT 0");
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                }
+
+            case 5:
+                db.beginTransaction();
+                try {
+
+                    // Add the hash that content-addressed images are stored under
+                    db.execSQL("ALTER TABLE " + GUIDES + " ADD COLUMN "
+                            + GuideContract.GuideEntry.IMAGE_HASH + " TEXT");
+                    db.execSQL("ALTER TABLE " + SECTIONS + " ADD COLUMN "
+                            + GuideContract.SectionEntry.IMAGE_HASH + " TEXT");
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+        }
+    }
 }
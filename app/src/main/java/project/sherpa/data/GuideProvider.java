@@ -51,13 +51,17 @@ public class GuideProvider {
      * Defines the paths used to access the data in the database
      */
     interface Path {
-        String GUIDES       = "guides";
-        String TRAILS       = "trails";
-        String AUTHORS      = "authors";
-        String SECTIONS     = "sections";
-        String AREAS        = "areas";
-        String MESSAGES     = "messages";
-        String CHATS        = "chats";
+        String GUIDES                   = "guides";
+        String TRAILS                   = "trails";
+        String AUTHORS                  = "authors";
+        String SECTIONS                 = "sections";
+        String AREAS                    = "areas";
+        String MESSAGES                 = "messages";
+        String CHATS                    = "chats";
+        String GPX_STATS                = "gpxStats";
+        String OFFLINE_REGIONS          = "offlineRegions";
+        String OFFLINE_REGION_GUIDES    = "offlineRegionGuides";
+        String OFFLINE_GUIDES           = "offlineGuides";
     }
 
     /**
@@ -245,4 +249,56 @@ public class GuideProvider {
                     .build();
         }
     }
+
+    /**
+     * URIs for accessing the stats calculated for GPX files
+     */
+    @TableEndpoint(table = GuideDatabase.GPX_STATS)
+    public static class GpxStatistics {
+
+        @ContentUri(
+                path = Path.GPX_STATS,
+                type = "vnd.android.cursor.dir/gpxStats")
+        public static final Uri CONTENT_URI = buildUri(Path.GPX_STATS);
+
+        @InexactContentUri(
+                path = Path.GPX_STATS + "/*",
+                name = "GPX_STATS_BY_HASH",
+                type = "vnd.android.cursor.item/gpxStats",
+                whereColumn = GuideDatabase.GPX_STATS + "." + GpxStatsEntry.HASH,
+                pathSegment = 1)
+        public static Uri withHash(String hash) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(hash)
+                    .build();
+        }
+    }
+
+    @TableEndpoint(table = GuideDatabase.OFFLINE_REGIONS)
+    public static class OfflineRegions {
+
+        @ContentUri(
+                path = Path.OFFLINE_REGIONS,
+                type = "vnd.android.cursor.dir/offlineRegions")
+        public static final Uri CONTENT_URI = buildUri(Path.OFFLINE_REGIONS);
+    }
+
+    @TableEndpoint(table = GuideDatabase.OFFLINE_REGION_GUIDES)
+    public static class OfflineRegionGuides {
+
+        @ContentUri(
+                path = Path.OFFLINE_REGION_GUIDES,
+                type = "vnd.android.cursor.dir/offlineRegionGuides")
+        public static final Uri CONTENT_URI = buildUri(Path.OFFLINE_REGION_GUIDES);
+    }
+
+    @TableEndpoint(table = GuideDatabase.OFFLINE_GUIDES)
+    public static class OfflineGuides {
+
+        @ContentUri(
+                path = Path.OFFLINE_GUIDES,
+                type = "vnd.android.cursor.dir/offlineGuides",
+                defaultSort = GuideContract.OfflineGuideEntry.LAST_ACCESSED + " ASC")
+        public static final Uri CONTENT_URI = buildUri(Path.OFFLINE_GUIDES);
+    }
 }
@@ -7,6 +7,7 @@ import com.firebase.geofire.GeoFire;
 import com.firebase.geofire.GeoLocation;
 import com.firebase.geofire.GeoQuery;
 import com.firebase.geofire.GeoQueryEventListener;
+import com.firebase.geofire.core.GeoHash;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
@@ -14,6 +15,7 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,10 @@ public class DatabaseProvider {
     private static final String GUIDE_ID = "guideId";
     private static final int GUIDE_LIMIT = 20;
 
+    // Keys GeoFire stores the location of a Guide under
+    private static final String GEOFIRE_HASH = "g";
+    private static final String GEOFIRE_LOCATION = "l";
+
 
     // ** Member Variables ** //
     private static DatabaseProvider sProvider;
@@ -86,46 +92,71 @@ public class DatabaseProvider {
         // Init the Map that will be used to insert values into the Firebase Database
         Map<String, Object> childUpdates = new HashMap<>();
 
-        // Init the directory variable that will be used to generate the path for insertion
-        String directory;
-
-        // Iterate, get the key for each record, and add the values to childUpdates
+        // Get the key for each record and add the values to childUpdates
         for (BaseModel model : models) {
-            // Get the directory to insert the records into from the BaseModel's class
-            directory = FirebaseProviderUtils.getDirectoryFromModel(model);
+            addRecord(childUpdates, model);
+        }
+
+        mDatabase.updateChildren(childUpdates);
+    }
 
-            // Generate the DatabaseReference from the directory
-            DatabaseReference ref = mDatabase.child(directory);
+    /**
+     * Generates a key for a new record and adds its values to a Map of updates so that several
+     * records can be written to the Firebase Database together in a single atomic update
+     *
+     * @param childUpdates    Map of paths to the values to write to them
+     * @param model           The data model Object describing the information to add to the
+     *                        database. Its FirebaseId is set to the generated key.
+     */
+    public void addRecord(Map<String, Object> childUpdates, BaseModel model) {
 
-            if (directory.equals(GuideDatabase.SECTIONS)) {
-                // If inserting Sections into the database, create a subdirectory using the Guide's
-                // ID
-                ref = ref.child(((Section) model).guideId);
-                directory = directory + "/" + ((Section) model).guideId;
-            }
+        // Get the directory to insert the records into from the BaseModel's class
+        String directory = FirebaseProviderUtils.getDirectoryFromModel(model);
 
-            // Push the path to get the key
-            String key = ref.push().getKey();
+        // Generate the DatabaseReference from the directory
+        DatabaseReference ref = mDatabase.child(directory);
 
-            // Add the model's values to childUpdates
-            childUpdates.put(getFirebasePath(directory, key), model.toMap());
+        if (directory.equals(GuideDatabase.SECTIONS)) {
+            // If inserting Sections into the database, create a subdirectory using the Guide's
+            // ID
+            ref = ref.child(((Section) model).guideId);
+            directory = directory + "/" + ((Section) model).guideId;
+        }
 
-            // Modify the model so it includes the key
-            model.firebaseId = key;
+        // Push the path to get the key
+        String key = ref.push().getKey();
 
-            if (model instanceof Guide) {
-                // When inserting a Guide object, there needs to be accompanying coordinate data
-                // loaded into the Database for GeoFire queries
-                DatabaseReference geoFireReference = mDatabase.child(GEOFIRE_PATH);
-                GeoFire geoFire = new GeoFire(geoFireReference);
+        // Add the model's values to childUpdates
+        childUpdates.put(getFirebasePath(directory, key), model.toMap());
 
-                GeoLocation location = new GeoLocation(((Guide) model).latitude, ((Guide) model).longitude);
+        // Modify the model so it includes the key
+        model.firebaseId = key;
 
-                geoFire.setLocation(key, location);
-            }
+        if (model instanceof Guide) {
+            // When inserting a Guide object, there needs to be accompanying coordinate data
+            // loaded into the Database for GeoFire queries
+            addLocation(childUpdates, (Guide) model);
         }
+    }
 
-        mDatabase.updateChildren(childUpdates);
+    /**
+     * Adds the location of a Guide to a Map of updates so it can be found by GeoFire queries. It
+     * is written in the same format as GeoFire.setLocation() so it can be part of the same atomic
+     * update as the Guide itself.
+     *
+     * @param childUpdates    Map of paths to the values to write to them
+     * @param guide           Guide whose location is to be written. It must already have its
+     *                        FirebaseId.
+     */
+    public void addLocation(Map<String, Object> childUpdates, Guide guide) {
+
+        GeoLocation location = new GeoLocation(guide.latitude, guide.longitude);
+
+        Map<String, Object> geoFireValues = new HashMap<>();
+        geoFireValues.put(GEOFIRE_HASH, new GeoHash(location).getGeoHashString());
+        geoFireValues.put(GEOFIRE_LOCATION, Arrays.asList(location.latitude, location.longitude));
+
+        childUpdates.put(getFirebasePath(GEOFIRE_PATH, guide.firebaseId), geoFireValues);
     }
 
     /**
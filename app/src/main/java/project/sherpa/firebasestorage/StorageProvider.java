@@ -1,22 +1,33 @@
 package project.sherpa.firebasestorage;
 
+import android.content.Context;
 import android.net.Uri;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Continuation;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.storage.FileDownloadTask;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.OnProgressListener;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.StorageTask;
 import com.google.firebase.storage.UploadTask;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import project.sherpa.files.abstractfiles.BaseFile;
 import project.sherpa.utilities.FirebaseProviderUtils;
+import project.sherpa.utilities.HashUtils;
+import timber.log.Timber;
 
 import static project.sherpa.firebasestorage.StorageProvider.FirebaseFileType.GPX_FILE;
 import static project.sherpa.firebasestorage.StorageProvider.FirebaseFileType.IMAGE_FILE;
@@ -26,10 +37,15 @@ import static project.sherpa.utilities.FirebaseProviderUtils.JPEG_EXT;
 /**
  * The Provider that will be used to interface with Firebase Storage.
  *
- * Always access these methods on a separate thread. The thread accessing these methods will be
- * blocked until the download/upload completes.
+ * The asynchronous methods start the operation and return its Task immediately, so many transfers
+ * can run at the same time without a thread waiting on each of them. The Tasks can be combined
+ * with Tasks.whenAll() or chained with continueWith(), and uploads and downloads can be cancelled
+ * through the StorageTask returned or together through a TransferBatch.
  *
- * * * * * * * * * * * * * * * * DO NOT USE ON UI THREAD * * * * * * * * * * * * * * * * * * * * * *
+ * The blocking methods wait on the same Tasks. The thread accessing them will be blocked until
+ * the download/upload completes.
+ *
+ * * * * * * * * * * * * * DO NOT USE BLOCKING METHODS ON UI THREAD * * * * * * * * * * * * * * * *
  */
 
 public class StorageProvider {
@@ -59,151 +75,226 @@ public class StorageProvider {
     }
 
     /**
-     * Uploads ImageFiles to the Firebase Storage
+     * Starts uploading a File to Firebase Storage
      *
-     * @param file      The File to be uploaded
+     * @param file    The File to be uploaded
+     * @return The UploadTask for the upload, which can be used to track its progress or cancel it
      */
-    public boolean uploadFile(BaseFile file) {
-        // Init a StorageListener that will return the status of the operation
-        final StorageListener listener = new StorageListener();
+    public UploadTask uploadFileAsync(BaseFile file) {
 
-        // Get a reference to the location it will be stored using the ImageFile's firebaseId
+        // Get a reference to the location it will be stored using the File's firebaseId
         StorageReference ref = FirebaseProviderUtils.getReferenceForFile(mStorage, file);
 
-        try {
-            // Upload the File
-            InputStream inStream = new FileInputStream(file);
-            ref.putStream(inStream)
-                    .addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
-                        @Override
-                        public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
-                            // Notify the listener of success
-                            listener.onSuccess();
-                        }
-                    })
-                    .addOnFailureListener(new OnFailureListener() {
-                        @Override
-                        public void onFailure(@NonNull Exception e) {
-                            // Notify the listener of the failure
-                            listener.onFailure(e);
-                        }
-                    });
+        return ref.putFile(Uri.fromFile(file));
+    }
 
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+    /**
+     * Starts uploading a File to Firebase Storage, resuming an earlier upload of the same File if
+     * it was interrupted. The upload's session is persisted once it starts so it can be resumed
+     * after the connection drops or the app is restarted, and it is cleared when the upload
+     * succeeds, is cancelled, or fails for any reason other than the network.
+     *
+     * @param context    Interface to global Context
+     * @param file       The File to be uploaded
+     * @return The UploadTask for the upload, which can be used to track its progress, pause it,
+     * or cancel it
+     */
+    public UploadTask uploadFileResumable(Context context, BaseFile file) {
+
+        final Context appContext = context.getApplicationContext();
+
+        // Get a reference to the location it will be stored using the File's firebaseId
+        StorageReference ref = FirebaseProviderUtils.getReferenceForFile(mStorage, file);
+
+        final String path = ref.getPath();
+        final String hash = HashUtils.hashFile(file);
+
+        Uri sessionUri = UploadSessions.getSession(appContext, path, hash);
+
+        UploadTask task;
+
+        if (sessionUri != null) {
+            Timber.d("Resuming upload of " + path);
+
+            task = ref.putFile(Uri.fromFile(file), new StorageMetadata.Builder().build(), sessionUri);
+        } else {
+            task = ref.putFile(Uri.fromFile(file));
         }
 
-        // Pause the calling thread until the upload finishes
-        listener.pauseUntilComplete();
+        task.addOnProgressListener(new OnProgressListener<UploadTask.TaskSnapshot>() {
+
+            private boolean mSaved;
+
+            @Override
+            public void onProgress(UploadTask.TaskSnapshot taskSnapshot) {
+
+                // The session is only available once the server has accepted the upload
+                if (!mSaved && taskSnapshot.getUploadSessionUri() != null) {
+                    UploadSessions.saveSession(appContext, path, hash, taskSnapshot.getUploadSessionUri());
+                    mSaved = true;
+                }
+            }
+        }).addOnCompleteListener(new OnCompleteListener<UploadTask.TaskSnapshot>() {
+            @Override
+            public void onComplete(@NonNull Task<UploadTask.TaskSnapshot> task) {
+
+                // Keep the session if the upload only ran out of retries while offline
+                Exception e = task.getException();
 
-        return listener.getStatus();
+                if (e instanceof StorageException
+                        && ((StorageException) e).getErrorCode() == StorageException.ERROR_RETRY_LIMIT_EXCEEDED) {
+                    return;
+                }
+
+                UploadSessions.clearSession(appContext, path);
+            }
+        });
+
+        return task;
     }
 
     /**
-     * Downloads a File from Firebase Storage to a local File
+     * Starts uploading several Files to Firebase Storage at the same time
      *
-     * @param file    File to be downloaded
-     * @return True if the download was successful. False otherwise.
+     * @param files    Files to be uploaded
+     * @return TransferBatch tracking the uploads
      */
-    public boolean downloadFile(BaseFile file)  {
-        // Init a StorageListener that will return the status of the operation
-        final StorageListener listener = new StorageListener();
-
-        // Check to make sure the File exists
-        Uri uri = getDownloadUrl(file);
-        if (uri == null) {
-            listener.onFailure(new FileNotFoundException("File does not exist on Firebase Storage"));
-            return listener.getStatus();
+    public TransferBatch uploadFilesAsync(Collection<? extends BaseFile> files) {
+
+        List<StorageTask<?>> tasks = new ArrayList<>();
+
+        for (BaseFile file : files) {
+            tasks.add(uploadFileAsync(file));
         }
 
+        return new TransferBatch(tasks);
+    }
+
+    /**
+     * Starts downloading a File from Firebase Storage to a local File. A File that does not exist
+     * on Firebase Storage fails with StorageException.ERROR_OBJECT_NOT_FOUND.
+     *
+     * @param file    File to be downloaded
+     * @return The FileDownloadTask for the download, which can be used to track its progress or
+     * cancel it
+     */
+    public FileDownloadTask downloadFileAsync(BaseFile file) {
 
-        // Get a reference to the location it will be stored using the ImageFile's firebaseId
+        // Get a reference to the location it is stored using the File's firebaseId
         StorageReference ref = FirebaseProviderUtils.getReferenceForFile(mStorage, file);
 
-        // Download the File to the BaseFile in the signature
-        ref.getFile(file)
-                .addOnSuccessListener(new OnSuccessListener<FileDownloadTask.TaskSnapshot>() {
-                    @Override
-                    public void onSuccess(FileDownloadTask.TaskSnapshot taskSnapshot) {
-                        listener.onSuccess();
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        listener.onFailure(e);
-                    }
-                });
+        return ref.getFile(file);
+    }
+
+    /**
+     * Starts downloading several Files from Firebase Storage at the same time
+     *
+     * @param files    Files to be downloaded
+     * @return TransferBatch tracking the downloads
+     */
+    public TransferBatch downloadFilesAsync(Collection<? extends BaseFile> files) {
+
+        List<StorageTask<?>> tasks = new ArrayList<>();
 
-        // Pause the calling thread until the download completes
-        listener.pauseUntilComplete();
+        for (BaseFile file : files) {
+            tasks.add(downloadFileAsync(file));
+        }
 
-        return listener.getStatus();
+        return new TransferBatch(tasks);
     }
 
     /**
-     * Removes a file from Firebase Storage
+     * Starts checking whether a File has already been uploaded to Firebase Storage
      *
-     * @param file    File to be removed
-     * @return True if successfully deleted. False otherwise.
+     * @param file    File to check for
+     * @return Task for whether the File exists. It only fails if the check itself fails, such as
+     * when there is no network connection.
      */
-    public boolean deleteFile(BaseFile file) {
-        // Init a StorageListener that will return the status of the operation
-        final StorageListener listener = new StorageListener();
+    public Task<Boolean> fileExistsAsync(BaseFile file) {
 
-        StorageReference ref = FirebaseProviderUtils.getReferenceForFile(mStorage, file);
-        ref.delete()
-                .addOnSuccessListener(new OnSuccessListener<Void>() {
-                    @Override
-                    public void onSuccess(Void aVoid) {
-                        listener.onSuccess();
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
+        return FirebaseProviderUtils.getReferenceForFile(mStorage, file).getMetadata()
+                .continueWith(new Continuation<StorageMetadata, Boolean>() {
                     @Override
-                    public void onFailure(@NonNull Exception e) {
-                        listener.onFailure(e);
+                    public Boolean then(@NonNull Task<StorageMetadata> task) throws Exception {
+
+                        if (task.isSuccessful()) return true;
+
+                        Exception e = task.getException();
+
+                        if (e instanceof StorageException
+                                && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                            return false;
+                        }
+
+                        throw e;
                     }
                 });
+    }
 
-        listener.pauseUntilComplete();
-
-        return listener.getStatus();
+    /**
+     * Starts removing a File from Firebase Storage
+     *
+     * @param file    File to be removed
+     * @return Task for the deletion
+     */
+    public Task<Void> deleteFileAsync(BaseFile file) {
+        return FirebaseProviderUtils.getReferenceForFile(mStorage, file).delete();
     }
 
     /**
-     * Generates a URL to download the File from Firebase Storage
+     * Starts generating a URL to download a File from Firebase Storage
      *
      * @param file    File to generate a download URL for
-     * @return Uri form of the URL for the File
+     * @return Task for the Uri form of the URL for the File
      */
-    public Uri getDownloadUrl(BaseFile file) {
-        // Init a StorageListener that will return the status of the operation
-        final StorageListener listener = new StorageListener();
+    public Task<Uri> getDownloadUrlAsync(BaseFile file) {
+        return FirebaseProviderUtils.getReferenceForFile(mStorage, file).getDownloadUrl();
+    }
 
-        // Get a StorageReference using the variables
-        StorageReference ref = FirebaseProviderUtils.getReferenceForFile(mStorage, file);
+    /**
+     * Uploads a File to Firebase Storage and waits for the upload to complete
+     *
+     * @param file    The File to be uploaded
+     * @return True if the upload was successful. False otherwise.
+     */
+    public boolean uploadFile(BaseFile file) {
+        return await(uploadFileAsync(file));
+    }
 
-        // Get the URL for the File
-        ref.getDownloadUrl()
-                .addOnSuccessListener(new OnSuccessListener<Uri>() {
-                    @Override
-                    public void onSuccess(Uri uri) {
-                        // Set the Uri in the listener so it can be returned
-                        listener.onUrlObtained(uri);
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        listener.onFailure(e);
-                    }
-                });
+    /**
+     * Downloads a File from Firebase Storage to a local File and waits for the download to
+     * complete
+     *
+     * @param file    File to be downloaded
+     * @return True if the download was successful. False otherwise.
+     */
+    public boolean downloadFile(BaseFile file)  {
+        return await(downloadFileAsync(file));
+    }
+
+    /**
+     * Removes a file from Firebase Storage and waits for it to be removed
+     *
+     * @param file    File to be removed
+     * @return True if successfully deleted. False otherwise.
+     */
+    public boolean deleteFile(BaseFile file) {
+        return await(deleteFileAsync(file));
+    }
 
-        // Pause the thread until complete
-        listener.pauseUntilComplete();
+    /**
+     * Generates a URL to download the File from Firebase Storage and waits for it to be returned
+     *
+     * @param file    File to generate a download URL for
+     * @return Uri form of the URL for the File or null if it could not be generated
+     */
+    public Uri getDownloadUrl(BaseFile file) {
 
-        return listener.getDownloadUri();
+        Task<Uri> task = getDownloadUrlAsync(file);
+
+        return await(task)
+                ? task.getResult()
+                : null;
     }
 
     /**
@@ -217,75 +308,20 @@ public class StorageProvider {
         return mStorage.child(IMAGE_PATH).child(firebaseId + JPEG_EXT);
     }
 
-    private class StorageListener {
-        // ** Member Variables ** //
-        private boolean status = false;
-        private boolean complete = false;
-        private Uri uri;
-
-        /**
-         * To be called when an operation is successful.
-         */
-        public synchronized void onSuccess() {
-            // Set the member variables to reflect the status of the operation
-            status = true;
-            complete = true;
-
-            // Notify any paused threads that the operation is complete
-            notifyAll();
-        }
-
-        public synchronized void onFailure(Exception e) {
-            // Set the member variables to reflect the status of the operation
-            status = false;
-            complete = true;
-
-            // Notify any paused threads that the operation is complete
-            notifyAll();
-        }
-
-        public synchronized void onUrlObtained(Uri uri) {
-            // Set the member Uri to the Uri in the signature
-            this.uri = uri;
-
-            // Set the member variables to reflect the status of the operation
-            status = true;
-            complete = true;
-
-            // Notify any paused threads that the operation is complete
-            notifyAll();
-        }
-
-        /**
-         * Pauses the calling thread until the operation is complete
-         */
-        public synchronized void pauseUntilComplete() {
-            // Do not continue until the operation is complete
-            while (!complete) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        /**
-         * Gives the boolean status for whether the operation was successful
-         *
-         * @return True if successful. False if unsuccessful.
-         */
-        public boolean getStatus() {
-            return status;
-        }
+    /**
+     * Pauses the calling thread until a Task is complete
+     *
+     * @param task    Task to wait for
+     * @return True if the Task was successful. False if it failed or was cancelled.
+     */
+    private static boolean await(Task<?> task) {
 
-        /**
-         * Returns the Uri corresponding to the download link for a File
-         *
-         * @return Uri corresponding to the download link for a File
-         */
-        public Uri getDownloadUri() {
-            return uri;
+        try {
+            Tasks.await(task);
+            return true;
+        } catch (ExecutionException | InterruptedException | CancellationException e) {
+            e.printStackTrace();
+            return false;
         }
     }
 }
@@ -0,0 +1,53 @@
+package project.sherpa.firebasestorage;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.StorageTask;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A group of uploads or downloads to/from Firebase Storage that are running at the same time.
+ * The transfers can be waited on together and cancelled together.
+ */
+
+public class TransferBatch {
+    // ** Member Variables ** //
+    private List<StorageTask<?>> mTasks;
+
+    TransferBatch(List<StorageTask<?>> tasks) {
+        mTasks = tasks;
+    }
+
+    /**
+     * Combines the transfers into a single Task
+     *
+     * @return Task that completes once every transfer has completed. It fails if any of the
+     * transfers fail or are cancelled.
+     */
+    public Task<Void> getTask() {
+        return Tasks.whenAll(mTasks);
+    }
+
+    /**
+     * Retrieves the individual transfers so their progress can be tracked
+     *
+     * @return Unmodifiable List of the StorageTasks in the batch
+     */
+    public List<StorageTask<?>> getTasks() {
+        return Collections.unmodifiableList(mTasks);
+    }
+
+    /**
+     * Cancels every transfer in the batch that has not already completed
+     */
+    public void cancel() {
+
+        for (StorageTask<?> task : mTasks) {
+            if (!task.isComplete()) {
+                task.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package project.sherpa.firebasestorage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+/**
+ * Persists the session URIs of uploads to Firebase Storage so an upload that was interrupted can
+ * be resumed from the last byte the server received, even after the app has been restarted.
+ *
+ * Each session is stored under the path of the StorageReference being uploaded to, along with a
+ * hash of the File it was started for. A session is only resumed for a File with the same
+ * contents so that the bytes already on the server are never mixed with a different File.
+ */
+
+class UploadSessions {
+    // ** Constants ** //
+    private static final String PREFS_NAME      = "upload_sessions";
+    private static final String SESSION_SUFFIX  = "_session";
+    private static final String HASH_SUFFIX     = "_hash";
+
+    /**
+     * Retrieves the session of an interrupted upload
+     *
+     * @param context    Interface to global Context
+     * @param path       Path of the StorageReference being uploaded to
+     * @param hash       Hash of the File to upload
+     * @return Uri of the upload session or null if there is no session for the File
+     */
+    @Nullable
+    static Uri getSession(Context context, String path, @Nullable String hash) {
+
+        if (hash == null) return null;
+
+        SharedPreferences prefs = getPrefs(context);
+
+        String session = prefs.getString(path + SESSION_SUFFIX, null);
+
+        // Only resume an upload of the same File
+        if (session == null || !hash.equals(prefs.getString(path + HASH_SUFFIX, null))) {
+            return null;
+        }
+
+        return Uri.parse(session);
+    }
+
+    /**
+     * Stores the session of an upload that has started
+     *
+     * @param context       Interface to global Context
+     * @param path          Path of the StorageReference being uploaded to
+     * @param hash          Hash of the File being uploaded
+     * @param sessionUri    Uri of the upload session
+     */
+    static void saveSession(Context context, String path, @Nullable String hash, Uri sessionUri) {
+
+        if (hash == null) return;
+
+        getPrefs(context).edit()
+                .putString(path + SESSION_SUFFIX, sessionUri.toString())
+                .putString(path + HASH_SUFFIX, hash)
+                .apply();
+    }
+
+    /**
+     * Removes the session of an upload that has completed or can't be resumed
+     *
+     * @param context    Interface to global Context
+     * @param path       Path of the StorageReference that was uploaded to
+     */
+    static void clearSession(Context context, String path) {
+
+        getPrefs(context).edit()
+                .remove(path + SESSION_SUFFIX)
+                .remove(path + HASH_SUFFIX)
+                .apply();
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
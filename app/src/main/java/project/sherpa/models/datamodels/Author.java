@@ -499,6 +499,18 @@ public class Author extends BaseModelWithImage implements Parcelable {
         } else {
             parcel.writeInt(0);
         }
+
+        // Write the favorites as a count followed by each key-value pair
+        if (favorites != null) {
+            parcel.writeInt(favorites.size());
+
+            for (Map.Entry<String, String> favorite : favorites.entrySet()) {
+                parcel.writeString(favorite.getKey());
+                parcel.writeString(favorite.getValue());
+            }
+        } else {
+            parcel.writeInt(-1);
+        }
     }
 
     public static final Parcelable.Creator<Author> CREATOR = new Parcelable.Creator<Author>() {
@@ -523,5 +535,15 @@ public class Author extends BaseModelWithImage implements Parcelable {
         if (parcel.readInt() == 1) {
             setDraft(true);
         }
+
+        int favoriteCount = parcel.readInt();
+
+        if (favoriteCount >= 0) {
+            favorites = new HashMap<>();
+
+            for (int i = 0; i < favoriteCount; i++) {
+                favorites.put(parcel.readString(), parcel.readString());
+            }
+        }
     }
 }
@@ -36,12 +36,14 @@ public class Guide extends BaseModelWithImage implements Parcelable {
     private static final String AUTHOR_ID       = "authorId";
     private static final String AUTHOR_NAME     = "authorName";
     private static final String DATE_ADDED      = "dateAdded";
+    public static final String DATE_MODIFIED    = "dateModified";
     private static final String RATING          = "rating";
     private static final String REVIEWS         = "reviews";
     private static final String LATITUDE        = "latitude";
     private static final String LONGITUDE       = "longitude";
     private static final String ELEVATION       = "elevation";
     private static final String HAS_IMAGE       = "hasImage";
+    private static final String IMAGE_HASH      = "imageHash";
     private static final String DISTANCE        = "distance";
     private static final String DIFFICULTY      = "difficulty";
     private static final String AREA            = "area";
@@ -53,6 +55,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
     public String authorId;
     public String authorName;
     private long dateAdded;
+    private long dateModified;
     public double rating;
     public int reviews;
     public double latitude;
@@ -108,6 +111,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         int idxDifficulty       = cursor.getColumnIndex(GuideContract.GuideEntry.DIFFICULTY);
         int idxArea             = cursor.getColumnIndex(GuideContract.GuideEntry.AREA);
         int idxImageUri         = cursor.getColumnIndex(GuideContract.GuideEntry.IMAGE_URI);
+        int idxImageHash        = cursor.getColumnIndex(GuideContract.GuideEntry.IMAGE_HASH);
         int idxGpxUri           = cursor.getColumnIndex(GuideContract.GuideEntry.GPX_URI);
         int idxDraft            = cursor.getColumnIndex(GuideContract.GuideEntry.DRAFT);
         int idxFavorite         = cursor.getColumnIndex(GuideContract.GuideEntry.FAVORITE);
@@ -129,6 +133,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         int difficulty          = cursor.getInt(idxDifficulty);
         String area             = cursor.getString(idxArea);
         String imageUriString   = cursor.getString(idxImageUri);
+        String imageHash        = cursor.getString(idxImageHash);
         String gpxUriString     = cursor.getString(idxGpxUri);
         boolean draft           = cursor.getInt(idxDraft) == 1;
         boolean favorite        = cursor.getInt(idxFavorite) == 1;
@@ -151,6 +156,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         guide.difficulty        = difficulty;
         guide.area              = area;
         guide.favorite          = favorite;
+        guide.imageHash         = imageHash;
         guide.setDraft(draft);
 
         if (imageUriString != null) {
@@ -159,8 +165,9 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         }
 
         if (gpxUriString != null) {
-            File gpxFile = new File(Uri.parse(gpxUriString).getPath());
-            guide.setGpxUri(gpxFile);
+
+            // Stats for the GPX File were already read from the Cursor
+            guide.gpxUri = Uri.parse(gpxUriString);
         }
 
         return guide;
@@ -175,6 +182,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         map.put(AUTHOR_ID, authorId);
         map.put(AUTHOR_NAME, authorName);
         map.put(DATE_ADDED, getDateAdded());
+        map.put(DATE_MODIFIED, getDateModified());
         map.put(RATING, rating);
         map.put(REVIEWS, reviews);
         map.put(LATITUDE, latitude);
@@ -185,6 +193,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         map.put(DIFFICULTY, difficulty);
         map.put(AREA, area);
         map.put(HAS_IMAGE, hasImage);
+        map.put(IMAGE_HASH, imageHash);
 
         return map;
     }
@@ -193,10 +202,11 @@ public class Guide extends BaseModelWithImage implements Parcelable {
      * Converts a File to a Uri to be saved as a reference to the actual GPX File so that it may be
      * accessed later
      *
+     * @param context    Interface to global Context
      * @param gpxFile    File describing the location of a GPX file
      */
-    public void setGpxUri(File gpxFile) {
-        GpxStats stats = GpxUtils.getGpxStats(gpxFile);
+    public void setGpxUri(Context context, File gpxFile) {
+        GpxStats stats = GpxUtils.getGpxStats(context, gpxFile);
 
         if (stats == null) {
             throw new RuntimeException("Selected file does not contain proper GPS coordinates");
@@ -258,6 +268,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         authorId    = newGuideValues.authorId;
         authorName  = newGuideValues.authorName;
         dateAdded   = newGuideValues.dateAdded;
+        dateModified = newGuideValues.dateModified;
         rating      = newGuideValues.rating;
         reviews     = newGuideValues.reviews;
         latitude    = newGuideValues.latitude;
@@ -269,6 +280,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         favorite    = newGuideValues.favorite;
         addDate     = newGuideValues.addDate;
         gpxUri      = newGuideValues.gpxUri;
+        imageHash   = newGuideValues.imageHash;
     }
 
     //********************************************************************************************//
@@ -306,6 +318,27 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         this.addDate = true;
     }
 
+    /**
+     * The time the Guide was last modified is used as its version to check whether copies saved
+     * for offline use are up to date
+     */
+    public Object getDateModified() {
+        if (addDate) {
+            return ServerValue.TIMESTAMP;
+        } else {
+            return dateModified;
+        }
+    }
+
+    @Exclude
+    public long getModifiedDate() {
+        return dateModified;
+    }
+
+    public void setDateModified(long dateModified) {
+        this.dateModified = dateModified;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -363,6 +396,8 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         } else {
             parcel.writeInt(0);
         }
+
+        parcel.writeString(imageHash);
     }
 
     public static final Parcelable.Creator<Guide> CREATOR = new Parcelable.Creator<Guide>() {
@@ -411,5 +446,7 @@ public class Guide extends BaseModelWithImage implements Parcelable {
         if (parcel.readInt() == 1) {
             setFavorite(true);
         }
+
+        imageHash = parcel.readString();
     }
 }
@@ -25,6 +25,7 @@ public class Section extends BaseModelWithImage implements Parcelable {
     private static final String SECTION = "section";
     private static final String CONTENT = "content";
     private static final String HAS_IMAGE = "hasImage";
+    private static final String IMAGE_HASH = "imageHash";
 
     // ** Member Variables ** //
     public String guideId;
@@ -60,6 +61,7 @@ public class Section extends BaseModelWithImage implements Parcelable {
         int idxSection          = cursor.getColumnIndex(GuideContract.SectionEntry.SECTION);
         int idxContent          = cursor.getColumnIndex(GuideContract.SectionEntry.CONTENT);
         int idxImageUri         = cursor.getColumnIndex(GuideContract.SectionEntry.IMAGE_URI);
+        int idxImageHash        = cursor.getColumnIndex(GuideContract.SectionEntry.IMAGE_HASH);
         int idxDraft            = cursor.getColumnIndex(GuideContract.SectionEntry.DRAFT);
 
         // Retrieve the values from the Cursor
@@ -68,6 +70,7 @@ public class Section extends BaseModelWithImage implements Parcelable {
         int section             = cursor.getInt(idxSection);
         String content          = cursor.getString(idxContent);
         String imageUriString   = cursor.getString(idxImageUri);
+        String imageHash        = cursor.getString(idxImageHash);
         boolean draft           = cursor.getInt(idxDraft) == 1;
 
         // Instantiate a new Section with the values
@@ -76,6 +79,7 @@ public class Section extends BaseModelWithImage implements Parcelable {
         section0.guideId        = guideId;
         section0.section        = section;
         section0.content        = content;
+        section0.imageHash      = imageHash;
         section0.setDraft(draft);
 
         if (imageUriString != null) {
@@ -94,6 +98,7 @@ public class Section extends BaseModelWithImage implements Parcelable {
         map.put(SECTION, section);
         map.put(CONTENT, content);
         map.put(HAS_IMAGE, hasImage);
+        map.put(IMAGE_HASH, imageHash);
 
         return map;
     }
@@ -125,6 +130,7 @@ public class Section extends BaseModelWithImage implements Parcelable {
         guideId = newSectionValues.guideId;
         section = newSectionValues.section;
         content = newSectionValues.content;
+        imageHash = newSectionValues.imageHash;
     }
 
     //********************************************************************************************//
@@ -152,6 +158,8 @@ public class Section extends BaseModelWithImage implements Parcelable {
         } else {
             parcel.writeInt(0);
         }
+
+        parcel.writeString(imageHash);
     }
 
     public static final Parcelable.Creator<Section> CREATOR = new Parcelable.Creator<Section>() {
@@ -180,5 +188,7 @@ public class Section extends BaseModelWithImage implements Parcelable {
         if (parcel.readInt() == 1) {
             setDraft(true);
         }
+
+        imageHash = parcel.readString();
     }
 }
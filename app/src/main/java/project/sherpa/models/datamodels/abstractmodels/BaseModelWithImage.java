@@ -17,6 +17,7 @@ public abstract class BaseModelWithImage extends BaseModel {
     // ** Member Variables ** //
     protected Uri imageUri;
     public boolean hasImage;
+    public String imageHash;
 
     /**
      * Sets the Uri for the Object's image from a File that describes the location of an image file
@@ -33,6 +34,20 @@ public abstract class BaseModelWithImage extends BaseModel {
         return imageUri;
     }
 
+    /**
+     * Retrieves the name the model's image is stored under on Firebase Storage. Images uploaded
+     * with a hash of their contents are stored under the hash so that identical images are only
+     * stored once. Older images are stored under the model's FirebaseId.
+     *
+     * @return The name of the image on Firebase Storage without its file extension
+     */
+    @Exclude
+    public String getImageId() {
+        return imageHash != null
+                ? imageHash
+                : firebaseId;
+    }
+
     /**
      * Creates and returns the ImageFile corresponding to the model's imageUri
      *
@@ -40,7 +55,7 @@ public abstract class BaseModelWithImage extends BaseModel {
      */
     public ImageFile getImageFile() {
         if (this.imageUri != null) {
-            return new ImageFile(this.firebaseId, this.imageUri.getPath());
+            return new ImageFile(getImageId(), this.imageUri.getPath());
         } else {
             return null;
         }
@@ -59,6 +74,10 @@ public abstract class BaseModelWithImage extends BaseModel {
         // Set the imageUri to the new File's path
         setImageUri(image);
 
+        // The File is saved under the model's FirebaseId but downloaded from where the image is
+        // stored on Firebase Storage
+        image.firebaseId = getImageId();
+
         return image;
     }
 }
@@ -235,7 +235,7 @@ public class GuideViewModel extends BaseObservable {
             // Parse the StorageReference to a Uri
             return Uri.parse(FirebaseStorage.getInstance().getReference()
                     .child(IMAGE_PATH)
-                    .child(mGuide.firebaseId + JPEG_EXT).toString());
+                    .child(mGuide.getImageId() + JPEG_EXT).toString());
         }
     }
 
@@ -465,8 +465,9 @@ public class GuideViewModel extends BaseObservable {
 
         boolean moveCamera = mSavedInstanceState == null;
 
-        // Parse the GPX File to get the Mapbox PolyLine and Marker
-        addMapOptionsToMap(gpx, mMapboxMap, moveCamera);
+        // Parse the GPX File to get the Mapbox PolyLine and Marker. Nothing else on this map
+        // listens for the camera, so the returned listener can take the MapboxMap's only slot.
+        mMapboxMap.setOnCameraIdleListener(addMapOptionsToMap(gpx, mMapboxMap, moveCamera));
     }
 
     @BindingAdapter({"gpx", "context"})
@@ -3,6 +3,8 @@ package project.sherpa.models.viewmodels;
 import android.databinding.BaseObservable;
 import android.databinding.Bindable;
 import android.databinding.BindingAdapter;
+import android.text.format.Formatter;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import project.sherpa.BR;
@@ -17,6 +19,8 @@ public class PublishViewModel extends BaseObservable {
     // ** Member Variables ** //
     private int mTotalUploads;
     private int mCurrentUpload = 1;
+    private long mBytesTransferred;
+    private long mTotalBytes;
 
     @Bindable
     public int getTotalUploads() {
@@ -40,10 +44,52 @@ public class PublishViewModel extends BaseObservable {
         notifyPropertyChanged(BR.currentUpload);
     }
 
-    @BindingAdapter({"currentUpload", "totalUploads"})
-    public static void updateTextProgress(TextView textView, int currentUpload, int totalUploads) {
-        String uploadProgress = textView.getContext().getString(R.string.publish_progress_text, currentUpload, totalUploads);
+    @Bindable
+    public long getBytesTransferred() {
+        return mBytesTransferred;
+    }
+
+    public void setBytesTransferred(long bytesTransferred) {
+        mBytesTransferred = bytesTransferred;
+
+        notifyPropertyChanged(BR.bytesTransferred);
+    }
+
+    @Bindable
+    public long getTotalBytes() {
+        return mTotalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        mTotalBytes = totalBytes;
+
+        notifyPropertyChanged(BR.totalBytes);
+    }
+
+    @BindingAdapter({"currentUpload", "totalUploads", "bytesTransferred", "totalBytes"})
+    public static void updateTextProgress(TextView textView, int currentUpload, int totalUploads,
+                                          long bytesTransferred, long totalBytes) {
+
+        String uploadProgress = textView.getContext().getString(R.string.publish_progress_text,
+                currentUpload,
+                totalUploads,
+                Formatter.formatShortFileSize(textView.getContext(), bytesTransferred),
+                Formatter.formatShortFileSize(textView.getContext(), totalBytes));
 
         textView.setText(uploadProgress);
     }
+
+    @BindingAdapter({"bytesTransferred", "totalBytes"})
+    public static void updateProgressBar(ProgressBar progressBar, long bytesTransferred, long totalBytes) {
+
+        // Show indeterminate progress until the size of the uploads is known
+        if (totalBytes == 0) {
+            progressBar.setIndeterminate(true);
+            return;
+        }
+
+        progressBar.setIndeterminate(false);
+        progressBar.setMax(100);
+        progressBar.setProgress((int) (bytesTransferred * 100 / totalBytes));
+    }
 }
@@ -79,7 +79,7 @@ public class SectionViewModel extends BaseObservable {
             // Parse the StorageReference to a Uri
             return Uri.parse(FirebaseStorage.getInstance().getReference()
                     .child(IMAGE_PATH)
-                    .child(mSection.firebaseId + JPEG_EXT).toString());
+                    .child(mSection.getImageId() + JPEG_EXT).toString());
         }
     }
 
@@ -3,19 +3,32 @@ package project.sherpa.prefs;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Bundle;
 import android.preference.ListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceActivity;
+import android.preference.PreferenceCategory;
 import android.support.v7.app.ActionBar;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
 import android.view.MenuItem;
 import android.support.v4.app.NavUtils;
 
+import project.sherpa.BuildConfig;
 import project.sherpa.R;
+import project.sherpa.models.datamodels.Guide;
+import project.sherpa.services.offlinesync.FavoritesSyncService;
+import project.sherpa.utilities.ContentProviderUtils;
+import project.sherpa.utilities.DataCache;
+import project.sherpa.utilities.MapUtils;
+import project.sherpa.utilities.OfflineStorageUtils;
+import project.sherpa.utilities.objects.OfflineGuideStorage;
+
 import java.util.List;
 
 /**
@@ -80,6 +93,11 @@ public class SettingsActivity extends AppCompatPreferenceActivity {
     @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     public void onBuildHeaders(List<Header> target) {
         loadHeadersFromResource(R.xml.pref_headers, target);
+
+        // Only show the debug screen in debug builds
+        if (BuildConfig.DEBUG) {
+            loadHeadersFromResource(R.xml.pref_headers_debug, target);
+        }
     }
 
     /**
@@ -139,7 +157,9 @@ public class SettingsActivity extends AppCompatPreferenceActivity {
      */
     protected boolean isValidFragment(String fragmentName) {
         return PreferenceFragment.class.getName().equals(fragmentName)
-                || GeneralPreferenceFragment.class.getName().equals(fragmentName);
+                || GeneralPreferenceFragment.class.getName().equals(fragmentName)
+                || StoragePreferenceFragment.class.getName().equals(fragmentName)
+                || (BuildConfig.DEBUG && DebugPreferenceFragment.class.getName().equals(fragmentName));
     }
 
     /**
@@ -159,6 +179,226 @@ public class SettingsActivity extends AppCompatPreferenceActivity {
             // updated to reflect the new value, per the Android Design
             // guidelines.
             bindPreferenceSummaryToValue(findPreference(getString(R.string.pref_units_key)));
+
+            Preference syncPreference = findPreference(getString(R.string.pref_sync_favorites_key));
+
+            if (!FavoritesSyncService.isSupported()) {
+
+                // Syncing in the background requires JobScheduler
+                getPreferenceScreen().removePreference(syncPreference);
+            } else {
+
+                // Schedule or cancel the sync job when the preference changes
+                syncPreference.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+                    @Override
+                    public boolean onPreferenceChange(Preference preference, Object newValue) {
+                        FavoritesSyncService.setScheduled(preference.getContext(), (Boolean) newValue);
+                        return true;
+                    }
+                });
+            }
+        }
+
+        @Override
+        public boolean onOptionsItemSelected(MenuItem item) {
+            int id = item.getItemId();
+            if (id == android.R.id.home) {
+                startActivity(new Intent(getActivity(), SettingsActivity.class));
+                return true;
+            }
+            return super.onOptionsItemSelected(item);
+        }
+    }
+
+    /**
+     * This fragment shows the storage used by the Guides saved for offline use and allows the
+     * user to set the budget they are limited to.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public static class StoragePreferenceFragment extends PreferenceFragment
+            implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+        @Override
+        public void onCreate(Bundle savedInstanceState) {
+            super.onCreate(savedInstanceState);
+            addPreferencesFromResource(R.xml.pref_storage);
+            setHasOptionsMenu(true);
+
+            bindPreferenceSummaryToValue(findPreference(getString(R.string.pref_offline_budget_key)));
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+
+            getPreferenceManager().getSharedPreferences().registerOnSharedPreferenceChangeListener(this);
+
+            bindStorage();
+
+            // Re-measure the map tiles as their share changes when other Guides are saved or deleted
+            for (OfflineGuideStorage storage : OfflineStorageUtils.getOfflineGuides(getActivity())) {
+                OfflineStorageUtils.measureMapSize(getActivity(), storage.guideId, new MapUtils.MapboxSizeCallback() {
+                    @Override
+                    public void onSizeReady(long bytes) {
+                        if (isAdded()) bindStorage();
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onPause() {
+            super.onPause();
+
+            getPreferenceManager().getSharedPreferences().unregisterOnSharedPreferenceChangeListener(this);
+        }
+
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+
+            // Evict Guides immediately if the budget was lowered
+            if (key.equals(getString(R.string.pref_offline_budget_key))) {
+                OfflineStorageUtils.evictIfNeeded(getActivity(), null);
+                bindStorage();
+            }
+        }
+
+        /**
+         * Populates the total storage used and a Preference for each saved Guide showing its size
+         * and when it was last opened
+         */
+        private void bindStorage() {
+
+            Context context = getActivity();
+
+            List<OfflineGuideStorage> guides = OfflineStorageUtils.getOfflineGuides(context);
+
+            // Show the total used against the budget
+            long usage = 0;
+
+            for (OfflineGuideStorage storage : guides) {
+                usage += storage.getSize();
+            }
+
+            long budget = OfflineStorageUtils.getBudget(context);
+            Preference usagePreference = findPreference(getString(R.string.pref_storage_usage_key));
+
+            usagePreference.setSummary(budget == Long.MAX_VALUE
+                    ? Formatter.formatShortFileSize(context, usage)
+                    : getString(R.string.pref_storage_usage_summary,
+                            Formatter.formatShortFileSize(context, usage),
+                            Formatter.formatShortFileSize(context, budget)));
+
+            PreferenceCategory category =
+                    (PreferenceCategory) findPreference(getString(R.string.pref_storage_guides_key));
+
+            category.removeAll();
+
+            // Show the most recently opened Guides first
+            for (int i = guides.size() - 1; i >= 0; i--) {
+
+                OfflineGuideStorage storage = guides.get(i);
+                Guide guide = ContentProviderUtils.getGuideFromDatabase(context, storage.guideId);
+
+                if (guide == null) continue;
+
+                String size = Formatter.formatShortFileSize(context, storage.getSize());
+                String summary;
+
+                if (guide.isFavorite()) {
+                    summary = getString(R.string.pref_storage_guide_favorite, size);
+                } else if (storage.lastAccessed == 0) {
+                    summary = getString(R.string.pref_storage_guide_never_opened, size);
+                } else {
+                    summary = getString(R.string.pref_storage_guide_summary,
+                            size,
+                            DateUtils.getRelativeTimeSpanString(storage.lastAccessed));
+                }
+
+                Preference preference = new Preference(context);
+                preference.setTitle(guide.trailName);
+                preference.setSummary(summary);
+                preference.setSelectable(false);
+
+                category.addPreference(preference);
+            }
+        }
+
+        @Override
+        public boolean onOptionsItemSelected(MenuItem item) {
+            int id = item.getItemId();
+            if (id == android.R.id.home) {
+                startActivity(new Intent(getActivity(), SettingsActivity.class));
+                return true;
+            }
+            return super.onOptionsItemSelected(item);
+        }
+    }
+
+    /**
+     * This fragment shows the DataCache's hit, miss, load, and eviction counters for each type of
+     * model. It is only available in debug builds.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public static class DebugPreferenceFragment extends PreferenceFragment {
+        @Override
+        public void onCreate(Bundle savedInstanceState) {
+            super.onCreate(savedInstanceState);
+            addPreferencesFromResource(R.xml.pref_debug);
+            setHasOptionsMenu(true);
+
+            // Reset the counters when the reset Preference is clicked
+            findPreference(getString(R.string.pref_cache_reset_key))
+                    .setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+                        @Override
+                        public boolean onPreferenceClick(Preference preference) {
+                            DataCache.getInstance().resetStats();
+                            bindCacheStats();
+                            return true;
+                        }
+                    });
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+
+            // Refresh the counters every time the screen is shown
+            bindCacheStats();
+        }
+
+        /**
+         * Populates the DataCache category with a Preference for the CacheStats of each type of
+         * model
+         */
+        private void bindCacheStats() {
+
+            PreferenceCategory category =
+                    (PreferenceCategory) findPreference(getString(R.string.pref_cache_stats_key));
+
+            category.removeAll();
+
+            for (DataCache.CacheStats stats : DataCache.getInstance().getStats()) {
+                Preference preference = new Preference(getActivity());
+                preference.setTitle(stats.getName());
+                preference.setSummary(getString(R.string.pref_cache_stats_summary,
+                        stats.getHits(),
+                        stats.getHitRate() * 100,
+                        stats.getMisses(),
+                        stats.getLoads(),
+                        stats.getEvictions(),
+                        stats.getBytes() / 1024,
+                        stats.getMaxBytes() / 1024));
+
+                category.addPreference(preference);
+            }
+
+            // Add the misses that couldn't be attributed to a type
+            Preference unresolved = new Preference(getActivity());
+            unresolved.setTitle(R.string.pref_cache_unresolved_title);
+            unresolved.setSummary(String.valueOf(DataCache.getInstance().getUnresolvedMisses()));
+
+            category.addPreference(unresolved);
         }
 
         @Override
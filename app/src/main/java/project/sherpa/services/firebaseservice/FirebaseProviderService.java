@@ -40,6 +40,9 @@ public class FirebaseProviderService extends Service {
     private Map<String, SmartQueryValueListener> mSmartQueryMap = new HashMap<>();
     private Map<SmartQueryValueListener, List<QueryChangeListener>> mQueryListenerMap = new HashMap<>();
 
+    private Map<String, SmartQueryChildListener> mSmartChildQueryMap = new HashMap<>();
+    private Map<SmartQueryChildListener, List<QueryChangeListener>> mChildQueryListenerMap = new HashMap<>();
+
     private Handler mCleanUpHandler = new Handler();
 
     @Nullable
@@ -149,6 +152,11 @@ public class FirebaseProviderService extends Service {
      */
     public synchronized void registerQueryChangeListener(QueryChangeListener queryChangeListener) {
 
+        if (queryChangeListener.isIncremental()) {
+            registerIncrementalQueryChangeListener(queryChangeListener);
+            return;
+        }
+
         // Get the corresponding SmartQueryValueListener from mSmartQueryMap
         SmartQueryValueListener smartQueryValueListener = mSmartQueryMap.get(queryChangeListener.getQueryKey());
 
@@ -191,8 +199,96 @@ public class FirebaseProviderService extends Service {
         }
     }
 
+    /**
+     * Registers a QueryChangeListener to be notified of each change to the results of its Query.
+     * If the SmartQueryChildListener for the Query does not exist, then it is started.
+     *
+     * @param queryChangeListener    The QueryChangeListener to register for changes in data
+     */
+    private void registerIncrementalQueryChangeListener(QueryChangeListener queryChangeListener) {
+
+        // Get the corresponding SmartQueryChildListener from mSmartChildQueryMap
+        SmartQueryChildListener smartQueryChildListener = mSmartChildQueryMap.get(queryChangeListener.getQueryKey());
+
+        if (smartQueryChildListener == null) {
+
+            Timber.d("Starting SmartQueryChildListener for: " + queryChangeListener.getQueryKey());
+
+            // SmartQueryChildListener is not in mSmartChildQueryMap, init it and put it in
+            smartQueryChildListener = new SmartQueryChildListener(
+                    queryChangeListener.getType(),
+                    queryChangeListener.getQuery()) {
+
+                @Override
+                public void onQueryChanged(BaseModel[] models) {
+                    for (QueryChangeListener listener : mChildQueryListenerMap.get(this)) {
+                        listener.updateModels(models);
+                    }
+                }
+
+                @Override
+                public void onModelAdded(BaseModel model, int index) {
+                    for (QueryChangeListener listener : mChildQueryListenerMap.get(this)) {
+                        listener.onModelAdded(model, index);
+                    }
+                }
+
+                @Override
+                public void onModelChanged(BaseModel model, int index) {
+                    for (QueryChangeListener listener : mChildQueryListenerMap.get(this)) {
+                        listener.onModelChanged(model, index);
+                    }
+                }
+
+                @Override
+                public void onModelRemoved(BaseModel model, int index) {
+                    for (QueryChangeListener listener : mChildQueryListenerMap.get(this)) {
+                        listener.onModelRemoved(model, index);
+                    }
+                }
+
+                @Override
+                public void onModelMoved(BaseModel model, int fromIndex, int toIndex) {
+                    for (QueryChangeListener listener : mChildQueryListenerMap.get(this)) {
+                        listener.onModelMoved(model, fromIndex, toIndex);
+                    }
+                }
+            };
+
+            // Init the List before listening so it is ready for the first delivery
+            mChildQueryListenerMap.put(smartQueryChildListener, new ArrayList<QueryChangeListener>());
+
+            // Start listening for changes
+            smartQueryChildListener.start();
+            mSmartChildQueryMap.put(queryChangeListener.getQueryKey(), smartQueryChildListener);
+        }
+
+        // Add the QueryChangeListener to the List of attached QueryChangeListeners
+        if (!mChildQueryListenerMap.get(smartQueryChildListener).contains(queryChangeListener)) {
+            mChildQueryListenerMap.get(smartQueryChildListener).add(queryChangeListener);
+        }
+
+        // Return the current results if the initial data has already loaded. Changes after this
+        // are delivered individually.
+        if (smartQueryChildListener.getData() != null) {
+            queryChangeListener.updateModels(smartQueryChildListener.getData());
+        }
+    }
+
     public void unregisterQueryChangeListener(QueryChangeListener queryChangeListener) {
 
+        if (queryChangeListener.isIncremental()) {
+            SmartQueryChildListener smartQueryChildListener = mSmartChildQueryMap.get(queryChangeListener.getQueryKey());
+            List<QueryChangeListener> childListenerList = mChildQueryListenerMap.get(smartQueryChildListener);
+
+            if (childListenerList != null) {
+                childListenerList.remove(queryChangeListener);
+            }
+
+            cleanUp();
+            return;
+        }
+
         SmartQueryValueListener smartQueryValueListener = mSmartQueryMap.get(queryChangeListener.getQueryKey());
         List<QueryChangeListener> queryListenerList = mQueryListenerMap.get(smartQueryValueListener);
 
@@ -260,6 +356,23 @@ public class FirebaseProviderService extends Service {
                         Timber.d("Stopped SmartQueryValueListener: " + queryKey);
                     }
                 }
+
+                // Iterate through each SmartQueryChildListener and stop any that don't have any
+                // registered QueryChangeListeners attached to it
+                keyList = new ArrayList<>(mSmartChildQueryMap.keySet());
+
+                for (String queryKey : keyList) {
+
+                    SmartQueryChildListener listener = mSmartChildQueryMap.get(queryKey);
+
+                    if (mChildQueryListenerMap.get(listener).size() == 0) {
+                        listener.stop();
+                        mChildQueryListenerMap.remove(listener);
+                        mSmartChildQueryMap.remove(queryKey);
+
+                        Timber.d("Stopped SmartQueryChildListener: " + queryKey);
+                    }
+                }
             }
         }, DELAY);
     }
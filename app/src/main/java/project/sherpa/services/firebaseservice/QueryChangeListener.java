@@ -17,12 +17,30 @@ public abstract class QueryChangeListener<T extends BaseModel> {
     private final int mType;
     private final Query mQuery;
     private final String mQueryKey;
+    private final boolean mIncremental;
     private T[] mModels;
 
     public QueryChangeListener(@FirebaseProviderUtils.FirebaseType int type, Query query, String queryKey) {
+        this(type, query, queryKey, false);
+    }
+
+    /**
+     * Creates a QueryChangeListener that can receive each change to the results of the Query
+     * individually
+     *
+     * @param type           The FirebaseType of the data returned by the Query
+     * @param query          The Query to observe
+     * @param queryKey       Key used to share the connection to the Query with other listeners
+     * @param incremental    True to be notified of each added, changed, removed, and moved item
+     *                       after the initial results have been delivered. False to have the
+     *                       entire result set delivered to onQueryChanged() on every change.
+     */
+    public QueryChangeListener(@FirebaseProviderUtils.FirebaseType int type, Query query, String queryKey,
+                               boolean incremental) {
         mType = type;
         mQuery = query;
         mQueryKey = queryKey;
+        mIncremental = incremental;
     }
 
     /**
@@ -43,6 +61,51 @@ public abstract class QueryChangeListener<T extends BaseModel> {
      */
     public abstract void onQueryChanged(T[] models);
 
+    /**
+     * Called for an incremental QueryChangeListener when an item is added to the results of the
+     * Query
+     *
+     * @param model    The BaseModel that was added
+     * @param index    Position of the BaseModel in the results
+     */
+    public void onModelAdded(T model, int index) {
+
+    }
+
+    /**
+     * Called for an incremental QueryChangeListener when an item in the results of the Query
+     * changes
+     *
+     * @param model    BaseModel with the new values
+     * @param index    Position of the BaseModel in the results
+     */
+    public void onModelChanged(T model, int index) {
+
+    }
+
+    /**
+     * Called for an incremental QueryChangeListener when an item is removed from the results of
+     * the Query
+     *
+     * @param model    The BaseModel that was removed
+     * @param index    Position the BaseModel was removed from
+     */
+    public void onModelRemoved(T model, int index) {
+
+    }
+
+    /**
+     * Called for an incremental QueryChangeListener when an item changes position in the results
+     * of the Query
+     *
+     * @param model        The BaseModel that was moved
+     * @param fromIndex    Previous position of the BaseModel
+     * @param toIndex      New position of the BaseModel
+     */
+    public void onModelMoved(T model, int fromIndex, int toIndex) {
+
+    }
+
     //********************************************************************************************//
     //*********************************** Getters & Setters **************************************//
     //********************************************************************************************//
@@ -56,6 +119,10 @@ public abstract class QueryChangeListener<T extends BaseModel> {
         return mQuery;
     }
 
+    public boolean isIncremental() {
+        return mIncremental;
+    }
+
     public String getQueryKey() {
         return mQuery.getRef() + "/" + mQueryKey;
     }
@@ -0,0 +1,262 @@
+package project.sherpa.services.firebaseservice;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import project.sherpa.models.datamodels.abstractmodels.BaseModel;
+import project.sherpa.utilities.DataCache;
+import project.sherpa.utilities.FirebaseProviderUtils;
+import timber.log.Timber;
+
+/**
+ * Listens for changes to the children returned by a Query and reports each change individually
+ * instead of re-delivering the entire result set. Only the child that changed is converted to a
+ * BaseModel and cached, so a single new item costs a single parse.
+ *
+ * The complete result set is delivered once through onQueryChanged() when the initial data has
+ * loaded. Every change after that is delivered as an addition, change, removal, or move along
+ * with its position in the Query's order.
+ *
+ * Children that can't be converted to a BaseModel are still tracked by their key so the position
+ * of every other child can be found from the previousChildName Firebase reports. They are left
+ * out of the results, and the positions reported only count the children that were converted.
+ */
+
+public abstract class SmartQueryChildListener<T extends BaseModel> implements ChildEventListener {
+
+    // ** Member Variables ** //
+    @FirebaseProviderUtils.FirebaseType
+    private int mType;
+    private Query mQuery;
+    private boolean mStarted;
+    private boolean mLoaded;
+
+    // The key of every child in the Query's order alongside its BaseModel, or null for children
+    // that could not be converted
+    private List<String> mKeys = new ArrayList<>();
+    private List<BaseModel> mModels = new ArrayList<>();
+
+    // Value events are raised after the child events for the same data, so this is notified once
+    // every child of the initial data has been added
+    private ValueEventListener mLoadListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(DataSnapshot dataSnapshot) {
+            mLoaded = true;
+
+            onQueryChanged((T[]) getData());
+        }
+
+        @Override
+        public void onCancelled(DatabaseError databaseError) {
+            Timber.d(databaseError.getMessage());
+        }
+    };
+
+    public SmartQueryChildListener(@FirebaseProviderUtils.FirebaseType int type, Query query) {
+        mType = type;
+        mQuery = query;
+    }
+
+    /**
+     * Starts listening for changes to the children of mQuery
+     */
+    public void start() {
+        if (!mStarted) {
+            mKeys.clear();
+            mModels.clear();
+            mLoaded = false;
+
+            mQuery.addChildEventListener(this);
+            mQuery.addListenerForSingleValueEvent(mLoadListener);
+            mStarted = true;
+        }
+    }
+
+    /**
+     * Stops listening for changes to the children of mQuery
+     */
+    public void stop() {
+        if (mStarted) {
+            mQuery.removeEventListener(this);
+            mQuery.removeEventListener(mLoadListener);
+            mStarted = false;
+        }
+    }
+
+    /**
+     * Returns the most updated data for this Listener
+     *
+     * @return An Array of BaseModels in the order returned by the Query or null if the initial
+     * data has not loaded yet
+     */
+    public BaseModel[] getData() {
+
+        if (!mLoaded) return null;
+
+        // Only return the children that were converted to BaseModels
+        List<BaseModel> modelList = new ArrayList<>();
+
+        for (BaseModel model : mModels) {
+            if (model != null) modelList.add(model);
+        }
+
+        return FirebaseProviderUtils.createModelArray(mType, modelList);
+    }
+
+    /**
+     * Returns the data retrieved at mQuery once the initial data has loaded
+     *
+     * @param models    An Array of BaseModels matching mType describing the data at mQuery
+     */
+    public abstract void onQueryChanged(T[] models);
+
+    /**
+     * Called when a child is added to the results of mQuery
+     *
+     * @param model    The BaseModel that was added
+     * @param index    Position of the BaseModel in the results
+     */
+    public abstract void onModelAdded(T model, int index);
+
+    /**
+     * Called when a child in the results of mQuery changes
+     *
+     * @param model    BaseModel with the new values
+     * @param index    Position of the BaseModel in the results
+     */
+    public abstract void onModelChanged(T model, int index);
+
+    /**
+     * Called when a child is removed from the results of mQuery
+     *
+     * @param model    The BaseModel that was removed
+     * @param index    Position the BaseModel was removed from
+     */
+    public abstract void onModelRemoved(T model, int index);
+
+    /**
+     * Called when a child changes position in the results of mQuery
+     *
+     * @param model        The BaseModel that was moved
+     * @param fromIndex    Previous position of the BaseModel
+     * @param toIndex      New position of the BaseModel
+     */
+    public abstract void onModelMoved(T model, int fromIndex, int toIndex);
+
+    @Override
+    public void onChildAdded(DataSnapshot dataSnapshot, String previousChildName) {
+
+        // Track the child even if it can't be converted so the children after it are positioned
+        // correctly
+        BaseModel model = FirebaseProviderUtils.getModelFromSnapshot(mType, dataSnapshot);
+        if (model != null) DataCache.getInstance().store(model);
+
+        int position = getPositionAfter(previousChildName);
+        mKeys.add(position, dataSnapshot.getKey());
+        mModels.add(position, model);
+
+        // Children of the initial data are delivered together once it has loaded
+        if (mLoaded && model != null) onModelAdded((T) model, getModelIndex(position));
+    }
+
+    @Override
+    public void onChildChanged(DataSnapshot dataSnapshot, String previousChildName) {
+
+        int position = mKeys.indexOf(dataSnapshot.getKey());
+        if (position == -1) return;
+
+        BaseModel oldModel = mModels.get(position);
+        BaseModel model = FirebaseProviderUtils.getModelFromSnapshot(mType, dataSnapshot);
+        if (model != null) DataCache.getInstance().store(model);
+
+        mModels.set(position, model);
+
+        if (!mLoaded) return;
+
+        int index = getModelIndex(position);
+
+        // A child that could not be converted before is added to the results once it can be and
+        // a child that can no longer be converted is removed from them
+        if (oldModel == null && model != null) {
+            onModelAdded((T) model, index);
+        } else if (oldModel != null && model == null) {
+            onModelRemoved((T) oldModel, index);
+        } else if (model != null) {
+            onModelChanged((T) model, index);
+        }
+    }
+
+    @Override
+    public void onChildRemoved(DataSnapshot dataSnapshot) {
+
+        int position = mKeys.indexOf(dataSnapshot.getKey());
+        if (position == -1) return;
+
+        int index = getModelIndex(position);
+
+        mKeys.remove(position);
+        BaseModel model = mModels.remove(position);
+
+        if (mLoaded && model != null) onModelRemoved((T) model, index);
+    }
+
+    @Override
+    public void onChildMoved(DataSnapshot dataSnapshot, String previousChildName) {
+
+        int fromPosition = mKeys.indexOf(dataSnapshot.getKey());
+        if (fromPosition == -1) return;
+
+        int fromIndex = getModelIndex(fromPosition);
+
+        String key = mKeys.remove(fromPosition);
+        BaseModel model = mModels.remove(fromPosition);
+
+        int toPosition = getPositionAfter(previousChildName);
+        mKeys.add(toPosition, key);
+        mModels.add(toPosition, model);
+
+        if (mLoaded && model != null) onModelMoved((T) model, fromIndex, getModelIndex(toPosition));
+    }
+
+    @Override
+    public void onCancelled(DatabaseError databaseError) {
+        Timber.d(databaseError.getMessage());
+    }
+
+    /**
+     * Finds the position a child should be inserted at in mKeys
+     *
+     * @param previousChildName    Key of the child that precedes it or null if it is first
+     * @return The position to insert the child at
+     */
+    private int getPositionAfter(String previousChildName) {
+
+        if (previousChildName == null) return 0;
+
+        return mKeys.indexOf(previousChildName) + 1;
+    }
+
+    /**
+     * Converts a position in mKeys to the index of its BaseModel in the results by skipping the
+     * children that could not be converted
+     *
+     * @param position    Position of the child in mKeys
+     * @return The index of the child's BaseModel in the results
+     */
+    private int getModelIndex(int position) {
+
+        int index = 0;
+
+        for (int i = 0; i < position; i++) {
+            if (mModels.get(i) != null) index++;
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,407 @@
+package project.sherpa.services.offlinesync;
+
+import android.annotation.TargetApi;
+import android.app.NotificationManager;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.support.v4.app.NotificationCompat;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import project.sherpa.R;
+import project.sherpa.models.datamodels.Author;
+import project.sherpa.models.datamodels.Guide;
+import project.sherpa.models.datamodels.Section;
+import project.sherpa.models.datamodels.abstractmodels.BaseModel;
+import project.sherpa.utilities.ContentProviderUtils;
+import project.sherpa.utilities.FirebaseProviderUtils;
+import project.sherpa.utilities.MapUtils;
+import project.sherpa.utilities.OfflineGuideManager;
+import project.sherpa.utilities.OfflineStorageUtils;
+import project.sherpa.utilities.OfflineUpdateUtils;
+
+import static project.sherpa.utilities.FirebaseProviderUtils.FirebaseType.AUTHOR;
+import static project.sherpa.utilities.FirebaseProviderUtils.FirebaseType.GUIDE;
+
+/**
+ * A JobService that saves all of the user's favorite Guides for offline use. The job only runs
+ * while the device is charging and connected to an unmetered network. The Guides, Sections, and
+ * Authors are retrieved from Firebase Database in batches and the Guides are then downloaded one
+ * at a time until they are all saved or the user's storage budget is reached. Progress is shown
+ * in a notification.
+ *
+ * Downloads interrupted when the job is stopped are resumed from their checkpoint the next time
+ * the job runs. Once the favorites are saved, every Guide already saved offline is checked for
+ * updates.
+ */
+
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class FavoritesSyncService extends JobService {
+
+    // ** Constants ** //
+    private static final int JOB_ID             = 4810;
+    private static final int NOTIFICATION_ID    = 4811;
+    private static final long SYNC_INTERVAL     = TimeUnit.HOURS.toMillis(12);
+
+    // ** Member Variables ** //
+    private JobParameters mParams;
+    private NotificationCompat.Builder mBuilder;
+    private List<OfflineGuideManager> mQueue = new LinkedList<>();
+    private OfflineGuideManager mActiveManager;
+    private int mGuideCount;
+    private int mCompletedCount;
+    private int mSavedCount;
+    private int mUpdatedCount;
+    private boolean mStopped;
+
+    /**
+     * Checks whether the device supports syncing favorites in the background
+     *
+     * @return True if JobScheduler is available. False otherwise.
+     */
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+    }
+
+    /**
+     * Schedules or cancels the job to match the user's preference
+     *
+     * @param context    Interface to global Context
+     */
+    public static void updateSchedule(Context context) {
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        setScheduled(context, prefs.getBoolean(context.getString(R.string.pref_sync_favorites_key), false));
+    }
+
+    /**
+     * Schedules or cancels the job
+     *
+     * @param context    Interface to global Context
+     * @param enabled    Whether the job should be scheduled
+     */
+    public static void setScheduled(Context context, boolean enabled) {
+
+        if (!isSupported()) return;
+
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+
+        if (!enabled) {
+            scheduler.cancel(JOB_ID);
+            return;
+        }
+
+        // Only sync while charging on an unmetered network
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID, new ComponentName(context, FavoritesSyncService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(SYNC_INTERVAL)
+                .setPersisted(true)
+                .build();
+
+        scheduler.schedule(jobInfo);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+
+        // Favorites are only stored on Firebase for logged in users
+        if (user == null) return false;
+
+        mParams = params;
+        mStopped = false;
+        mQueue.clear();
+        mGuideCount = 0;
+        mCompletedCount = 0;
+        mSavedCount = 0;
+        mUpdatedCount = 0;
+
+        showProgress(0);
+        loadFavorites(user.getUid());
+
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+
+        // Stop the Guide currently downloading so it isn't downloaded twice when the job is
+        // rescheduled. It keeps its checkpoint so the next job can resume it.
+        mStopped = true;
+
+        if (mActiveManager != null) {
+            mActiveManager.stop();
+            mActiveManager = null;
+        }
+
+        getNotificationManager().cancel(NOTIFICATION_ID);
+
+        return true;
+    }
+
+    /**
+     * Retrieves the user's favorite Guides that have not yet been saved offline
+     *
+     * @param userId    FirebaseId of the user
+     */
+    private void loadFavorites(String userId) {
+
+        // Always retrieve the Author from Firebase so the favorites are current
+        FirebaseProviderUtils.getModel(AUTHOR, userId, new FirebaseProviderUtils.FirebaseListener() {
+            @Override
+            public void onModelReady(BaseModel model) {
+
+                if (mStopped) return;
+
+                Author user = (Author) model;
+
+                if (user == null || user.favorites == null) {
+                    updateCachedGuides();
+                    return;
+                }
+
+                List<String> guideIds = new ArrayList<>();
+
+                for (String guideId : user.favorites.keySet()) {
+
+                    Guide guide = new Guide();
+                    guide.firebaseId = guideId;
+
+                    if (!ContentProviderUtils.isGuideCachedInDatabase(FavoritesSyncService.this, guide)) {
+                        guideIds.add(guideId);
+                    }
+                }
+
+                loadGuides(guideIds);
+            }
+        });
+    }
+
+    /**
+     * Retrieves the Guides, their Sections, and their Authors in batches and queues them to be
+     * saved offline
+     *
+     * @param guideIds    FirebaseIds of the Guides to save
+     */
+    private void loadGuides(final List<String> guideIds) {
+
+        FirebaseProviderUtils.getModels(GUIDE, guideIds, new FirebaseProviderUtils.FirebaseArrayListener() {
+            @Override
+            public void onModelsReady(BaseModel[] models) {
+
+                if (mStopped) return;
+
+                final List<Guide> guides = new ArrayList<>();
+                Set<String> authorIds = new HashSet<>();
+
+                for (BaseModel model : models) {
+                    Guide guide = (Guide) model;
+
+                    guides.add(guide);
+                    authorIds.add(guide.authorId);
+                }
+
+                loadSectionsAndAuthors(guides, authorIds);
+            }
+        });
+    }
+
+    /**
+     * Retrieves the Sections and Authors for the Guides and queues the Guides to be saved
+     *
+     * @param guides       Guides to save
+     * @param authorIds    FirebaseIds of the Authors of the Guides
+     */
+    private void loadSectionsAndAuthors(final List<Guide> guides, final Set<String> authorIds) {
+
+        List<String> guideIds = new ArrayList<>();
+
+        for (Guide guide : guides) {
+            guideIds.add(guide.firebaseId);
+        }
+
+        FirebaseProviderUtils.getSectionsForGuides(guideIds, new FirebaseProviderUtils.FirebaseSectionsListener() {
+            @Override
+            public void onSectionsReady(final Map<String, Section[]> sections) {
+
+                if (mStopped) return;
+
+                FirebaseProviderUtils.getModels(AUTHOR, authorIds, new FirebaseProviderUtils.FirebaseArrayListener() {
+                    @Override
+                    public void onModelsReady(BaseModel[] models) {
+
+                        if (mStopped) return;
+
+                        for (Guide guide : guides) {
+
+                            Author author = null;
+
+                            for (BaseModel model : models) {
+                                if (model.firebaseId.equals(guide.authorId)) {
+                                    author = (Author) model;
+                                    break;
+                                }
+                            }
+
+                            // Skip any Guide whose Author couldn't be retrieved
+                            if (author == null) continue;
+
+                            // Skip any Guide whose Sections couldn't be retrieved so it isn't
+                            // saved without them. It is picked up again by the next sync.
+                            Section[] guideSections = sections.get(guide.firebaseId);
+                            if (guideSections == null) continue;
+
+                            // Keep the favorite status when the Guide is saved to the database
+                            guide.setFavorite(true);
+
+                            mQueue.add(new OfflineGuideManager(guide, guideSections, author));
+                        }
+
+                        mGuideCount = mQueue.size();
+                        syncNextGuide();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Saves the next Guide in the queue
+     */
+    private void syncNextGuide() {
+
+        if (mStopped) return;
+
+        // Stop once every Guide is saved or the storage budget has been used up
+        if (mQueue.isEmpty() || !OfflineStorageUtils.hasSpaceFor(this, 0)) {
+            updateCachedGuides();
+            return;
+        }
+
+        showProgress(0);
+
+        OfflineGuideManager manager = mQueue.remove(0);
+        mActiveManager = manager;
+
+        manager.cacheInBackground(this, new MapUtils.MapboxDownloadCallback() {
+            @Override
+            public void onDownloadComplete() {
+                mSavedCount++;
+                mCompletedCount++;
+
+                syncNextGuide();
+            }
+
+            @Override
+            public void onUpdateProgress(double progress) {
+                if (!mStopped) showProgress(progress);
+            }
+
+            @Override
+            public void onDownloadCancelled() {
+
+                // Move on to the next Guide
+                mCompletedCount++;
+
+                syncNextGuide();
+            }
+        });
+    }
+
+    /**
+     * Updates the Guides already saved offline that have changed since they were saved and then
+     * finishes the job
+     */
+    private void updateCachedGuides() {
+
+        OfflineUpdateUtils.checkForUpdates(this, new OfflineUpdateUtils.UpdateListener() {
+            @Override
+            public void onUpdatesComplete(int updatedCount) {
+
+                if (mStopped) return;
+
+                mUpdatedCount = updatedCount;
+                finish();
+            }
+        });
+    }
+
+    /**
+     * Shows the progress of the sync in the notification
+     *
+     * @param guideProgress    Progress of the Guide currently being saved, out of 100
+     */
+    private void showProgress(double guideProgress) {
+
+        if (mBuilder == null) {
+            mBuilder = new NotificationCompat.Builder(this)
+                    .setSmallIcon(R.drawable.ic_save)
+                    .setContentTitle(getString(R.string.notification_sync_title))
+                    .setOngoing(true)
+                    .setOnlyAlertOnce(true);
+        }
+
+        if (mGuideCount == 0) {
+
+            // Still retrieving the favorites
+            mBuilder.setProgress(0, 0, true);
+        } else {
+            int progress = (int) ((mCompletedCount + guideProgress / 100) * 100 / mGuideCount);
+
+            mBuilder.setProgress(100, progress, false)
+                    .setContentText(getString(R.string.notification_sync_progress,
+                            Math.min(mCompletedCount + 1, mGuideCount),
+                            mGuideCount));
+        }
+
+        getNotificationManager().notify(NOTIFICATION_ID, mBuilder.build());
+    }
+
+    /**
+     * Replaces the progress notification with a summary and finishes the job
+     */
+    private void finish() {
+
+        NotificationManager manager = getNotificationManager();
+
+        if (mSavedCount > 0 || mUpdatedCount > 0) {
+            String text = mSavedCount > 0
+                    ? getString(R.string.notification_sync_complete, mSavedCount)
+                    : getString(R.string.notification_sync_updated, mUpdatedCount);
+
+            NotificationCompat.Builder builder = new NotificationCompat.Builder(this)
+                    .setSmallIcon(R.drawable.ic_save)
+                    .setContentTitle(getString(R.string.notification_sync_title))
+                    .setContentText(text)
+                    .setAutoCancel(true);
+
+            manager.notify(NOTIFICATION_ID, builder.build());
+        } else {
+            manager.cancel(NOTIFICATION_ID);
+        }
+
+        jobFinished(mParams, false);
+    }
+
+    private NotificationManager getNotificationManager() {
+        return (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+    }
+}
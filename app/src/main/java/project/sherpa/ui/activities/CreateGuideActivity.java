@@ -188,6 +188,16 @@ public class CreateGuideActivity extends MapboxActivity implements ConnectivityA
         mPublishMenuItem.setVisible(false);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // The data no longer needs to be restored once the Activity is finished
+        if (isFinishing()) {
+            unpinData();
+        }
+    }
+
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -249,7 +259,7 @@ public class CreateGuideActivity extends MapboxActivity implements ConnectivityA
                         Guide guide = (Guide) mModelList.get(0);
 
                         // Set the gpxUri for the Guide based on the File at the selected path
-                        guide.setGpxUri(new File(filePath));
+                        guide.setGpxUri(this, new File(filePath));
 
                         EditGuideDetailsAdapter.EditViewHolder viewHolder =
                                 ((EditGuideDetailsAdapter.EditViewHolder)mBinding.guideDetailsRv.findViewHolderForAdapterPosition(0));
@@ -984,7 +994,8 @@ public class CreateGuideActivity extends MapboxActivity implements ConnectivityA
     }
 
     /**
-     * Stores the data to be published in the DataCache
+     * Stores the data to be published in the DataCache. The data is pinned so it remains
+     * available to the PublishActivity and to this Activity if it is re-created.
      */
     private void cacheData() {
 
@@ -1001,7 +1012,7 @@ public class CreateGuideActivity extends MapboxActivity implements ConnectivityA
                 section.guideId = mGuide.firebaseId;
             }
 
-            DataCache.getInstance().store(mSections);
+            DataCache.getInstance().pin(mSections);
         }
 
         if (mTrail.firebaseId == null) {
@@ -1013,10 +1024,24 @@ public class CreateGuideActivity extends MapboxActivity implements ConnectivityA
         }
 
         // Cache the data
-        DataCache.getInstance().store(mGuide);
-        DataCache.getInstance().store(mTrail);
-        DataCache.getInstance().store(mArea);
-        DataCache.getInstance().store(mAuthor);
+        DataCache.getInstance().pin(mGuide);
+        DataCache.getInstance().pin(mTrail);
+        DataCache.getInstance().pin(mArea);
+        DataCache.getInstance().pin(mAuthor);
+    }
+
+    /**
+     * Releases the data pinned in the DataCache by cacheData()
+     */
+    private void unpinData() {
+        if (mGuide != null) {
+            DataCache.getInstance().unpin(mGuide.firebaseId);
+            DataCache.getInstance().unpinSections(mGuide.firebaseId);
+        }
+
+        if (mTrail != null) DataCache.getInstance().unpin(mTrail.firebaseId);
+        if (mArea != null) DataCache.getInstance().unpin(mArea.firebaseId);
+        if (mAuthor != null) DataCache.getInstance().unpin(mAuthor.firebaseId);
     }
 
     @Override
@@ -2,19 +2,14 @@ package project.sherpa.ui.activities;
 
 import android.content.Intent;
 import android.databinding.DataBindingUtil;
-import android.net.Uri;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.widget.Toast;
 
-import com.firebase.geofire.GeoFire;
-import com.firebase.geofire.GeoLocation;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
+import com.google.firebase.database.ServerValue;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 
 import java.util.ArrayList;
@@ -25,6 +20,7 @@ import java.util.Map;
 import project.sherpa.R;
 import project.sherpa.databinding.ActivityPublishBinding;
 import project.sherpa.files.abstractfiles.BaseFile;
+import project.sherpa.firebasedatabase.DatabaseProvider;
 import project.sherpa.models.datamodels.Area;
 import project.sherpa.models.datamodels.Author;
 import project.sherpa.models.datamodels.Guide;
@@ -38,6 +34,7 @@ import project.sherpa.utilities.ContentProviderUtils;
 import project.sherpa.utilities.DataCache;
 import project.sherpa.utilities.FirebaseProviderUtils;
 import project.sherpa.utilities.GpxUtils;
+import project.sherpa.utilities.PublishJob;
 import project.sherpa.utilities.SaveUtils;
 import timber.log.Timber;
 
@@ -45,7 +42,6 @@ import static project.sherpa.utilities.Constants.IntentKeys.AREA_KEY;
 import static project.sherpa.utilities.Constants.IntentKeys.AUTHOR_KEY;
 import static project.sherpa.utilities.Constants.IntentKeys.GUIDE_KEY;
 import static project.sherpa.utilities.Constants.IntentKeys.TRAIL_KEY;
-import static project.sherpa.utilities.FirebaseProviderUtils.getReferenceForFile;
 
 /**
  * Created by Alvin on 8/3/2017.
@@ -67,8 +63,7 @@ public class PublishActivity extends MapboxActivity implements ConnectivityActiv
     private Area mDeleteArea;
     private Trail mDeleteTrail;
 
-    private List<StorageReference> mUploadReferenceList;
-    private UploadListener mUploadListener;
+    private PublishJob mPublishJob;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -111,45 +106,114 @@ public class PublishActivity extends MapboxActivity implements ConnectivityActiv
     @Override
     public void onConnected() {
 
-        if (mUploadListener == null) {
+        if (mPublishJob == null) {
             // Resize any images associated with the models
             resizeImages();
 
-            mUploadListener = new UploadListener(getChildUpdates());
+            // Collect the records and the Files they reference into a single job so that nothing
+            // is written to Firebase Database unless every File has been uploaded
+            List<BaseFile> files = new ArrayList<>();
+            Map<String, Object> childUpdates = getChildUpdates(files);
+
+            mPublishJob = new PublishJob(this, childUpdates, files);
+            mPublishJob.setProgressListener(new PublishJob.ProgressListener() {
+                @Override
+                public void onUpdateProgress(int completedFiles, long bytesTransferred) {
+                    mViewModel.setCurrentUpload(Math.min(completedFiles + 1, mViewModel.getTotalUploads()));
+                    mViewModel.setBytesTransferred(bytesTransferred);
+                }
+            });
+
+            mViewModel.setTotalUploads(mPublishJob.getFileCount());
+            mViewModel.setTotalBytes(mPublishJob.getTotalBytes());
+
+            mPublishJob.start()
+                    .addOnSuccessListener(new OnSuccessListener<Void>() {
+                        @Override
+                        public void onSuccess(Void aVoid) {
+                            onPublished();
+                        }
+                    })
+                    .addOnFailureListener(new OnFailureListener() {
+                        @Override
+                        public void onFailure(@NonNull Exception e) {
+                            Timber.e(e, e.getMessage());
+
+                            // Inform the user that it did not complete and will allow them to try
+                            // again. Uploads that were interrupted by the network resume from
+                            // where they stopped when they are tried again.
+                            Toast.makeText(PublishActivity.this, getString(R.string.publish_error_failed), Toast.LENGTH_LONG).show();
+                            finish();
+                        }
+                    });
+        } else {
+
+            // Continue the uploads that were paused when the connection was lost
+            mPublishJob.resume();
         }
     }
 
     @Override
     public void onDisconnected() {
+
+        if (mPublishJob == null) {
+
+            // Nothing is being uploaded
+            Toast.makeText(this,
+                    getString(R.string.publish_error_no_network),
+                    Toast.LENGTH_LONG)
+                    .show();
+
+            finish();
+            return;
+        }
+
+        // Pause the uploads so they can continue from where they stopped once reconnected
+        mPublishJob.pause();
+
         Toast.makeText(this,
-                getString(R.string.publish_error_no_network),
+                getString(R.string.publish_paused_no_network),
                 Toast.LENGTH_LONG)
                 .show();
+    }
 
-        finish();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // Stop updating the progress of the destroyed Activity
+        if (mPublishJob != null) {
+            mPublishJob.setProgressListener(null);
+        }
     }
 
     /**
-     * Resize the images of any data models that have associated image Files
+     * Resize the images of any data models that have associated image Files and hash them so they
+     * can be stored under the hash of their contents
      */
     private void resizeImages() {
 
         // Resize the image for the Guide
         SaveUtils.resizeImageForModel(mGuide);
+        SaveUtils.hashImageForModel(mGuide);
 
         // Resize the image for any Sections that have images
         for (Section section : mSections) {
-            if (section.hasImage) SaveUtils.resizeImageForModel(section);
+            if (section.hasImage) {
+                SaveUtils.resizeImageForModel(section);
+                SaveUtils.hashImageForModel(section);
+            }
         }
     }
 
     /**
      * Creates the Map that will be used to push the data for the models to Firebase Database
      *
+     * @param files    List to add the Files that need to be uploaded for the models to
      * @return The Map including all the data for the models that will be pushed to Firebase
      * Database
      */
-    private Map<String, Object> getChildUpdates() {
+    private Map<String, Object> getChildUpdates(List<BaseFile> files) {
 
         // Initialize the Map
         Map<String, Object> childUpdates = new HashMap<>();
@@ -165,7 +229,7 @@ public class PublishActivity extends MapboxActivity implements ConnectivityActiv
             mTrail.areaId = mArea.firebaseId;
 
             // Set the mid-point of the Trail
-            LatLng trailMidPoint = GpxUtils.getMidPoint(mGuide.getGpxFile());
+            LatLng trailMidPoint = GpxUtils.getMidPoint(this, mGuide.getGpxFile());
 
             if (trailMidPoint != null) {
                 mTrail.setLatitude(trailMidPoint.getLatitude());
@@ -188,15 +252,21 @@ public class PublishActivity extends MapboxActivity implements ConnectivityActiv
 
             addChildUpdate(mGuide, childUpdates);
 
-            // Upload the Files for the Guide
-            uploadFile(mGuide.getGpxFile());
-            uploadFile(mGuide.getImageFile());
+            // Add the location to the GeoFire database so it can be queried. It is written with
+            // the Guide so it is never left behind if publishing fails.
+            DatabaseProvider.getInstance().addLocation(childUpdates, mGuide);
 
-            // Add the location to the GeoFire database so it can be queried
-            GeoFire geoFire = FirebaseProviderUtils.getGeoFireInstance();
-            GeoLocation location = new GeoLocation(mGuide.latitude, mGuide.longitude);
+            // Upload the Files for the Guide
+            files.add(mGuide.getGpxFile());
+            files.add(mGuide.getImageFile());
+        } else {
 
-            geoFire.setLocation(mGuide.firebaseId, location);
+            // Mark the Guide as modified so copies saved for offline use are updated
+            childUpdates.put(FirebaseProviderUtils.generateDirectory(
+                    FirebaseProviderUtils.getDirectoryFromModel(mGuide),
+                    mGuide.firebaseId,
+                    Guide.DATE_MODIFIED),
+                    ServerValue.TIMESTAMP);
         }
 
         // Upload each Section
@@ -208,7 +278,7 @@ public class PublishActivity extends MapboxActivity implements ConnectivityActiv
             if (section.hasImage) {
 
                 // If the Section has an image, upload it
-                uploadFile(section.getImageFile());
+                files.add(section.getImageFile());
             }
         }
 
@@ -226,17 +296,23 @@ public class PublishActivity extends MapboxActivity implements ConnectivityActiv
         // Get the Firebase Database directory specific to the model
         String directory = FirebaseProviderUtils.getDirectoryFromModel(model);
 
-        // Push an update to get the key for the update
-        String firebaseId;
+        // Sections are stored under the FirebaseId of their Guide
         if (model instanceof Section) {
-            firebaseId = FirebaseDatabase.getInstance().getReference()
-                    .child(directory)
-                    .child(((Section) model).guideId)
-                    .push()
-                    .getKey();
+            directory = directory + "/" + ((Section) model).guideId;
+        }
 
-            directory = FirebaseProviderUtils.getDirectoryFromModel(model) + "/" + ((Section) model).guideId;
-        } else {
+        // Drafts keep the key they were saved with so their Files upload to the same location and
+        // an interrupted upload can be resumed when the draft is published again. Sections of a
+        // Guide that has already been published are always given new keys.
+        String firebaseId = model.firebaseId;
+
+        boolean keepKey = model.isDraft()
+                && firebaseId != null
+                && (!(model instanceof Section) || mGuide.isDraft());
+
+        if (!keepKey) {
+
+            // Push an update to get the key for the update
             firebaseId = FirebaseDatabase.getInstance().getReference()
                     .child(directory)
                     .push()
@@ -254,129 +330,26 @@ public class PublishActivity extends MapboxActivity implements ConnectivityActiv
     }
 
     /**
-     * Uploads a File to FirebaseStorage
-     *
-     * @param file    The File to be uploaded
-     */
-    private void uploadFile(BaseFile file) {
-
-        // Get a reference to Firebase Storage
-        StorageReference reference = FirebaseStorage.getInstance().getReference();
-
-        // Get the File-specific Storage Reference
-        reference = getReferenceForFile(reference, file);
-
-        // Add the Reference to the list of uploads to track
-        addUploadReference(reference);
-
-        reference.putFile(Uri.fromFile(file))
-                .addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
-                    @Override
-                    public void onSuccess(UploadTask.TaskSnapshot snapshot) {
-
-                        // Remove the task from the tracked List
-                        onUploadComplete(snapshot.getStorage());
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-
-                        // Inform the user that it did not complete and will allow them
-                        // to try again
-                        Toast.makeText(PublishActivity.this, getString(R.string.publish_error_failed), Toast.LENGTH_LONG).show();
-                    }
-                });
-    }
-
-    /**
-     * Adds an upload task to track for completion to mUploadReferenceList
-     *
-     * @param uploadReference    The StorageReference for the task to be tracked
-     */
-    private void addUploadReference(StorageReference uploadReference) {
-
-        // Init the List if necessary
-        if (mUploadReferenceList == null) {
-            mUploadReferenceList = new ArrayList<>();
-        }
-
-        // Add the StorageReference to the List
-        mUploadReferenceList.add(uploadReference);
-
-        mViewModel.setTotalUploads(mUploadReferenceList.size());
-    }
-
-    /**
-     * Removes the StorageReference from mUploadReferenceList that was completed
-     *
-     * @param uploadReference    The StorageReference that was completed
+     * Removes the drafts that were published and returns the published Guide to the calling
+     * Activity
      */
-    private void onUploadComplete(StorageReference uploadReference) {
+    private void onPublished() {
 
-        // Iterate through each the StorageReferences to find the matching StorageReference
-        for (StorageReference reference : mUploadReferenceList) {
-            if (reference.equals(uploadReference)) {
+        // Delete the draft from the database
+        ContentProviderUtils.deleteModel(this, mDeleteGuide);
+        ContentProviderUtils.deleteModel(this, mDeleteTrail);
+        ContentProviderUtils.deleteModel(this, mDeleteArea);
+        ContentProviderUtils.deleteSectionsForGuide(this, mDeleteGuide);
 
-                // Remove the Reference from the List
-                mUploadReferenceList.remove(mUploadReferenceList.indexOf(reference));
-                break;
-            }
+        if (ContentProviderUtils.getGuideCountForAuthor(this, mAuthor) == 0) {
+            ContentProviderUtils.deleteModel(this, mAuthor);
         }
 
-        if (mUploadReferenceList.size() == 0) {
+        // Add
+        Intent data = new Intent();
+        data.putExtra(GUIDE_KEY, mGuide);
 
-            // If all upload tasks have completed, update the Firebase Database
-            mUploadListener.onUploadComplete();
-        } else {
-            mViewModel.setCurrentUpload(mViewModel.getTotalUploads() - mUploadReferenceList.size() + 1);
-        }
-    }
-
-    private class UploadListener {
-        // ** Member Variables ** //
-        private Map<String, Object> mChildUpdates;
-
-        private UploadListener(Map<String, Object> childUpdates) {
-            mChildUpdates = childUpdates;
-        }
-
-        /**
-         * Updates the Firebase Database with the data loaded into mChildUpdates
-         */
-        private void onUploadComplete() {
-
-            FirebaseDatabase.getInstance().getReference()
-                    .updateChildren(mChildUpdates)
-                    .addOnSuccessListener(new OnSuccessListener<Void>() {
-                        @Override
-                        public void onSuccess(Void aVoid) {
-
-                            // Delete the draft from the database
-                            ContentProviderUtils.deleteModel(PublishActivity.this, mDeleteGuide);
-                            ContentProviderUtils.deleteModel(PublishActivity.this, mDeleteTrail);
-                            ContentProviderUtils.deleteModel(PublishActivity.this, mDeleteArea);
-                            ContentProviderUtils.deleteSectionsForGuide(PublishActivity.this, mDeleteGuide);
-
-                            if (ContentProviderUtils.getGuideCountForAuthor(PublishActivity.this, mAuthor) == 0) {
-                                ContentProviderUtils.deleteModel(PublishActivity.this, mAuthor);
-                            }
-
-                            // Add
-                            Intent data = new Intent();
-                            data.putExtra(GUIDE_KEY, mGuide);
-
-                            setResult(RESULT_OK, data);
-                            finish();
-                        }
-                    })
-                    .addOnFailureListener(new OnFailureListener() {
-                        @Override
-                        public void onFailure(@NonNull Exception e) {
-                            Timber.e(e, e.getMessage());
-                            finish();
-                        }
-                    });
-        }
+        setResult(RESULT_OK, data);
+        finish();
     }
 }
@@ -190,6 +190,22 @@ public class GuideAdapter extends RecyclerView.Adapter<GuideAdapter.GuideViewHol
         mSortedList.add(guide);
     }
 
+    /**
+     * Replaces a Guide in the Adapter's List with one that has new values, re-sorting it if needed
+     *
+     * @param guide    Guide with the new values
+     */
+    public void updateGuide(Guide guide) {
+
+        int position = getPosition(guide.firebaseId);
+
+        if (position == -1) {
+            mSortedList.add(guide);
+        } else {
+            mSortedList.updateItemAt(position, guide);
+        }
+    }
+
     /**
      * Removes a Guide from the Adapter's List
      *
@@ -210,14 +210,17 @@ public class MessageAdapter extends RecyclerView.Adapter<MessageAdapter.MessageV
                 return true;
             }
 
-            // Load Guide from Firebase if not cached
-            FirebaseProviderUtils.getModel(
+            // Load Guide from Firebase if not cached. Messages attaching the same Guide share
+            // one download.
+            FirebaseProviderUtils.getCachedModel(
                     FirebaseProviderUtils.FirebaseType.GUIDE,
                     guideId,
                     new FirebaseProviderUtils.FirebaseListener() {
                         @Override
                         public void onModelReady(BaseModel model) {
 
+                            if (model == null) return;
+
                             // Put the Guide in the Map and notify
                             Guide guide = (Guide) model;
                             mGuideAttachmentMap.put(guide.firebaseId, guide);
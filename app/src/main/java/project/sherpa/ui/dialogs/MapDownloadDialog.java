@@ -0,0 +1,73 @@
+package project.sherpa.ui.dialogs;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.v4.app.DialogFragment;
+import android.support.v7.app.AlertDialog;
+import android.text.format.Formatter;
+
+import project.sherpa.R;
+
+/**
+ * Asks the user to confirm a download of Mapbox tiles after showing them its estimated size
+ */
+
+public class MapDownloadDialog extends DialogFragment {
+
+    // ** Member Variables ** //
+    private DialogInterface.OnClickListener mListener;
+    private DialogInterface.OnClickListener mCancelListener;
+    private long mTileCount;
+    private long mEstimatedBytes;
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+
+        // Init the AlertDialog Builder
+        AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+
+        // Set parameters for Dialog
+        builder.setTitle(getString(R.string.map_download_dialog_title));
+        builder.setMessage(getString(R.string.map_download_dialog_message,
+                Formatter.formatShortFileSize(getActivity(), mEstimatedBytes),
+                mTileCount));
+
+        // Set positive and negative buttons
+        builder.setPositiveButton(getString(android.R.string.ok), mListener)
+                .setNegativeButton(getString(android.R.string.cancel), mCancelListener);
+
+        return builder.create();
+    }
+
+    /**
+     * Sets the estimated size of the download to show to the user
+     *
+     * @param tileCount         Number of tiles to be downloaded
+     * @param estimatedBytes    Estimated size of the tiles in bytes
+     */
+    public void setEstimate(long tileCount, long estimatedBytes) {
+        mTileCount = tileCount;
+        mEstimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * Sets the OnClickListener to be used on the positive button click
+     *
+     * @param listener    OnClickListener for positive button click
+     */
+    public void setOnClickListener(DialogInterface.OnClickListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Sets the OnClickListener to be used on the negative button click
+     *
+     * @param listener    OnClickListener for negative button click
+     */
+    public void setOnCancelClickListener(DialogInterface.OnClickListener listener) {
+        mCancelListener = listener;
+    }
+}
@@ -20,6 +20,7 @@ public class ProgressDialog extends DialogFragment {
     private DialogProgressBinding mBinding;
     private String mTitle;
     private boolean mIndeterminate;
+    private int mProgress;
 
     @NonNull
     @Override
@@ -32,6 +33,7 @@ public class ProgressDialog extends DialogFragment {
         // Build the Dialog
         AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
         mBinding.dialogPb.setIndeterminate(mIndeterminate);
+        mBinding.dialogPb.setProgress(mProgress);
         builder.setView(mBinding.getRoot());
 
         if (mTitle != null) {
@@ -50,7 +52,12 @@ public class ProgressDialog extends DialogFragment {
      */
     public void updateProgress(int progress) {
 
-        mBinding.dialogPb.setProgress(progress);
+        mProgress = progress;
+
+        // The Dialog may not have been created yet
+        if (mBinding != null) {
+            mBinding.dialogPb.setProgress(progress);
+        }
     }
 
     /**
@@ -25,6 +25,8 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.Query;
 
+import java.util.Collections;
+
 import project.sherpa.BuildConfig;
 import project.sherpa.R;
 import project.sherpa.data.GuideContract;
@@ -47,6 +49,7 @@ import project.sherpa.utilities.DataCache;
 import project.sherpa.utilities.FirebaseProviderUtils;
 import project.sherpa.utilities.MapUtils;
 import project.sherpa.utilities.OfflineGuideManager;
+import project.sherpa.utilities.OfflineUpdateUtils;
 import timber.log.Timber;
 
 import static project.sherpa.utilities.Constants.IntentKeys.AUTHOR_KEY;
@@ -75,6 +78,8 @@ public class GuideDetailsFragment extends ConnectivityFragment implements Loader
     private Author mUser;
     private GuideDetailsAdapter mAdapter;
     private MenuItem mCacheMenuItem;
+    private boolean mResumeChecked;
+    private boolean mSaving;
 
     private QueryChangeListener<Rating> mUserRatingListener;
 
@@ -114,6 +119,9 @@ public class GuideDetailsFragment extends ConnectivityFragment implements Loader
 
             String guideId = getArguments().getString(GUIDE_KEY);
 
+            // Record that the Guide was opened so it is the last to be evicted if saved offline
+            ContentProviderUtils.updateOfflineGuideAccess(getActivity(), guideId);
+
             // Attempt to get the data models from cache
             getCachedData(guideId);
 
@@ -146,7 +154,12 @@ public class GuideDetailsFragment extends ConnectivityFragment implements Loader
         inflater.inflate(R.menu.menu_guide_details, menu);
 
         mCacheMenuItem = menu.getItem(1);
-        if (!ContentProviderUtils.isGuideCachedInDatabase(getActivity(), mGuide)) {
+        if (mSaving) {
+
+            // A resumed download is still in progress
+            mCacheMenuItem.setIcon(ContextCompat.getDrawable(getActivity(), R.drawable.ic_delete_white));
+            animateCacheIcon();
+        } else if (!ContentProviderUtils.isGuideCachedInDatabase(getActivity(), mGuide)) {
             mCacheMenuItem.setIcon(ContextCompat.getDrawable(getActivity(), R.drawable.ic_save));
         } else {
             mCacheMenuItem.setIcon(ContextCompat.getDrawable(getActivity(), R.drawable.ic_delete_white));
@@ -436,6 +449,17 @@ public class GuideDetailsFragment extends ConnectivityFragment implements Loader
         loadAuthor(authorId);
         loadRatingForFirebaseUser(guideId);
         loadRatings(guideId);
+
+        // Update the copy saved offline if the Guide has changed since it was saved
+        OfflineUpdateUtils.checkForUpdates(
+                getActivity().getApplicationContext(),
+                Collections.singletonList(guideId),
+                new OfflineUpdateUtils.UpdateListener() {
+                    @Override
+                    public void onUpdatesComplete(int updatedCount) {
+
+                    }
+                });
     }
 
     /**
@@ -671,6 +695,29 @@ public class GuideDetailsFragment extends ConnectivityFragment implements Loader
 
         // Remove the ActionView of the menu icon
         if (mCacheMenuItem != null) mCacheMenuItem.setActionView(null);
+
+        // All the items required to save the Guide are now available
+        resumeSaveGuide();
+    }
+
+    /**
+     * Resumes saving the Guide if an earlier download of it was interrupted
+     */
+    private void resumeSaveGuide() {
+
+        // Only check once per Fragment
+        if (mResumeChecked) return;
+        mResumeChecked = true;
+
+        OfflineGuideManager manager = new OfflineGuideManager(mGuide, mSections, mAuthor);
+        if (!manager.hasPendingDownload(getActivity())) return;
+
+        saveGuide();
+
+        if (mCacheMenuItem != null) {
+            animateCacheIcon();
+            mCacheMenuItem.setIcon(ContextCompat.getDrawable(getActivity(), R.drawable.ic_delete_white));
+        }
     }
 
     /**
@@ -681,10 +728,13 @@ public class GuideDetailsFragment extends ConnectivityFragment implements Loader
         // Init the OfflineGuideManager
         OfflineGuideManager manager = new OfflineGuideManager(mGuide, mSections, mAuthor);
 
+        mSaving = true;
+
         // Cache the Guide to local storage
         manager.cache((GuideDetailsActivity) getActivity(), new MapUtils.MapboxDownloadCallback() {
             @Override
             public void onDownloadComplete() {
+                mSaving = false;
                 stopCacheIcon();
             }
 
@@ -692,6 +742,18 @@ public class GuideDetailsFragment extends ConnectivityFragment implements Loader
             public void onUpdateProgress(double progress) {
 
             }
+
+            @Override
+            public void onDownloadCancelled() {
+                mSaving = false;
+
+                // Restore the save icon as the Guide was not saved
+                if (mCacheMenuItem != null) {
+                    mCacheMenuItem.setIcon(ContextCompat.getDrawable(getActivity(), R.drawable.ic_save));
+                }
+
+                stopCacheIcon();
+            }
         });
     }
 
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import project.sherpa.prefs.SettingsActivity;
 import project.sherpa.R;
@@ -45,6 +46,11 @@ import static project.sherpa.utilities.FirebaseProviderUtils.FirebaseType.GUIDE;
  */
 
 public class GuideListFragment extends ConnectivityFragment {
+    // ** Constants ** //
+    private static final String LATEST_GUIDES_KEY   = "latestGuides";
+    private static final String CURRENT_USER_KEY    = "currentUser_";
+    private static final long GUIDE_LIST_MAX_AGE    = TimeUnit.DAYS.toMillis(7);
+    private static final long CURRENT_USER_MAX_AGE  = TimeUnit.DAYS.toMillis(30);
 
     // ** Member Variables ** //
     private FragmentGuideListBinding mBinding;
@@ -75,6 +81,10 @@ public class GuideListFragment extends ConnectivityFragment {
 
             // Load the Guide associated with each guideId from cache
             loadDataFromCache(guideIdList);
+        } else {
+
+            // Show the Guides from the previous session while the latest Guides are loaded
+            loadDataFromDisk();
         }
 
         // Load ads if applicable
@@ -112,22 +122,23 @@ public class GuideListFragment extends ConnectivityFragment {
     @Override
     protected void onServiceConnected() {
 
-        if (mAuthor == null) {
+        if (mUserListener == null) {
 
             // Attempt to load a logged in user's favorite data
             loadCurrentUser();
         }
 
-        // If Adapter is empty, load the Guides from Firebase
+        // Show the ProgressBar if there are no Guides to show yet
         if (mAdapter.getItemCount() == 0) {
-
-            // Show the ProgressBar
             mBinding.guideListPb.setVisibility(View.VISIBLE);
-
-            loadGuides();
         } else {
             mAdapter.notifyItemRangeChanged(0, mAdapter.getItemCount());
         }
+
+        // Load the latest Guides from Firebase, replacing any Guides loaded from cache
+        if (mGuideQueryListener == null) {
+            loadGuides();
+        }
     }
 
     /**
@@ -140,7 +151,8 @@ public class GuideListFragment extends ConnectivityFragment {
                 .orderByKey()
                 .limitToLast(20);
 
-        mGuideQueryListener = new QueryChangeListener<Guide>(GUIDE, guideQuery, null) {
+        // Only the Guides that change are delivered after the initial results
+        mGuideQueryListener = new QueryChangeListener<Guide>(GUIDE, guideQuery, null, true) {
             @Override
             public void onQueryChanged(Guide[] models) {
 
@@ -152,12 +164,53 @@ public class GuideListFragment extends ConnectivityFragment {
 
                 // Hide the ProgressBar
                 mBinding.guideListPb.setVisibility(View.GONE);
+
+                persistGuides();
+            }
+
+            @Override
+            public void onModelAdded(Guide model, int index) {
+
+                // The List is in the reverse order of the Query
+                mGuideList.add(mGuideList.size() - index, model);
+                mAdapter.addGuide(model);
+
+                persistGuides();
+            }
+
+            @Override
+            public void onModelChanged(Guide model, int index) {
+
+                mGuideList.set(mGuideList.size() - 1 - index, model);
+                mAdapter.updateGuide(model);
+
+                persistGuides();
+            }
+
+            @Override
+            public void onModelRemoved(Guide model, int index) {
+
+                mGuideList.remove(mGuideList.size() - 1 - index);
+                mAdapter.removeGuide(model.firebaseId);
+
+                persistGuides();
             }
         };
 
         mService.registerQueryChangeListener(mGuideQueryListener);
     }
 
+    /**
+     * Saves the Guides so they can be shown immediately on the next cold start
+     */
+    private void persistGuides() {
+
+        if (getActivity() == null) return;
+
+        DataCache.getInstance().persist(getActivity(), LATEST_GUIDES_KEY,
+                mGuideList.toArray(new Guide[mGuideList.size()]));
+    }
+
     /**
      * Loads a logged in user's favorite data from Firebase
      */
@@ -169,6 +222,8 @@ public class GuideListFragment extends ConnectivityFragment {
         // Not logged in, nothing to do
         if (user == null) return;
 
+        final String userKey = CURRENT_USER_KEY + user.getUid();
+
         mUserListener = new ModelChangeListener<Author>(AUTHOR, user.getUid()) {
             @Override
             public void onModelReady(Author model) {
@@ -176,6 +231,8 @@ public class GuideListFragment extends ConnectivityFragment {
 
                 // Set the Author to the Adapter so that the favorite data can be synchronized
                 mAdapter.setAuthor(mAuthor);
+
+                persistAuthor(userKey);
             }
 
             @Override
@@ -183,10 +240,37 @@ public class GuideListFragment extends ConnectivityFragment {
 
                 // Update the favorite status in the Adapter
                 mAdapter.updateViewModelFavorites();
+
+                persistAuthor(userKey);
             }
         };
 
-        mService.registerModelChangeListener(mUserListener);
+        // Restore the user from the previous session first. The restored Author is added to the
+        // DataCache so it is delivered immediately when the listener is registered and then
+        // updated with the data from Firebase.
+        DataCache.getInstance().restore(getActivity(), userKey, Author.CREATOR, CURRENT_USER_MAX_AGE,
+                new DataCache.DiskCallback<Author>() {
+                    @Override
+                    public void onRestored(Author[] models) {
+
+                        // Check the Fragment is still connected to the FirebaseProviderService
+                        if (mService == null) return;
+
+                        mService.registerModelChangeListener(mUserListener);
+                    }
+                });
+    }
+
+    /**
+     * Saves the logged in user's Author to disk so it is available on the next cold start
+     *
+     * @param userKey    Key to store the Author under
+     */
+    private void persistAuthor(String userKey) {
+
+        if (mAuthor == null || getActivity() == null) return;
+
+        DataCache.getInstance().persist(getActivity(), userKey, new Author[] {mAuthor});
     }
 
     @Override
@@ -241,6 +325,16 @@ public class GuideListFragment extends ConnectivityFragment {
             // Retrieve Guides from DataCache
             Guide guide = (Guide) DataCache.getInstance().get(guideId);
 
+            if (guide == null) {
+
+                // Guide has been evicted from memory. Fall back to the Guides saved to disk.
+                mGuideList = null;
+                mAdapter.setGuides(new ArrayList<Guide>());
+                loadDataFromDisk();
+
+                return;
+            }
+
             // Add the Guide to the mGuideList and Adapter
             mGuideList.add(guide);
             mAdapter.addGuide(guide);
@@ -249,6 +343,28 @@ public class GuideListFragment extends ConnectivityFragment {
         }
     }
 
+    /**
+     * Retrieves the Guides that were shown in the previous session from the DataCache's disk
+     * tier. They are only shown if the latest Guides haven't been loaded from Firebase yet.
+     */
+    private void loadDataFromDisk() {
+
+        DataCache.getInstance().restore(getActivity(), LATEST_GUIDES_KEY, Guide.CREATOR, GUIDE_LIST_MAX_AGE,
+                new DataCache.DiskCallback<Guide>() {
+                    @Override
+                    public void onRestored(Guide[] models) {
+
+                        // Nothing saved or the latest Guides have already been loaded
+                        if (models == null || mGuideList != null || mBinding == null) return;
+
+                        mGuideList = new ArrayList<>(Arrays.asList(models));
+                        mAdapter.setGuides(mGuideList);
+
+                        mBinding.guideListPb.setVisibility(View.GONE);
+                    }
+                });
+    }
+
     public interface OnGuideClickListener {
         void onGuideClicked(Guide guide);
     }
@@ -50,10 +50,11 @@ import project.sherpa.ui.adapters.interfaces.ClickHandler;
 import project.sherpa.ui.adapters.interfaces.LongClickHandler;
 import project.sherpa.ui.fragments.abstractfragments.MapboxFragment;
 import project.sherpa.utilities.ColorGenerator;
-import project.sherpa.utilities.DataCache;
 import project.sherpa.utilities.FirebaseProviderUtils;
+import project.sherpa.utilities.GpxExecutor;
 import project.sherpa.utilities.GpxUtils;
 import project.sherpa.utilities.SaveUtils;
+import project.sherpa.utilities.TrackSimplifier;
 
 import static project.sherpa.utilities.Constants.IntentKeys.GUIDE_KEY;
 import static project.sherpa.utilities.FirebaseProviderUtils.GPX_EXT;
@@ -76,7 +77,8 @@ public class SearchFragment extends MapboxFragment {
     private GuideAdapter mAdapter;
     private GeoQuery mGeoQuery;
     private List<Guide> mGuideList = new ArrayList<>();
-    private Map<String, PolylineOptions> mGuidePolylineMap = new HashMap<>();
+    private Map<String, List<PolylineOptions>> mGuidePolylineMap = new HashMap<>();
+    private Map<String, Integer> mGuideDetailLevelMap = new HashMap<>();
     private String highlightedId;
 
     public SearchFragment() {
@@ -226,16 +228,22 @@ public class SearchFragment extends MapboxFragment {
                             // Inform user that they need to zoom in to trigger a search
                             Toast.makeText(getActivity(), getString(R.string.search_instruction_zoom_in), Toast.LENGTH_SHORT).show();
                         }
+
+                        // Redraw the Polylines at the level of detail for the new zoom
+                        updatePolylineDetailLevels();
                     }
                 });
 
                 for (String guideId : mGuidePolylineMap.keySet()) {
 
-                    PolylineOptions polylineOptions = mGuidePolylineMap.get(guideId);
-                    mMapboxMap.addPolyline(polylineOptions
-                            .width(2)
-                            // Set the color using the the colorPosition and the ColorGenerator
-                            .color(ColorGenerator.getColor(getActivity(), mAdapter.getPosition(guideId))));
+                    List<PolylineOptions> polylineOptionsList = mGuidePolylineMap.get(guideId);
+
+                    // Set the color using the the colorPosition and the ColorGenerator
+                    stylePolylines(polylineOptionsList,
+                            ColorGenerator.getColor(getActivity(), mAdapter.getPosition(guideId)),
+                            2);
+
+                    addPolylines(polylineOptionsList);
                 }
             }
         });
@@ -324,38 +332,25 @@ public class SearchFragment extends MapboxFragment {
      */
     private void getGuide(String firebaseId) {
 
-        // Check to see if the Guide has been cached
-        Guide guide = (Guide) DataCache.getInstance().get(firebaseId);
-
-        if (guide != null) {
-
-            // Add the cached Guide to the Adapter
-            mAdapter.addGuide(guide);
-
-            // Get the GPX File for the Guide
-            getGpxForGuide(guide);
+        // Retrieve the Guide from the cache, downloading it from Firebase if it isn't cached
+        FirebaseProviderUtils.getCachedModel(
+                FirebaseProviderUtils.FirebaseType.GUIDE,
+                firebaseId,
+                new FirebaseProviderUtils.FirebaseListener() {
+                    @Override
+                    public void onModelReady(BaseModel model) {
 
-        } else {
+                        if (model == null) return;
 
-            // Guide not in cache. Download the data from Firebase
-            FirebaseProviderUtils.getModel(
-                    FirebaseProviderUtils.FirebaseType.GUIDE,
-                    firebaseId,
-                    new FirebaseProviderUtils.FirebaseListener() {
-                        @Override
-                        public void onModelReady(BaseModel model) {
-                            Guide guide = (Guide) model;
+                        Guide guide = (Guide) model;
 
-                            // Add the Guide to the Adapter
-                            mAdapter.addGuide(guide);
+                        // Add the Guide to the Adapter
+                        mAdapter.addGuide(guide);
 
-                            DataCache.getInstance().store(guide);
-
-                            // Get the GPX File for the Guide
-                            getGpxForGuide(guide);
-                        }
-                    });
-        }
+                        // Get the GPX File for the Guide
+                        getGpxForGuide(guide);
+                    }
+                });
     }
 
     /**
@@ -403,32 +398,138 @@ public class SearchFragment extends MapboxFragment {
         // Check to see if the Polyline has already been added to the MapboxMap
         if (mGuidePolylineMap.get(guide.firebaseId) != null) return;
 
+        // Simplify the Polyline to the level of detail visible at the current zoom
+        final int detailLevel = getCurrentDetailLevel();
+
         // Generate the MapboxOptions that will contain the Polyline
-        GpxUtils.getMapboxOptions(gpxFile, new GpxUtils.MapboxOptionsListener() {
+        GpxUtils.getMapboxOptions(gpxFile, detailLevel, this, new GpxUtils.MapboxOptionsListener() {
             @Override
-            public void onOptionReady(MarkerOptions markerOptions, PolylineOptions polylineOptions) {
+            public void onOptionReady(MarkerOptions markerOptions, List<PolylineOptions> polylineOptionsList) {
+
+                // Check the Polyline wasn't added by another request while this one was processed
+                if (mGuidePolylineMap.get(guide.firebaseId) != null) return;
 
-                mGuidePolylineMap.put(guide.firebaseId, polylineOptions);
+                mGuidePolylineMap.put(guide.firebaseId, polylineOptionsList);
+                mGuideDetailLevelMap.put(guide.firebaseId, detailLevel);
+
+                // Set the color using the the colorPosition and the ColorGenerator
+                stylePolylines(polylineOptionsList,
+                        ColorGenerator.getColor(getActivity(), mAdapter.getPosition(guide.firebaseId)),
+                        2);
 
                 if (mMapboxMap != null) {
-                    // Add the Polyline to the MapboxMap
-                    mMapboxMap.addPolyline(polylineOptions
-                            .width(2)
-                            // Set the color using the the colorPosition and the ColorGenerator
-                            .color(ColorGenerator.getColor(getActivity(), mAdapter.getPosition(guide.firebaseId))));
+                    // Add the Polylines to the MapboxMap
+                    addPolylines(polylineOptionsList);
                 }
             }
         });
     }
 
+    /**
+     * Retrieves the level of detail that Polylines should be drawn at for the MapboxMap's camera
+     *
+     * @return Level of detail for GpxUtils.getMapboxOptions
+     */
+    private int getCurrentDetailLevel() {
+
+        // Draw the full track until the camera position is known
+        if (mMapboxMap == null) return TrackSimplifier.FULL_DETAIL;
+
+        CameraPosition position = mMapboxMap.getCameraPosition();
+
+        return GpxUtils.getDetailLevel(position.zoom, position.target.getLatitude());
+    }
+
+    /**
+     * Replaces any Polyline that was drawn at a different level of detail than is required for
+     * the current zoom level of the MapboxMap
+     */
+    private void updatePolylineDetailLevels() {
+
+        final int detailLevel = getCurrentDetailLevel();
+
+        for (final String firebaseId : new ArrayList<>(mGuidePolylineMap.keySet())) {
+
+            // Skip Polylines that are already at the correct level of detail
+            Integer currentLevel = mGuideDetailLevelMap.get(firebaseId);
+            if (currentLevel != null && currentLevel == detailLevel) continue;
+
+            // Get the previously downloaded GPX File for the Guide
+            File gpxFile = SaveUtils.createTempFile(StorageProvider.FirebaseFileType.GPX_FILE, firebaseId);
+
+            GpxUtils.getMapboxOptions(gpxFile, detailLevel, this, new GpxUtils.MapboxOptionsListener() {
+                @Override
+                public void onOptionReady(MarkerOptions markerOptions, List<PolylineOptions> polylineOptionsList) {
+
+                    List<PolylineOptions> previousOptionsList = mGuidePolylineMap.get(firebaseId);
+
+                    // Check the Guide wasn't removed and the camera hasn't moved to a different
+                    // level of detail in the meantime
+                    if (previousOptionsList == null || detailLevel != getCurrentDetailLevel()) return;
+
+                    // Keep the color and width so highlighted tracks stay highlighted
+                    if (!previousOptionsList.isEmpty()) {
+                        PolylineOptions previousOptions = previousOptionsList.get(0);
+                        stylePolylines(polylineOptionsList, previousOptions.getColor(), previousOptions.getWidth());
+                    }
+
+                    // Swap the Polylines on the MapboxMap
+                    removePolylines(previousOptionsList);
+                    addPolylines(polylineOptionsList);
+
+                    mGuidePolylineMap.put(firebaseId, polylineOptionsList);
+                    mGuideDetailLevelMap.put(firebaseId, detailLevel);
+                }
+            });
+        }
+    }
+
     /**
      * Updates the Polyline so that their colors match the colors of their Guide based on the
      * position of the Guide in mAdapter
      */
     private void updatePolylineColors() {
         for (String firebaseId : mGuidePolylineMap.keySet()) {
-            mGuidePolylineMap.get(firebaseId)
-                    .color(ColorGenerator.getColor(getActivity(), mAdapter.getPosition(firebaseId)));
+            for (PolylineOptions polylineOptions : mGuidePolylineMap.get(firebaseId)) {
+                polylineOptions.color(ColorGenerator.getColor(getActivity(), mAdapter.getPosition(firebaseId)));
+            }
+        }
+    }
+
+    /**
+     * Sets the color and width of each Polyline of a track
+     *
+     * @param polylineOptionsList    PolylineOptions for each segment of the track
+     * @param color                  Color to draw the track with
+     * @param width                  Width to draw the track with
+     */
+    private void stylePolylines(List<PolylineOptions> polylineOptionsList, int color, float width) {
+        for (PolylineOptions polylineOptions : polylineOptionsList) {
+            polylineOptions
+                    .color(color)
+                    .width(width);
+        }
+    }
+
+    /**
+     * Adds the Polylines for each segment of a track to the MapboxMap
+     *
+     * @param polylineOptionsList    PolylineOptions for each segment of the track
+     */
+    private void addPolylines(List<PolylineOptions> polylineOptionsList) {
+        for (PolylineOptions polylineOptions : polylineOptionsList) {
+            mMapboxMap.addPolyline(polylineOptions);
+        }
+    }
+
+    /**
+     * Removes the Polylines for each segment of a track from the MapboxMap
+     *
+     * @param polylineOptionsList    PolylineOptions for each segment of the track
+     */
+    private void removePolylines(List<PolylineOptions> polylineOptionsList) {
+        for (PolylineOptions polylineOptions : polylineOptionsList) {
+            mMapboxMap.removePolyline(polylineOptions.getPolyline());
         }
     }
 
@@ -443,9 +544,9 @@ public class SearchFragment extends MapboxFragment {
         if (highlightedId != null) {
 
             // Reset the color of the previously highlighted track
-            mGuidePolylineMap.get(highlightedId)
-                    .color(ColorGenerator.getColor(getActivity(), mAdapter.getPosition(highlightedId)))
-                    .width(2);
+            stylePolylines(mGuidePolylineMap.get(highlightedId),
+                    ColorGenerator.getColor(getActivity(), mAdapter.getPosition(highlightedId)),
+                    2);
 
             if (guide.firebaseId.equals(highlightedId)) {
 
@@ -461,15 +562,15 @@ public class SearchFragment extends MapboxFragment {
         highlightedId = guide.firebaseId;
 
         // Highlight the selected track
-        PolylineOptions highlightedPolyLine = mGuidePolylineMap.get(guide.firebaseId);
-        highlightedPolyLine
-                .color(ContextCompat.getColor(getActivity(), R.color.yellow_a200))
-                .width(4);
-
-        // Remove and re-add the Polyline to set it to the top of the map and ensure it
-        // isn't obscured by other Polylines
-        mMapboxMap.removePolyline(highlightedPolyLine.getPolyline());
-        mMapboxMap.addPolyline(highlightedPolyLine);
+        List<PolylineOptions> highlightedPolyLines = mGuidePolylineMap.get(guide.firebaseId);
+        stylePolylines(highlightedPolyLines,
+                ContextCompat.getColor(getActivity(), R.color.yellow_a200),
+                4);
+
+        // Remove and re-add the Polylines to set them to the top of the map and ensure they
+        // aren't obscured by other Polylines
+        removePolylines(highlightedPolyLines);
+        addPolylines(highlightedPolyLines);
     }
 
     private final GeoQueryEventListener geoQueryEventListener = new GeoQueryEventListener() {
@@ -490,10 +591,11 @@ public class SearchFragment extends MapboxFragment {
 
             // Remove the Guide and its Polyline track
             mAdapter.removeGuide(key);
-            PolylineOptions options = mGuidePolylineMap.get(key);
+            List<PolylineOptions> optionsList = mGuidePolylineMap.get(key);
 
-            if (options != null ) mMapboxMap.removePolyline(options.getPolyline());
+            if (optionsList != null) removePolylines(optionsList);
             mGuidePolylineMap.remove(key);
+            mGuideDetailLevelMap.remove(key);
 
             // Update the colors of the lines so they match the new position of the Guides
             updatePolylineColors();
@@ -521,6 +623,14 @@ public class SearchFragment extends MapboxFragment {
         }
     };
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+
+        // Drop any Polylines still being generated for the MapboxMap
+        GpxExecutor.getInstance().cancel(this);
+    }
+
     @Override
     public void onConnected() {
         super.onConnected();
@@ -0,0 +1,96 @@
+package project.sherpa.utilities;
+
+import project.sherpa.utilities.objects.GpxTrack;
+
+/**
+ * Reduces the number of points to be plotted on a chart while preserving its shape using the
+ * Largest-Triangle-Three-Buckets algorithm. The first and last points are always kept, and the
+ * remaining points are split into equally sized buckets with the point from each bucket that
+ * forms the largest triangle with its neighbors being selected.
+ */
+
+public class ChartDownsampler {
+
+    /**
+     * Selects the points of a GpxTrack's elevation profile to plot
+     *
+     * @param distances    Distance traveled at each point of the track, used as the X-coordinate
+     * @param track        GpxTrack whose elevation is used as the Y-coordinate
+     * @param threshold    Maximum number of points to select
+     * @return Indices of the selected points in ascending order
+     */
+    public static int[] downsampleElevation(double[] distances, GpxTrack track, int threshold) {
+
+        int size = track.size();
+
+        // Nothing to downsample if there are fewer points than the threshold
+        if (threshold >= size || threshold < 3) {
+            int[] indices = new int[size];
+
+            for (int i = 0; i < size; i++) {
+                indices[i] = i;
+            }
+
+            return indices;
+        }
+
+        int[] sampled = new int[threshold];
+        int sampledCount = 0;
+
+        // Size of each bucket, excluding the first and last points
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+
+        // Always keep the first point
+        int previous = 0;
+        sampled[sampledCount++] = previous;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+
+            // Calculate the average point of the next bucket
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, size);
+
+            double averageX = 0;
+            double averageY = 0;
+
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += distances[i];
+                averageY += track.getElevation(i);
+            }
+
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            // Range of the current bucket
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+
+            double previousX = distances[previous];
+            double previousY = track.getElevation(previous);
+
+            // Select the point in the bucket forming the largest triangle with the previously
+            // selected point and the average of the next bucket
+            double maxArea = -1;
+            int selected = start;
+
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((previousX - averageX) * (track.getElevation(i) - previousY)
+                        - (previousX - distances[i]) * (averageY - previousY));
+
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+
+            sampled[sampledCount++] = selected;
+            previous = selected;
+        }
+
+        // Always keep the last point
+        sampled[sampledCount] = size - 1;
+
+        return sampled;
+    }
+}
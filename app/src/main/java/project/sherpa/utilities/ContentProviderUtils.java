@@ -7,13 +7,19 @@ import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.RemoteException;
+import android.support.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import project.sherpa.R;
 import project.sherpa.data.GuideContract;
+import project.sherpa.data.GuideContract.GpxStatsEntry;
+import project.sherpa.data.GuideContract.OfflineGuideEntry;
+import project.sherpa.data.GuideContract.OfflineRegionEntry;
+import project.sherpa.data.GuideContract.OfflineRegionGuideEntry;
 import project.sherpa.data.GuideProvider;
 import project.sherpa.models.datamodels.Area;
 import project.sherpa.models.datamodels.Author;
@@ -23,6 +29,9 @@ import project.sherpa.models.datamodels.Message;
 import project.sherpa.models.datamodels.Section;
 import project.sherpa.models.datamodels.Trail;
 import project.sherpa.models.datamodels.abstractmodels.BaseModel;
+import project.sherpa.utilities.objects.GpxStats;
+import project.sherpa.utilities.objects.OfflineGuideStorage;
+import project.sherpa.utilities.objects.OfflineRegionPlan;
 
 /**
  * Created by Alvin on 8/7/2017.
@@ -523,6 +532,8 @@ public class ContentProviderUtils {
             values.put(GuideContract.GuideEntry.IMAGE_URI,  guide.getImageUri().toString());
         }
 
+        values.put(GuideContract.GuideEntry.IMAGE_HASH,     guide.imageHash);
+
         // Add GPX Uri if the Guide has a GPX
         if (guide.getGpxUri() != null) {
             values.put(GuideContract.GuideEntry.GPX_URI,    guide.getGpxUri().toString());
@@ -611,6 +622,8 @@ public class ContentProviderUtils {
             values.put(GuideContract.SectionEntry.IMAGE_URI,    section.getImageUri().toString());
         }
 
+        values.put(GuideContract.SectionEntry.IMAGE_HASH,       section.imageHash);
+
         if (section.isDraft()) {
             values.put(GuideContract.SectionEntry.DRAFT,        1);
         }
@@ -768,4 +781,554 @@ public class ContentProviderUtils {
         // Chat is not in database, return 0 for zero messages downloaded
         return 0;
     }
+
+    /**
+     * Retrieves the GpxStats previously calculated for a GPX file from the local database
+     *
+     * @param context    Interface to global Context
+     * @param hash       Hash of the contents of the GPX file
+     * @return The GpxStats for the GPX file or null if they have not been stored
+     */
+    public static GpxStats getGpxStats(Context context, String hash) {
+
+        // Query the database for the hash
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.GpxStatistics.withHash(hash),
+                null, null, null, null);
+
+        if (cursor != null) {
+            try {
+                if (cursor.moveToFirst()) {
+
+                    // Create the GpxStats from the values in the Cursor
+                    GpxStats stats      = new GpxStats();
+                    stats.distance      = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.DISTANCE));
+                    stats.elevation     = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.ELEVATION));
+                    stats.latitude      = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.LATITUDE));
+                    stats.longitude     = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.LONGITUDE));
+                    stats.midLatitude   = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.MID_LATITUDE));
+                    stats.midLongitude  = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.MID_LONGITUDE));
+                    stats.north         = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.NORTH));
+                    stats.south         = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.SOUTH));
+                    stats.east          = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.EAST));
+                    stats.west          = cursor.getDouble(cursor.getColumnIndex(GpxStatsEntry.WEST));
+
+                    return stats;
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Stores the GpxStats calculated for a GPX file in the local database
+     *
+     * @param context    Interface to global Context
+     * @param hash       Hash of the contents of the GPX file
+     * @param stats      GpxStats calculated for the GPX file
+     */
+    public static void insertGpxStats(Context context, String hash, GpxStats stats) {
+
+        ContentValues values = new ContentValues();
+        values.put(GpxStatsEntry.HASH, hash);
+        values.put(GpxStatsEntry.DISTANCE, stats.distance);
+        values.put(GpxStatsEntry.ELEVATION, stats.elevation);
+        values.put(GpxStatsEntry.LATITUDE, stats.latitude);
+        values.put(GpxStatsEntry.LONGITUDE, stats.longitude);
+        values.put(GpxStatsEntry.MID_LATITUDE, stats.midLatitude);
+        values.put(GpxStatsEntry.MID_LONGITUDE, stats.midLongitude);
+        values.put(GpxStatsEntry.NORTH, stats.north);
+        values.put(GpxStatsEntry.SOUTH, stats.south);
+        values.put(GpxStatsEntry.EAST, stats.east);
+        values.put(GpxStatsEntry.WEST, stats.west);
+
+        // Any previous entry for the hash is replaced
+        context.getContentResolver().insert(GuideProvider.GpxStatistics.CONTENT_URI, values);
+    }
+
+    /**
+     * Stores an OfflineRegion that has been created for an Area in the local database
+     *
+     * @param context    Interface to global Context
+     * @param area       Area the OfflineRegion was downloaded for
+     * @param region     Region describing the tiles of the OfflineRegion
+     */
+    public static void insertOfflineRegion(Context context, String area, OfflineRegionPlan.Region region) {
+
+        ContentValues values = new ContentValues();
+        values.put(OfflineRegionEntry.REGION_ID, region.regionId);
+        values.put(OfflineRegionEntry.AREA, area);
+        values.put(OfflineRegionEntry.ZOOM, region.rectZoom);
+        values.put(OfflineRegionEntry.MIN_X, region.rect[0]);
+        values.put(OfflineRegionEntry.MIN_Y, region.rect[1]);
+        values.put(OfflineRegionEntry.MAX_X, region.rect[2]);
+        values.put(OfflineRegionEntry.MAX_Y, region.rect[3]);
+
+        context.getContentResolver().insert(GuideProvider.OfflineRegions.CONTENT_URI, values);
+    }
+
+    /**
+     * Retrieves the OfflineRegions that have been stored for an Area
+     *
+     * @param context    Interface to global Context
+     * @param area       Area to retrieve the OfflineRegions for
+     * @return List of Regions describing the tiles of each OfflineRegion. Their bounds are not
+     * set.
+     */
+    public static List<OfflineRegionPlan.Region> getOfflineRegionsForArea(Context context, String area) {
+
+        List<OfflineRegionPlan.Region> regions = new ArrayList<>();
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.OfflineRegions.CONTENT_URI,
+                null,
+                OfflineRegionEntry.AREA + " = ?",
+                new String[] {area},
+                null);
+
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+
+                    // Create a Region from the values in the Cursor
+                    OfflineRegionPlan.Region region = new OfflineRegionPlan.Region();
+                    region.regionId     = cursor.getLong(cursor.getColumnIndex(OfflineRegionEntry.REGION_ID));
+                    region.rectZoom     = cursor.getInt(cursor.getColumnIndex(OfflineRegionEntry.ZOOM));
+                    region.rect         = new int[] {
+                            cursor.getInt(cursor.getColumnIndex(OfflineRegionEntry.MIN_X)),
+                            cursor.getInt(cursor.getColumnIndex(OfflineRegionEntry.MIN_Y)),
+                            cursor.getInt(cursor.getColumnIndex(OfflineRegionEntry.MAX_X)),
+                            cursor.getInt(cursor.getColumnIndex(OfflineRegionEntry.MAX_Y))};
+
+                    regions.add(region);
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return regions;
+    }
+
+    /**
+     * Checks whether an OfflineRegion has been stored in the local database
+     *
+     * @param context     Interface to global Context
+     * @param regionId    Id of the OfflineRegion
+     * @return True if the OfflineRegion is in the database. False otherwise.
+     */
+    public static boolean isOfflineRegionInDatabase(Context context, long regionId) {
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.OfflineRegions.CONTENT_URI,
+                null,
+                OfflineRegionEntry.REGION_ID + " = ?",
+                new String[] {Long.toString(regionId)},
+                null);
+
+        try {
+            return cursor != null && cursor.getCount() > 0;
+        } finally {
+
+            // Close the Cursor
+            if (cursor != null) cursor.close();
+        }
+    }
+
+    /**
+     * Deletes an OfflineRegion from the local database
+     *
+     * @param context     Interface to global Context
+     * @param regionId    Id of the OfflineRegion
+     */
+    public static void deleteOfflineRegion(Context context, long regionId) {
+
+        context.getContentResolver().delete(
+                GuideProvider.OfflineRegions.CONTENT_URI,
+                OfflineRegionEntry.REGION_ID + " = ?",
+                new String[] {Long.toString(regionId)});
+    }
+
+    /**
+     * Records that a Guide uses the tiles of an OfflineRegion
+     *
+     * @param context     Interface to global Context
+     * @param regionId    Id of the OfflineRegion
+     * @param guideId     FirebaseId of the Guide
+     */
+    public static void insertOfflineRegionGuide(Context context, long regionId, String guideId) {
+
+        ContentValues values = new ContentValues();
+        values.put(OfflineRegionGuideEntry.REGION_ID, regionId);
+        values.put(OfflineRegionGuideEntry.GUIDE_ID, guideId);
+
+        // Any previous entry for the pair is replaced
+        context.getContentResolver().insert(GuideProvider.OfflineRegionGuides.CONTENT_URI, values);
+    }
+
+    /**
+     * Retrieves the Ids of the OfflineRegions used by a Guide
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     * @return List of the Ids of the OfflineRegions
+     */
+    public static List<Long> getOfflineRegionIdsForGuide(Context context, String guideId) {
+
+        List<Long> regionIds = new ArrayList<>();
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.OfflineRegionGuides.CONTENT_URI,
+                null,
+                OfflineRegionGuideEntry.GUIDE_ID + " = ?",
+                new String[] {guideId},
+                null);
+
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    regionIds.add(cursor.getLong(cursor.getColumnIndex(OfflineRegionGuideEntry.REGION_ID)));
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return regionIds;
+    }
+
+    /**
+     * Counts the number of Guides using the tiles of an OfflineRegion
+     *
+     * @param context     Interface to global Context
+     * @param regionId    Id of the OfflineRegion
+     * @return Number of Guides using the OfflineRegion
+     */
+    public static int getOfflineRegionGuideCount(Context context, long regionId) {
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.OfflineRegionGuides.CONTENT_URI,
+                null,
+                OfflineRegionGuideEntry.REGION_ID + " = ?",
+                new String[] {Long.toString(regionId)},
+                null);
+
+        try {
+            return cursor != null
+                    ? cursor.getCount()
+                    : 0;
+        } finally {
+
+            // Close the Cursor
+            if (cursor != null) cursor.close();
+        }
+    }
+
+    /**
+     * Removes the record that a Guide uses the tiles of an OfflineRegion
+     *
+     * @param context     Interface to global Context
+     * @param regionId    Id of the OfflineRegion
+     * @param guideId     FirebaseId of the Guide
+     */
+    public static void deleteOfflineRegionGuide(Context context, long regionId, String guideId) {
+
+        context.getContentResolver().delete(
+                GuideProvider.OfflineRegionGuides.CONTENT_URI,
+                OfflineRegionGuideEntry.REGION_ID + " = ? AND " + OfflineRegionGuideEntry.GUIDE_ID + " = ?",
+                new String[] {Long.toString(regionId), guideId});
+    }
+
+    /**
+     * Removes the records of every OfflineRegion used by a Guide
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     */
+    public static void deleteOfflineRegionGuides(Context context, String guideId) {
+
+        context.getContentResolver().delete(
+                GuideProvider.OfflineRegionGuides.CONTENT_URI,
+                OfflineRegionGuideEntry.GUIDE_ID + " = ?",
+                new String[] {guideId});
+    }
+
+    /**
+     * Retrieves a Guide from the local database
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     * @return The Guide or null if it is not in the database
+     */
+    @Nullable
+    public static Guide getGuideFromDatabase(Context context, String guideId) {
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.Guides.CONTENT_URI,
+                null,
+                GuideContract.GuideEntry.FIREBASE_ID + " = ?",
+                new String[] {guideId},
+                null);
+
+        if (cursor != null) {
+            try {
+                if (cursor.moveToFirst()) {
+                    return Guide.createGuideFromCursor(cursor);
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves the Sections of a Guide from the local database
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     * @return Array of the Guide's Sections in order
+     */
+    public static Section[] getSectionsFromDatabase(Context context, String guideId) {
+
+        List<Section> sections = new ArrayList<>();
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.Sections.CONTENT_URI,
+                null,
+                GuideContract.SectionEntry.GUIDE_ID + " = ?",
+                new String[] {guideId},
+                GuideContract.SectionEntry.SECTION + " ASC");
+
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    sections.add(Section.createSectionFromCursor(cursor));
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return sections.toArray(new Section[sections.size()]);
+    }
+
+    /**
+     * Retrieves an Author from the local database
+     *
+     * @param context     Interface to global Context
+     * @param authorId    FirebaseId of the Author
+     * @return The Author or null if it is not in the database
+     */
+    @Nullable
+    public static Author getAuthorFromDatabase(Context context, String authorId) {
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.Authors.CONTENT_URI,
+                null,
+                GuideContract.AuthorEntry.FIREBASE_ID + " = ?",
+                new String[] {authorId},
+                null);
+
+        if (cursor != null) {
+            try {
+                if (cursor.moveToFirst()) {
+                    return Author.createAuthorFromCursor(cursor);
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieves the FirebaseIds of every Guide that has been saved for offline use
+     *
+     * @param context    Interface to global Context
+     * @return List of the FirebaseIds of the cached Guides
+     */
+    public static List<String> getCachedGuideIds(Context context) {
+
+        List<String> guideIds = new ArrayList<>();
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.Guides.CONTENT_URI,
+                new String[] {GuideContract.GuideEntry.FIREBASE_ID},
+                GuideContract.GuideEntry.IMAGE_URI + " IS NOT NULL AND " + GuideContract.GuideEntry.DRAFT + " IS NULL",
+                null,
+                null);
+
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    guideIds.add(cursor.getString(0));
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return guideIds;
+    }
+
+    /**
+     * Records the storage used by a Guide that has just been saved for offline use
+     *
+     * @param context     Interface to global Context
+     * @param guideId     FirebaseId of the Guide
+     * @param fileSize    Bytes used by the Guide's database rows and files
+     * @param accessed    Time the Guide was last opened in milliseconds
+     * @param version     Time the Guide was last modified on Firebase
+     */
+    public static void insertOfflineGuide(Context context, String guideId, long fileSize,
+                                          long accessed, long version) {
+
+        ContentValues values = new ContentValues();
+        values.put(OfflineGuideEntry.GUIDE_ID, guideId);
+        values.put(OfflineGuideEntry.LAST_ACCESSED, accessed);
+        values.put(OfflineGuideEntry.FILE_SIZE, fileSize);
+        values.put(OfflineGuideEntry.MAP_SIZE, 0);
+        values.put(OfflineGuideEntry.VERSION, version);
+
+        // Any previous entry for the Guide is replaced
+        context.getContentResolver().insert(GuideProvider.OfflineGuides.CONTENT_URI, values);
+    }
+
+    /**
+     * Records that a cached Guide has been opened. Nothing is recorded for Guides that aren't
+     * cached.
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     */
+    public static void updateOfflineGuideAccess(Context context, String guideId) {
+
+        ContentValues values = new ContentValues();
+        values.put(OfflineGuideEntry.LAST_ACCESSED, System.currentTimeMillis());
+
+        context.getContentResolver().update(
+                GuideProvider.OfflineGuides.CONTENT_URI,
+                values,
+                OfflineGuideEntry.GUIDE_ID + " = ?",
+                new String[] {guideId});
+    }
+
+    /**
+     * Records the new size and version of a cached Guide that has been updated
+     *
+     * @param context     Interface to global Context
+     * @param guideId     FirebaseId of the Guide
+     * @param fileSize    Bytes used by the Guide's database rows and files
+     * @param version     Time the Guide was last modified on Firebase
+     */
+    public static void updateOfflineGuideVersion(Context context, String guideId, long fileSize, long version) {
+
+        ContentValues values = new ContentValues();
+        values.put(OfflineGuideEntry.FILE_SIZE, fileSize);
+        values.put(OfflineGuideEntry.VERSION, version);
+
+        context.getContentResolver().update(
+                GuideProvider.OfflineGuides.CONTENT_URI,
+                values,
+                OfflineGuideEntry.GUIDE_ID + " = ?",
+                new String[] {guideId});
+    }
+
+    /**
+     * Records the size of a cached Guide's share of the map tiles
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     * @param mapSize    Bytes of map tiles used by the Guide
+     */
+    public static void updateOfflineGuideMapSize(Context context, String guideId, long mapSize) {
+
+        ContentValues values = new ContentValues();
+        values.put(OfflineGuideEntry.MAP_SIZE, mapSize);
+
+        context.getContentResolver().update(
+                GuideProvider.OfflineGuides.CONTENT_URI,
+                values,
+                OfflineGuideEntry.GUIDE_ID + " = ?",
+                new String[] {guideId});
+    }
+
+    /**
+     * Retrieves the storage used by each cached Guide
+     *
+     * @param context    Interface to global Context
+     * @return List of the OfflineGuideStorage for each cached Guide, least recently opened first
+     */
+    public static List<OfflineGuideStorage> getOfflineGuides(Context context) {
+
+        List<OfflineGuideStorage> guides = new ArrayList<>();
+
+        Cursor cursor = context.getContentResolver().query(
+                GuideProvider.OfflineGuides.CONTENT_URI,
+                null,
+                null,
+                null,
+                OfflineGuideEntry.LAST_ACCESSED + " ASC");
+
+        if (cursor != null) {
+            try {
+                int idxGuideId      = cursor.getColumnIndex(OfflineGuideEntry.GUIDE_ID);
+                int idxAccessed     = cursor.getColumnIndex(OfflineGuideEntry.LAST_ACCESSED);
+                int idxFileSize     = cursor.getColumnIndex(OfflineGuideEntry.FILE_SIZE);
+                int idxMapSize      = cursor.getColumnIndex(OfflineGuideEntry.MAP_SIZE);
+                int idxVersion      = cursor.getColumnIndex(OfflineGuideEntry.VERSION);
+
+                while (cursor.moveToNext()) {
+                    OfflineGuideStorage guide = new OfflineGuideStorage();
+                    guide.guideId = cursor.getString(idxGuideId);
+                    guide.lastAccessed = cursor.getLong(idxAccessed);
+                    guide.fileSize = cursor.getLong(idxFileSize);
+                    guide.mapSize = cursor.getLong(idxMapSize);
+                    guide.version = cursor.getLong(idxVersion);
+
+                    guides.add(guide);
+                }
+            } finally {
+
+                // Close the Cursor
+                cursor.close();
+            }
+        }
+
+        return guides;
+    }
+
+    /**
+     * Removes the storage record for a Guide that is no longer cached
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     */
+    public static void deleteOfflineGuide(Context context, String guideId) {
+
+        context.getContentResolver().delete(
+                GuideProvider.OfflineGuides.CONTENT_URI,
+                OfflineGuideEntry.GUIDE_ID + " = ?",
+                new String[] {guideId});
+    }
 }
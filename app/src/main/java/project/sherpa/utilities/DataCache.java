@@ -1,26 +1,123 @@
 package project.sherpa.utilities;
 
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v4.util.LruCache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import project.sherpa.BuildConfig;
 
 import project.sherpa.models.datamodels.Author;
+import project.sherpa.models.datamodels.Chat;
+import project.sherpa.models.datamodels.Guide;
 import project.sherpa.models.datamodels.Section;
 import project.sherpa.models.datamodels.abstractmodels.BaseModel;
 
 /**
  * Created by Alvin on 8/26/2017.
+ *
+ * In-memory cache of data models. Each model type has its own LRU cache bounded by the estimated
+ * number of bytes its models use so that a burst of one type of model can't evict every other
+ * type. The cache is trimmed in steps as the system reports memory pressure.
+ *
+ * Models that are handed from one Activity to another can be pinned so that they are held
+ * strongly, regardless of eviction, until the Activity that pinned them unpins them.
+ *
+ * The DataCache may be used from any thread. Operations on the same key are serialized by one of
+ * a fixed set of striped locks so that unrelated keys don't contend with each other, and
+ * getOrLoad() ensures that concurrent requests for a model that isn't cached share one load.
+ *
+ * Models can also be persisted to a disk tier in the app's cache directory so that they are
+ * available immediately on a cold start. Each file is stamped with the app's version code and the
+ * time it was written, and is ignored if it was written by a different version of the app or is
+ * older than the maximum age requested when it is restored.
+ *
+ * Each type's cache keeps CacheStats counting hits, misses, loads and evictions along with the
+ * estimated bytes it holds so the budgets can be sized from real usage. Loads count models added
+ * by getOrLoad() or restored from disk. A miss is attributed to a type once the missing model is
+ * loaded through getOrLoad(), as that is the first point its type is known. Misses from get() that
+ * are never loaded are counted as unresolved misses.
  */
 
 public class DataCache {
+    // ** Constants ** //
+    private static final int GUIDE_CACHE_BYTES      = 512 * 1024;
+    private static final int AUTHOR_CACHE_BYTES     = 256 * 1024;
+    private static final int CHAT_CACHE_BYTES       = 128 * 1024;
+    private static final int MODEL_CACHE_BYTES      = 128 * 1024;
+    private static final int SECTION_CACHE_BYTES    = 1024 * 1024;
+
+    // Estimated fixed cost of a model and of each of its Strings
+    private static final int MODEL_OVERHEAD         = 512;
+    private static final int STRING_OVERHEAD        = 40;
+
+    // Number of locks that keys are distributed across. Must be a power of two.
+    private static final int LOCK_STRIPES           = 16;
+
+    // Disk tier
+    private static final String DISK_DIRECTORY      = "datacache";
+    private static final int DISK_MAGIC             = 0x53444346; // "SDCF"
 
     // ** Member Variables ** //
     private static DataCache sDataCache = new DataCache();
-    private HashMap<String, SoftReference<BaseModel>> mDataMap;
-    private HashMap<String, SoftReference<Section[]>> mArrayMap;
+    private ModelLruCache mGuideCache;
+    private ModelLruCache mAuthorCache;
+    private ModelLruCache mChatCache;
+    private ModelLruCache mModelCache;
+    private SectionLruCache mSectionCache;
+
+    private ConcurrentHashMap<String, BaseModel> mPinnedModels;
+    private ConcurrentHashMap<String, Section[]> mPinnedSections;
+
+    private final Object[] mLocks;
+    private ConcurrentHashMap<String, List<Callback>> mPendingLoads;
+
+    private ExecutorService mDiskExecutor;
+    private Handler mMainHandler;
+
+    private AtomicLong mUnresolvedMisses;
 
     private DataCache() {
-        mDataMap = new HashMap<>();
-        mArrayMap = new HashMap<>();
+        mGuideCache = new ModelLruCache("Guide", GUIDE_CACHE_BYTES);
+        mAuthorCache = new ModelLruCache("Author", AUTHOR_CACHE_BYTES);
+        mChatCache = new ModelLruCache("Chat", CHAT_CACHE_BYTES);
+        mModelCache = new ModelLruCache("Other", MODEL_CACHE_BYTES);
+        mSectionCache = new SectionLruCache("Section", SECTION_CACHE_BYTES);
+
+        mPinnedModels = new ConcurrentHashMap<>();
+        mPinnedSections = new ConcurrentHashMap<>();
+
+        mLocks = new Object[LOCK_STRIPES];
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            mLocks[i] = new Object();
+        }
+
+        mPendingLoads = new ConcurrentHashMap<>();
+
+        // Disk operations run in order on a single thread so a restore always sees the most
+        // recent write
+        mDiskExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+
+        mUnresolvedMisses = new AtomicLong();
     }
 
     /**
@@ -39,47 +136,34 @@ public class DataCache {
      */
     public void store(BaseModel model) {
 
-        // Create a SoftReference to the data
-        SoftReference<BaseModel> dataReference = new SoftReference<>(model);
+        ModelLruCache cache = getCacheForModel(model);
 
-        lock(model);
+        synchronized (getLock(model.firebaseId)) {
 
-        // Check to see if model being added to the cache is already in the cache
-        if (get(model.firebaseId) != null) {
+            // Check to see if model being added to the cache is already in the cache
+            BaseModel cachedModel = cache.get(model.firebaseId);
 
-            // Update the model with the new values instead of replacing it
-            BaseModel cachedModel = get(model.firebaseId);
-            cachedModel.updateValues(model);
+            if (cachedModel == null) {
+                cachedModel = mPinnedModels.get(model.firebaseId);
+            }
 
-        } else {
-            // Add the SoftReference to the DataCache
-            mDataMap.put(model.firebaseId, dataReference);
-        }
-    }
+            if (cachedModel != null) {
 
-    /**
-     * Helper method to keep the Object cached for a short period of time to allow the cache to
-     * be able to pass Objects from one Activity to another
-     *
-     * @param model    Model to be locked
-     */
-    private void lock(BaseModel model) {
+                // Remove the model before it is changed so the LruCache subtracts the size it
+                // was added with
+                cache.remove(model.firebaseId);
 
-        // Start a new Thread for a short period of time. Due to the hard-reference to the Object
-        // in the signature, this will keep the Object from being GC'd for however long the Thread
-        // is alive.
-        Thread t = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        });
+                // Update the model with the new values instead of replacing it
+                cachedModel.updateValues(model);
+
+                // Re-insert the model so it is counted with the size of its new values
+                cache.put(model.firebaseId, cachedModel);
 
-        t.start();
+            } else {
+                // Add the model to the DataCache
+                cache.put(model.firebaseId, model);
+            }
+        }
     }
 
     /**
@@ -92,11 +176,8 @@ public class DataCache {
         // Get a reference to one of the Sections for the guide's firebaseId
         Section section = sections[0];
 
-        // Create a SoftReference to the Array
-        SoftReference<Section[]> arrayReference = new SoftReference<>(sections);
-
         // Cache the Array
-        mArrayMap.put(section.guideId, arrayReference);
+        mSectionCache.put(section.guideId, sections);
     }
 
     /**
@@ -107,21 +188,146 @@ public class DataCache {
      */
     public BaseModel get(String firebaseId) {
 
-        // Attempt to retrieve the data from cache
-        SoftReference<BaseModel> dataReference = mDataMap.get(firebaseId);
+        if (firebaseId == null) {
+            return null;
+        }
 
-        // Check to ensure the data is valid
-        if (dataReference != null && dataReference.get() != null) {
+        synchronized (getLock(firebaseId)) {
 
-            // Return the data from the SoftReference
-            return dataReference.get();
-        } else {
+            BaseModel model = getModel(firebaseId);
 
-            // Does not exist in the cache. Return null
-            return null;
+            if (model != null) {
+                getCacheForModel(model).stats.mHits.incrementAndGet();
+            } else {
+                mUnresolvedMisses.incrementAndGet();
+            }
+
+            return model;
         }
     }
 
+    /**
+     * Retrieves a data model from the cache without recording it in the CacheStats. Must be
+     * called while holding the lock for the FirebaseId.
+     *
+     * @param firebaseId    The FirebaseId used as the key to the data model from the cache
+     * @return The data model associated with the FirebaseId
+     */
+    private BaseModel getModel(String firebaseId) {
+
+        // Check the cache for each type of model
+        BaseModel model = mGuideCache.get(firebaseId);
+
+        if (model == null) {
+            model = mAuthorCache.get(firebaseId);
+        }
+
+        if (model == null) {
+            model = mChatCache.get(firebaseId);
+        }
+
+        if (model == null) {
+            model = mModelCache.get(firebaseId);
+        }
+
+        if (model == null) {
+
+            // Restore pinned models that have been evicted
+            model = mPinnedModels.get(firebaseId);
+
+            if (model != null) {
+                getCacheForModel(model).put(firebaseId, model);
+            }
+        }
+
+        return model;
+    }
+
+    /**
+     * Retrieves a data model from the cache, loading it with the Loader if it isn't cached.
+     * Requests for the same FirebaseId that are made while a load is in progress wait for that
+     * load instead of starting another, and every Callback receives the same cached instance.
+     *
+     * @param firebaseId    The FirebaseId of the data model to retrieve
+     * @param loader        Loader used to retrieve the data model if it isn't cached
+     * @param callback      Callback to pass the data model to. Called immediately if the model is
+     *                      cached, otherwise on the thread the Loader completes on.
+     */
+    public void getOrLoad(final String firebaseId, Loader loader, Callback callback) {
+
+        BaseModel cachedModel;
+
+        synchronized (getLock(firebaseId)) {
+
+            cachedModel = getModel(firebaseId);
+
+            if (cachedModel == null) {
+
+                // Wait for the load that is already in progress
+                List<Callback> callbacks = mPendingLoads.get(firebaseId);
+
+                if (callbacks != null) {
+                    callbacks.add(callback);
+                    return;
+                }
+
+                // Start a new load
+                callbacks = new ArrayList<>();
+                callbacks.add(callback);
+                mPendingLoads.put(firebaseId, callbacks);
+
+            } else {
+                getCacheForModel(cachedModel).stats.mHits.incrementAndGet();
+            }
+        }
+
+        // Pass the cached model outside of the lock so the Callback can't deadlock with other
+        // requests to the cache
+        if (cachedModel != null) {
+            callback.onModelReady(cachedModel);
+            return;
+        }
+
+        // Load outside of the lock so a Loader that completes synchronously can't deadlock
+        loader.load(firebaseId, new Callback() {
+            @Override
+            public void onModelReady(BaseModel model) {
+
+                List<Callback> callbacks;
+
+                synchronized (getLock(firebaseId)) {
+
+                    // Cache the model and pass the cached instance to everyone waiting for it
+                    if (model != null) {
+                        store(model);
+
+                        // The model may already have been trimmed from the cache if it doesn't
+                        // fit, in which case the loaded instance is passed on instead
+                        BaseModel storedModel = getModel(firebaseId);
+
+                        if (storedModel != null) {
+                            model = storedModel;
+                        }
+
+                        CacheStats stats = getCacheForModel(model).stats;
+                        stats.mMisses.incrementAndGet();
+                        stats.mLoads.incrementAndGet();
+                    } else {
+                        mUnresolvedMisses.incrementAndGet();
+                    }
+
+                    callbacks = mPendingLoads.remove(firebaseId);
+                }
+
+                if (callbacks == null) return;
+
+                for (Callback callback : callbacks) {
+                    callback.onModelReady(model);
+                }
+            }
+        });
+    }
+
     /**
      * Retrieves an Array of Sections from the cache
      *
@@ -130,18 +336,623 @@ public class DataCache {
      */
     public Section[] getSections(String guideId) {
 
-        // Attempt to retrieve the data from cache
-        SoftReference<Section[]> sectionReference = mArrayMap.get(guideId);
+        if (guideId == null) {
+            return null;
+        }
 
-        // Check to ensure the data is valid
-        if (sectionReference != null && sectionReference.get() != null) {
+        synchronized (getLock(guideId)) {
 
-            // Return the data from the SoftReference
-            return sectionReference.get();
-        } else {
+            Section[] sections = mSectionCache.get(guideId);
+
+            if (sections == null) {
+
+                // Restore pinned Sections that have been evicted
+                sections = mPinnedSections.get(guideId);
+
+                if (sections != null) {
+                    mSectionCache.put(guideId, sections);
+                }
+            }
+
+            if (sections != null) {
+                mSectionCache.stats.mHits.incrementAndGet();
+            } else {
+                mSectionCache.stats.mMisses.incrementAndGet();
+            }
+
+            return sections;
+        }
+    }
+
+    /**
+     * Stores a data model in the DataCache and holds it strongly until it is unpinned, so that it
+     * is available to an Activity that is started with its FirebaseId. Pinning a model that is
+     * already pinned has no further effect.
+     *
+     * @param model    The data model to be cached and pinned
+     */
+    public void pin(BaseModel model) {
+
+        synchronized (getLock(model.firebaseId)) {
+            store(model);
+
+            // Pin the instance in the cache as it may have been updated instead of replaced
+            mPinnedModels.put(model.firebaseId, getModel(model.firebaseId));
+        }
+    }
+
+    /**
+     * Stores an Array of Sections in the DataCache and holds it strongly until it is unpinned
+     *
+     * @param sections    The Array of Sections to be cached and pinned
+     */
+    public void pin(Section[] sections) {
+
+        synchronized (getLock(sections[0].guideId)) {
+            store(sections);
+            mPinnedSections.put(sections[0].guideId, sections);
+        }
+    }
+
+    /**
+     * Releases a pinned data model so it may be evicted like any other model
+     *
+     * @param firebaseId    FirebaseId of the model to unpin
+     */
+    public void unpin(String firebaseId) {
+        mPinnedModels.remove(firebaseId);
+    }
+
+    /**
+     * Releases a pinned Array of Sections so it may be evicted like any other model
+     *
+     * @param guideId    FirebaseId of the Guide associated with the Sections
+     */
+    public void unpinSections(String guideId) {
+        mPinnedSections.remove(guideId);
+    }
+
+    /**
+     * Writes data models to the disk tier in the background so they can be restored on the next
+     * cold start
+     *
+     * @param context    Interface to global Context
+     * @param key        Key to store the models under
+     * @param models     Array of models to be written
+     */
+    public <T extends BaseModel & Parcelable> void persist(Context context, final String key, final T[] models) {
+
+        final File directory = new File(context.getCacheDir(), DISK_DIRECTORY);
+
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeToDisk(directory, key, models);
+            }
+        });
+    }
+
+    /**
+     * Reads data models from the disk tier in the background. Restored models are added to the
+     * in-memory cache unless they are already cached, and the cached instances are passed to the
+     * DiskCallback on the main thread.
+     *
+     * @param context     Interface to global Context
+     * @param key         Key the models were stored under
+     * @param creator     Parcelable.Creator for the type of models stored
+     * @param maxAge      Maximum time in milliseconds since the models were written for them to
+     *                    be restored
+     * @param callback    Callback to pass the restored models to. Receives null if there were no
+     *                    models for the key or if they are stale.
+     */
+    public <T extends BaseModel & Parcelable> void restore(Context context, final String key,
+                                                           final Parcelable.Creator<T> creator,
+                                                           final long maxAge,
+                                                           final DiskCallback<T> callback) {
+
+        final File directory = new File(context.getCacheDir(), DISK_DIRECTORY);
+
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+
+                final T[] models = readFromDisk(directory, key, creator, maxAge);
+
+                if (models != null) {
+
+                    // Add the models to memory. Models that are already in memory are at least
+                    // as fresh as those on disk, so the cached instance is used instead.
+                    for (int i = 0; i < models.length; i++) {
+
+                        synchronized (getLock(models[i].firebaseId)) {
+
+                            @SuppressWarnings("unchecked")
+                            T cached = (T) getModel(models[i].firebaseId);
+
+                            if (cached != null) {
+                                models[i] = cached;
+                            } else {
+                                store(models[i]);
+                                getCacheForModel(models[i]).stats.mLoads.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onRestored(models);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Writes data models to a File in the disk tier. The models are written to a temporary File
+     * first so a partially written File is never read.
+     *
+     * @param directory    Directory of the disk tier
+     * @param key          Key to store the models under
+     * @param models       Array of models to be written
+     */
+    private static <T extends BaseModel & Parcelable> void writeToDisk(File directory, String key, T[] models) {
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        File file = new File(directory, key);
+        File tempFile = new File(directory, key + ".tmp");
+
+        // Flatten the models
+        Parcel parcel = Parcel.obtain();
+        byte[] bytes;
+
+        try {
+            parcel.writeTypedArray(models, 0);
+            bytes = parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+
+        try {
+            DataOutputStream outStream = new DataOutputStream(new FileOutputStream(tempFile));
+
+            try {
+                // Write the header followed by the models
+                outStream.writeInt(DISK_MAGIC);
+                outStream.writeInt(BuildConfig.VERSION_CODE);
+                outStream.writeLong(System.currentTimeMillis());
+                outStream.writeInt(bytes.length);
+                outStream.write(bytes);
+            } finally {
+                outStream.close();
+            }
 
-            // Does not exist in the cache. Return null
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+            }
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Reads data models from a File in the disk tier
+     *
+     * @param directory    Directory of the disk tier
+     * @param key          Key the models were stored under
+     * @param creator      Parcelable.Creator for the type of models stored
+     * @param maxAge       Maximum age of the File in milliseconds
+     * @return Array of models or null if the File is missing, stale, or was written by a
+     * different version of the app
+     */
+    private static <T extends BaseModel & Parcelable> T[] readFromDisk(File directory, String key,
+                                                                      Parcelable.Creator<T> creator,
+                                                                      long maxAge) {
+
+        File file = new File(directory, key);
+
+        if (!file.exists()) {
             return null;
         }
+
+        try {
+            DataInputStream inStream = new DataInputStream(new FileInputStream(file));
+
+            try {
+                // Parcels are only guaranteed to be readable by the same version of the app
+                if (inStream.readInt() != DISK_MAGIC
+                        || inStream.readInt() != BuildConfig.VERSION_CODE) {
+                    file.delete();
+                    return null;
+                }
+
+                long age = System.currentTimeMillis() - inStream.readLong();
+
+                if (age > maxAge || age < 0) {
+                    return null;
+                }
+
+                byte[] bytes = new byte[inStream.readInt()];
+                inStream.readFully(bytes);
+
+                // Re-create the models from the bytes
+                Parcel parcel = Parcel.obtain();
+
+                try {
+                    parcel.unmarshall(bytes, 0, bytes.length);
+                    parcel.setDataPosition(0);
+
+                    return parcel.createTypedArray(creator);
+                } finally {
+                    parcel.recycle();
+                }
+            } finally {
+                inStream.close();
+            }
+
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+
+            // Discard a corrupt File
+            file.delete();
+        }
+
+        return null;
+    }
+
+    /**
+     * Shrinks the cache in response to the system reporting memory pressure. The more severe the
+     * pressure, the more of each cache is evicted, starting with the least recently used models.
+     *
+     * @param level    Level passed to ComponentCallbacks2.onTrimMemory
+     */
+    public void trimMemory(int level) {
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+
+            // App is next to be killed. Release everything.
+            evictAll();
+
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+
+            // Keep the most recently used quarter
+            trimToFraction(4);
+
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+
+            // Keep the most recently used half
+            trimToFraction(2);
+        }
+    }
+
+    /**
+     * Removes every model from the cache
+     */
+    public void evictAll() {
+        mGuideCache.evictAll();
+        mAuthorCache.evictAll();
+        mChatCache.evictAll();
+        mModelCache.evictAll();
+        mSectionCache.evictAll();
+    }
+
+    /**
+     * Trims each cache to a fraction of its maximum size
+     *
+     * @param divisor    Divisor of the maximum size of each cache
+     */
+    private void trimToFraction(int divisor) {
+        mGuideCache.trimToSize(mGuideCache.maxSize() / divisor);
+        mAuthorCache.trimToSize(mAuthorCache.maxSize() / divisor);
+        mChatCache.trimToSize(mChatCache.maxSize() / divisor);
+        mModelCache.trimToSize(mModelCache.maxSize() / divisor);
+        mSectionCache.trimToSize(mSectionCache.maxSize() / divisor);
+    }
+
+    /**
+     * Retrieves the CacheStats for each type of model in the cache
+     *
+     * @return List of the CacheStats for each type of model
+     */
+    public List<CacheStats> getStats() {
+
+        List<CacheStats> statsList = new ArrayList<>();
+        statsList.add(mGuideCache.stats);
+        statsList.add(mAuthorCache.stats);
+        statsList.add(mChatCache.stats);
+        statsList.add(mModelCache.stats);
+        statsList.add(mSectionCache.stats);
+
+        return statsList;
+    }
+
+    /**
+     * Retrieves the number of times get() was called for a data model that wasn't cached and
+     * whose type is therefore unknown
+     *
+     * @return Number of unresolved misses
+     */
+    public long getUnresolvedMisses() {
+        return mUnresolvedMisses.get();
+    }
+
+    /**
+     * Resets the counters of every CacheStats. The estimated bytes are unaffected as they reflect
+     * the current contents of the cache.
+     */
+    public void resetStats() {
+        for (CacheStats stats : getStats()) {
+            stats.reset();
+        }
+
+        mUnresolvedMisses.set(0);
+    }
+
+    /**
+     * Generates a human-readable summary of the CacheStats for each type of model, e.g. for
+     * logging from an instrumentation test
+     *
+     * @return Summary of the DataCache's CacheStats
+     */
+    public String dumpStats() {
+
+        StringBuilder builder = new StringBuilder();
+
+        for (CacheStats stats : getStats()) {
+            builder.append(stats).append('\n');
+        }
+
+        builder.append("Unresolved misses: ").append(getUnresolvedMisses());
+
+        return builder.toString();
+    }
+
+    /**
+     * Selects the lock that guards the entries for a key
+     *
+     * @param key    FirebaseId used as a key in the cache
+     * @return The lock for the key's stripe
+     */
+    private Object getLock(String key) {
+
+        // Spread the bits of the hash so keys with similar hashes use different stripes
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+
+        return mLocks[hash & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Selects the cache that models of the same type as a model are stored in
+     *
+     * @param model    Model to get the cache for
+     * @return The cache for the model's type
+     */
+    private ModelLruCache getCacheForModel(BaseModel model) {
+
+        if (model instanceof Guide) {
+            return mGuideCache;
+        } else if (model instanceof Author) {
+            return mAuthorCache;
+        } else if (model instanceof Chat) {
+            return mChatCache;
+        } else {
+            return mModelCache;
+        }
+    }
+
+    /**
+     * Estimates the number of bytes used by a data model
+     *
+     * @param model    Model to estimate the size of
+     * @return Estimated size of the model in bytes
+     */
+    private static int estimateSize(BaseModel model) {
+
+        int size = MODEL_OVERHEAD + estimateSize(model.firebaseId);
+
+        if (model instanceof Guide) {
+            Guide guide = (Guide) model;
+
+            size += estimateSize(guide.getTitle())
+                    + estimateSize(guide.trailName)
+                    + estimateSize(guide.authorName)
+                    + estimateSize(guide.area);
+
+        } else if (model instanceof Author) {
+            Author author = (Author) model;
+
+            size += estimateSize(author.name)
+                    + estimateSize(author.description);
+
+            // Favorites are the only collection that can grow large
+            if (author.favorites != null) {
+                size += author.favorites.size() * 2 * STRING_OVERHEAD;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Estimates the number of bytes used by an Array of Sections
+     *
+     * @param sections    Array of Sections to estimate the size of
+     * @return Estimated size of the Array in bytes
+     */
+    private static int estimateSize(Section[] sections) {
+
+        int size = 0;
+
+        for (Section section : sections) {
+            size += MODEL_OVERHEAD + estimateSize(section.content);
+        }
+
+        return Math.max(size, 1);
+    }
+
+    /**
+     * Estimates the number of bytes used by a String
+     */
+    private static int estimateSize(String string) {
+        return string != null
+                ? STRING_OVERHEAD + string.length() * 2
+                : 0;
+    }
+
+    /**
+     * LruCache for data models sized by the estimated bytes used by each model
+     */
+    private static class ModelLruCache extends LruCache<String, BaseModel> {
+        // ** Member Variables ** //
+        final CacheStats stats;
+
+        ModelLruCache(String name, int maxSize) {
+            super(maxSize);
+            stats = new CacheStats(name, this);
+        }
+
+        @Override
+        protected int sizeOf(String key, BaseModel model) {
+            return estimateSize(model);
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, BaseModel oldValue, BaseModel newValue) {
+            if (evicted) {
+                stats.mEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * LruCache for Arrays of Sections sized by the estimated bytes used by each Array
+     */
+    private static class SectionLruCache extends LruCache<String, Section[]> {
+        // ** Member Variables ** //
+        final CacheStats stats;
+
+        SectionLruCache(String name, int maxSize) {
+            super(maxSize);
+            stats = new CacheStats(name, this);
+        }
+
+        @Override
+        protected int sizeOf(String key, Section[] sections) {
+            return estimateSize(sections);
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Section[] oldValue, Section[] newValue) {
+            if (evicted) {
+                stats.mEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Counters describing how effective the cache for one type of model has been
+     */
+    public static class CacheStats {
+        // ** Member Variables ** //
+        private final String mName;
+        private final LruCache<String, ?> mCache;
+        private final AtomicLong mHits = new AtomicLong();
+        private final AtomicLong mMisses = new AtomicLong();
+        private final AtomicLong mLoads = new AtomicLong();
+        private final AtomicLong mEvictions = new AtomicLong();
+
+        CacheStats(String name, LruCache<String, ?> cache) {
+            mName = name;
+            mCache = cache;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public long getHits() {
+            return mHits.get();
+        }
+
+        public long getMisses() {
+            return mMisses.get();
+        }
+
+        public long getLoads() {
+            return mLoads.get();
+        }
+
+        public long getEvictions() {
+            return mEvictions.get();
+        }
+
+        /**
+         * @return The estimated number of bytes used by the models currently in the cache
+         */
+        public int getBytes() {
+            return mCache.size();
+        }
+
+        /**
+         * @return The maximum number of bytes the cache may hold before evicting models
+         */
+        public int getMaxBytes() {
+            return mCache.maxSize();
+        }
+
+        /**
+         * @return The fraction of requests that were served from the cache, or 0 if there have
+         * been no requests
+         */
+        public double getHitRate() {
+            long hits = mHits.get();
+            long total = hits + mMisses.get();
+
+            return total > 0
+                    ? (double) hits / total
+                    : 0;
+        }
+
+        void reset() {
+            mHits.set(0);
+            mMisses.set(0);
+            mLoads.set(0);
+            mEvictions.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: %d hits, %d misses (%.1f%% hit rate), %d loads, %d evictions, %d/%d bytes",
+                    mName,
+                    getHits(),
+                    getMisses(),
+                    getHitRate() * 100,
+                    getLoads(),
+                    getEvictions(),
+                    getBytes(),
+                    getMaxBytes());
+        }
+    }
+
+    public interface Loader {
+        void load(String firebaseId, Callback callback);
+    }
+
+    public interface Callback {
+        void onModelReady(BaseModel model);
+    }
+
+    public interface DiskCallback<T> {
+        void onRestored(T[] models);
     }
 }
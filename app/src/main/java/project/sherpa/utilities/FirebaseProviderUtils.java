@@ -23,6 +23,7 @@ import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -161,6 +162,19 @@ public class FirebaseProviderUtils {
             modelList.add(model);
         }
 
+        return createModelArray(type, modelList);
+    }
+
+    /**
+     * Copies a List of BaseModels to an Array of the BaseModel's type so that it can be cast to
+     * an Array of the subclass
+     *
+     * @param type         The FirebaseType of the BaseModels in the List
+     * @param modelList    List of BaseModels to copy
+     * @return An Array of the FirebaseType containing the BaseModels from the List
+     */
+    public static BaseModel[] createModelArray(@FirebaseType int type, List<BaseModel> modelList) {
+
         // Create a new Array to return
         BaseModel[] models;
 
@@ -309,6 +323,42 @@ public class FirebaseProviderUtils {
                 });
     }
 
+    /**
+     * Retrieves a Model from the DataCache, downloading it from Firebase Database if it has not
+     * been cached. Concurrent requests for the same Model share one download.
+     *
+     * @param type          FirebaseType pertaining to the type of BaseModel to be retrieved
+     * @param firebaseId    FirebaseId of entry to be retrieved
+     * @param listener      FirebaseListener that will be used to pass the retrieved object to the
+     *                      calling Object
+     */
+    public static void getCachedModel(@FirebaseType final int type,
+                                      @NonNull String firebaseId,
+                                      @NonNull final FirebaseListener listener) {
+
+        DataCache.getInstance().getOrLoad(
+                firebaseId,
+                new DataCache.Loader() {
+                    @Override
+                    public void load(String firebaseId, final DataCache.Callback callback) {
+
+                        // Download the Model from Firebase
+                        getModel(type, firebaseId, new FirebaseListener() {
+                            @Override
+                            public void onModelReady(BaseModel model) {
+                                callback.onModelReady(model);
+                            }
+                        });
+                    }
+                },
+                new DataCache.Callback() {
+                    @Override
+                    public void onModelReady(BaseModel model) {
+                        listener.onModelReady(model);
+                    }
+                });
+    }
+
     /**
      * Retrieves an Array of Sections from Firebase Database corresponding to the FirebaseId of
      * a Guide
@@ -356,6 +406,188 @@ public class FirebaseProviderUtils {
         });
     }
 
+    /**
+     * Retrieves several Models of the same type at once. The requests are issued together so they
+     * are pipelined over Firebase Database's single connection, and Models already in the
+     * DataCache are not downloaded again. The listener is notified once every request has
+     * finished.
+     *
+     * @param type           FirebaseType of the Models to retrieve
+     * @param firebaseIds    FirebaseIds of the Models to retrieve
+     * @param listener       Listener to pass the retrieved Models to. Models that could not be
+     *                       retrieved are left out.
+     */
+    public static void getModels(@FirebaseType int type,
+                                 @NonNull Collection<String> firebaseIds,
+                                 @NonNull final FirebaseArrayListener listener) {
+
+        final List<BaseModel> models = new ArrayList<>();
+        final int[] remaining = {firebaseIds.size()};
+
+        if (remaining[0] == 0) {
+            listener.onModelsReady(new BaseModel[0]);
+            return;
+        }
+
+        for (String firebaseId : firebaseIds) {
+            getCachedModel(type, firebaseId, new FirebaseListener() {
+                @Override
+                public void onModelReady(BaseModel model) {
+
+                    if (model != null) {
+                        models.add(model);
+                    }
+
+                    // Notify the listener after the last request
+                    if (--remaining[0] == 0) {
+                        listener.onModelsReady(models.toArray(new BaseModel[models.size()]));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Retrieves the Sections for several Guides at once. The requests are issued together so
+     * they are pipelined over Firebase Database's single connection and the listener is notified
+     * once every request has finished. The Sections are stored in the DataCache.
+     *
+     * @param guideIds    FirebaseIds of the Guides to retrieve the Sections for
+     * @param listener    Listener to pass the Sections for each Guide to. Guides that have no
+     *                    Sections are given an empty Array. Guides whose Sections could not be
+     *                    retrieved are left out.
+     */
+    public static void getSectionsForGuides(@NonNull Collection<String> guideIds,
+                                            @NonNull final FirebaseSectionsListener listener) {
+        getSectionsForGuides(guideIds, true, listener);
+    }
+
+    /**
+     * Retrieves the Sections for several Guides at once, optionally skipping the DataCache so the
+     * latest Sections are always downloaded
+     *
+     * @param guideIds    FirebaseIds of the Guides to retrieve the Sections for
+     * @param useCache    Whether Sections already in the DataCache should be used
+     * @param listener    Listener to pass the Sections for each Guide to. Guides that have no
+     *                    Sections are given an empty Array. Guides whose Sections could not be
+     *                    retrieved are left out.
+     */
+    public static void getSectionsForGuides(@NonNull Collection<String> guideIds,
+                                            boolean useCache,
+                                            @NonNull final FirebaseSectionsListener listener) {
+
+        final Map<String, Section[]> sectionMap = new HashMap<>();
+        final int[] remaining = {guideIds.size()};
+
+        if (remaining[0] == 0) {
+            listener.onSectionsReady(sectionMap);
+            return;
+        }
+
+        for (final String guideId : guideIds) {
+
+            // Use the Sections already in the DataCache
+            Section[] cachedSections = useCache
+                    ? DataCache.getInstance().getSections(guideId)
+                    : null;
+
+            if (cachedSections != null) {
+                sectionMap.put(guideId, cachedSections);
+
+                if (--remaining[0] == 0) {
+                    listener.onSectionsReady(sectionMap);
+                }
+
+                continue;
+            }
+
+            FirebaseDatabase.getInstance().getReference()
+                    .child(GuideDatabase.SECTIONS)
+                    .child(guideId)
+                    .orderByKey()
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+
+                            if (dataSnapshot.exists()) {
+                                Section[] sections = (Section[]) getModelsFromSnapshot(SECTION, dataSnapshot);
+                                DataCache.getInstance().store(sections);
+
+                                sectionMap.put(guideId, sections);
+                            } else {
+
+                                // Firebase confirmed the Guide has no Sections, which is
+                                // different from the request failing
+                                sectionMap.put(guideId, new Section[0]);
+                            }
+
+                            if (--remaining[0] == 0) {
+                                listener.onSectionsReady(sectionMap);
+                            }
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            Timber.e(databaseError.getMessage());
+
+                            if (--remaining[0] == 0) {
+                                listener.onSectionsReady(sectionMap);
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Retrieves the time each Guide was last modified so that copies saved for offline use can be
+     * checked for updates. Only the single timestamp of each Guide is downloaded and the requests
+     * are issued together so they are pipelined over Firebase Database's single connection.
+     *
+     * @param guideIds    FirebaseIds of the Guides to check
+     * @param listener    Listener to pass the time each Guide was last modified to. Guides that
+     *                    could not be checked are left out and Guides published before the time
+     *                    was recorded are returned as 0.
+     */
+    public static void getGuideVersions(@NonNull Collection<String> guideIds,
+                                        @NonNull final FirebaseVersionsListener listener) {
+
+        final Map<String, Long> versions = new HashMap<>();
+        final int[] remaining = {guideIds.size()};
+
+        if (remaining[0] == 0) {
+            listener.onVersionsReady(versions);
+            return;
+        }
+
+        for (final String guideId : guideIds) {
+            FirebaseDatabase.getInstance().getReference()
+                    .child(GuideDatabase.GUIDES)
+                    .child(guideId)
+                    .child(Guide.DATE_MODIFIED)
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(DataSnapshot dataSnapshot) {
+
+                            Long version = dataSnapshot.getValue(Long.class);
+                            versions.put(guideId, version != null ? version : 0);
+
+                            if (--remaining[0] == 0) {
+                                listener.onVersionsReady(versions);
+                            }
+                        }
+
+                        @Override
+                        public void onCancelled(DatabaseError databaseError) {
+                            Timber.e(databaseError.getMessage());
+
+                            if (--remaining[0] == 0) {
+                                listener.onVersionsReady(versions);
+                            }
+                        }
+                    });
+        }
+    }
+
     /**
      * Retrieves the Author data model representing the FirebaseUser currently logged in
      *
@@ -411,31 +643,17 @@ public class FirebaseProviderUtils {
         // If the user is not logged in, do nothing
         if (user == null) return;
 
-        // Check to see if the user's Author model is cached
-        final Author author = (Author) DataCache.getInstance().get(user.getUid());
-
-        if (author != null) {
-
-            // Toggle the favorite status for the User
-            toggleFavoriteForUser(author, guide);
-        } else {
-
-            // User Object is not cached. Retrieve it from Firebase
-            getAuthorForFirebaseUser(new FirebaseListener() {
-                @Override
-                public void onModelReady(BaseModel model) {
-                    if (model != null) {
-
-                        // Cache the data
-                        Author author = (Author) model;
-                        DataCache.getInstance().store(author);
+        // Retrieve the user's Author model from the cache or from Firebase if it isn't cached
+        getCachedModel(AUTHOR, user.getUid(), new FirebaseListener() {
+            @Override
+            public void onModelReady(BaseModel model) {
+                if (model != null) {
 
-                        // Toggle the favorite status for the User
-                        toggleFavoriteForUser(author, guide);
-                    }
+                    // Toggle the favorite status for the User
+                    toggleFavoriteForUser((Author) model, guide);
                 }
-            });
-        }
+            }
+        });
     }
 
     /**
@@ -1013,4 +1231,12 @@ public class FirebaseProviderUtils {
     public interface FirebaseArrayListener {
         void onModelsReady(BaseModel[] models);
     }
+
+    public interface FirebaseSectionsListener {
+        void onSectionsReady(Map<String, Section[]> sections);
+    }
+
+    public interface FirebaseVersionsListener {
+        void onVersionsReady(Map<String, Long> versions);
+    }
 }
@@ -0,0 +1,178 @@
+package project.sherpa.utilities;
+
+import android.support.annotation.IntDef;
+
+import static project.sherpa.utilities.GeodesicUtils.DistanceMode.FAST;
+import static project.sherpa.utilities.GeodesicUtils.DistanceMode.VINCENTY;
+
+/**
+ * Allocation-free distance calculations between two coordinates on the WGS84 ellipsoid.
+ *
+ * VINCENTY always uses the iterative Vincenty inverse formula. FAST uses a flat-Earth
+ * approximation scaled by the ellipsoid's radii of curvature at the mean latitude of the two
+ * points whenever they are less than FAST_THRESHOLD meters apart and falls back to Vincenty's
+ * formula otherwise. For consecutive GPX track points, the total distance calculated in FAST mode
+ * is within FAST_MAX_RELATIVE_ERROR of the distance calculated in VINCENTY mode.
+ */
+
+public class GeodesicUtils {
+    // ** Constants ** //
+    // WGS84 ellipsoid
+    private static final double SEMI_MAJOR_AXIS     = 6378137.0;
+    private static final double FLATTENING          = 1 / 298.257223563;
+    private static final double SEMI_MINOR_AXIS     = SEMI_MAJOR_AXIS * (1 - FLATTENING);
+    private static final double ECCENTRICITY_SQ     = FLATTENING * (2 - FLATTENING);
+
+    private static final int MAX_ITERATIONS         = 200;
+    private static final double CONVERGENCE         = 1e-12;
+
+    public static final double FAST_THRESHOLD           = 1000;
+    public static final double FAST_MAX_RELATIVE_ERROR  = 1e-4;
+
+    @IntDef({VINCENTY, FAST})
+    public @interface DistanceMode {
+        int VINCENTY    = 0;
+        int FAST        = 1;
+    }
+
+    /**
+     * Calculates the distance between two coordinates using the selected DistanceMode
+     *
+     * @param mode    DistanceMode to use for the calculation
+     * @param lat1    Latitude of the first point in degrees
+     * @param lon1    Longitude of the first point in degrees
+     * @param lat2    Latitude of the second point in degrees
+     * @param lon2    Longitude of the second point in degrees
+     * @return Distance between the two points in meters
+     */
+    public static double distance(@DistanceMode int mode, double lat1, double lon1, double lat2, double lon2) {
+
+        if (mode == FAST) {
+
+            // Use the approximation for points that are close together
+            double distance = localDistance(lat1, lon1, lat2, lon2);
+
+            if (distance < FAST_THRESHOLD) {
+                return distance;
+            }
+        }
+
+        return vincentyDistance(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * Calculates the distance between two coordinates by treating the Earth as flat around the
+     * mean latitude of the points. The meridional and prime vertical radii of curvature of the
+     * WGS84 ellipsoid at that latitude are used to convert degrees to meters, so the result is
+     * accurate for points that are close together.
+     *
+     * @param lat1    Latitude of the first point in degrees
+     * @param lon1    Longitude of the first point in degrees
+     * @param lat2    Latitude of the second point in degrees
+     * @param lon2    Longitude of the second point in degrees
+     * @return Approximate distance between the two points in meters
+     */
+    public static double localDistance(double lat1, double lon1, double lat2, double lon2) {
+
+        double meanLatitude = Math.toRadians((lat1 + lat2) / 2);
+        double sinLatitude = Math.sin(meanLatitude);
+        double w = Math.sqrt(1 - ECCENTRICITY_SQ * sinLatitude * sinLatitude);
+
+        // Radii of curvature in the north-south and east-west directions
+        double meridional = SEMI_MAJOR_AXIS * (1 - ECCENTRICITY_SQ) / (w * w * w);
+        double primeVertical = SEMI_MAJOR_AXIS / w;
+
+        // Wrap the difference in longitude across the anti-meridian
+        double deltaLongitude = lon2 - lon1;
+
+        if (deltaLongitude > 180) {
+            deltaLongitude -= 360;
+        } else if (deltaLongitude < -180) {
+            deltaLongitude += 360;
+        }
+
+        double north = meridional * Math.toRadians(lat2 - lat1);
+        double east = primeVertical * Math.cos(meanLatitude) * Math.toRadians(deltaLongitude);
+
+        return Math.sqrt(north * north + east * east);
+    }
+
+    /**
+     * Calculates the distance between two coordinates using Vincenty's inverse formula on the
+     * WGS84 ellipsoid
+     *
+     * @param lat1    Latitude of the first point in degrees
+     * @param lon1    Longitude of the first point in degrees
+     * @param lat2    Latitude of the second point in degrees
+     * @param lon2    Longitude of the second point in degrees
+     * @return Distance between the two points in meters
+     */
+    public static double vincentyDistance(double lat1, double lon1, double lat2, double lon2) {
+
+        double l = Math.toRadians(lon2 - lon1);
+
+        // Reduced latitudes
+        double u1 = Math.atan((1 - FLATTENING) * Math.tan(Math.toRadians(lat1)));
+        double u2 = Math.atan((1 - FLATTENING) * Math.tan(Math.toRadians(lat2)));
+
+        double sinU1 = Math.sin(u1);
+        double cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU2 = Math.cos(u2);
+
+        double lambda = l;
+        double sinSigma = 0;
+        double cosSigma = 0;
+        double sigma = 0;
+        double cosSqAlpha = 0;
+        double cos2SigmaM = 0;
+
+        // Iterate until the change in lambda is negligible
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double sinLambda = Math.sin(lambda);
+            double cosLambda = Math.cos(lambda);
+
+            double a = cosU2 * sinLambda;
+            double b = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(a * a + b * b);
+
+            if (sinSigma == 0) {
+                // Coincident points
+                return 0;
+            }
+
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+
+            // Points on the equator have no cos2SigmaM
+            cos2SigmaM = cosSqAlpha != 0
+                    ? cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha
+                    : 0;
+
+            double c = FLATTENING / 16 * cosSqAlpha * (4 + FLATTENING * (4 - 3 * cosSqAlpha));
+
+            double previousLambda = lambda;
+            lambda = l + (1 - c) * FLATTENING * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+
+            if (Math.abs(lambda - previousLambda) < CONVERGENCE) {
+                break;
+            }
+        }
+
+        double uSq = cosSqAlpha
+                * (SEMI_MAJOR_AXIS * SEMI_MAJOR_AXIS - SEMI_MINOR_AXIS * SEMI_MINOR_AXIS)
+                / (SEMI_MINOR_AXIS * SEMI_MINOR_AXIS);
+
+        double a = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double b = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+
+        double deltaSigma = b * sinSigma * (cos2SigmaM + b / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+                - b / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+
+        return SEMI_MINOR_AXIS * a * (sigma - deltaSigma);
+    }
+}
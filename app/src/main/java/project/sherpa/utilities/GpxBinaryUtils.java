@@ -0,0 +1,296 @@
+package project.sherpa.utilities;
+
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import project.sherpa.utilities.objects.GpxStats;
+import project.sherpa.utilities.objects.GpxTrack;
+
+/**
+ * Reads and writes a compact binary encoding of a GpxTrack so that GPX files cached offline do not
+ * need to have their XML parsed every time they are opened.
+ *
+ * The file consists of a header followed by the points of the track. The header contains the
+ * length and modification time of the source GPX file, which are used to detect when the binary
+ * file is out of date, and the pre-computed GpxStats for the track. Coordinates are stored as
+ * fixed-point integers (1e-7 degrees, 1 decimeter) with each point delta-encoded against the
+ * previous point as a zig-zag varint. The index of the first point of each track segment follows
+ * the point count in the header.
+ */
+
+public class GpxBinaryUtils {
+    // ** Constants ** //
+    private static final String TRACK_EXT           = ".trk";
+    private static final int MAGIC                  = 0x5354524B; // "STRK"
+    private static final int VERSION                = 3;
+
+    private static final double COORDINATE_SCALE    = 1e7;
+    private static final double ELEVATION_SCALE     = 10;
+
+    // Magic, version, source length, source modified, 10 stats, point count, segment count
+    private static final int HEADER_SIZE            = 4 + 4 + 8 + 8 + 8 * 10 + 4 + 4;
+
+    // Maximum size of a varint-encoded int
+    private static final int MAX_VARINT_SIZE        = 5;
+
+    /**
+     * Generates the File that the binary track for a GPX File is stored in. The binary track is
+     * stored in the same directory as the GPX File.
+     *
+     * @param gpxFile    GPX File the binary track is generated from
+     * @return File for the binary track
+     */
+    public static File getTrackFile(File gpxFile) {
+
+        // Replace the extension of the GPX File
+        String name = gpxFile.getName();
+        int extIndex = name.lastIndexOf('.');
+
+        if (extIndex > 0) {
+            name = name.substring(0, extIndex);
+        }
+
+        return new File(gpxFile.getParentFile(), name + TRACK_EXT);
+    }
+
+    /**
+     * Writes a GpxTrack and its GpxStats to the binary track File for the GPX File
+     *
+     * @param gpxFile    GPX File the GpxTrack was read from
+     * @param track      GpxTrack to be encoded
+     * @param stats      GpxStats calculated for the GpxTrack
+     * @return True if the binary track was successfully written. False otherwise.
+     */
+    public static boolean writeTrack(File gpxFile, GpxTrack track, GpxStats stats) {
+
+        File trackFile = getTrackFile(gpxFile);
+        File tempFile = new File(trackFile.getPath() + ".tmp");
+
+        // Allocate enough space for the worst-case encoding of each point
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+                + track.getSegmentCount() * 4
+                + track.size() * 3 * MAX_VARINT_SIZE);
+
+        // Write the header
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(gpxFile.length());
+        buffer.putLong(gpxFile.lastModified());
+        buffer.putDouble(stats.distance);
+        buffer.putDouble(stats.elevation);
+        buffer.putDouble(stats.latitude);
+        buffer.putDouble(stats.longitude);
+        buffer.putDouble(stats.midLatitude);
+        buffer.putDouble(stats.midLongitude);
+        buffer.putDouble(stats.north);
+        buffer.putDouble(stats.south);
+        buffer.putDouble(stats.east);
+        buffer.putDouble(stats.west);
+        buffer.putInt(track.size());
+        buffer.putInt(track.getSegmentCount());
+
+        for (int i = 0; i < track.getSegmentCount(); i++) {
+            buffer.putInt(track.getSegmentStart(i));
+        }
+
+        // Write the points as deltas from the previous point
+        int previousLatitude = 0;
+        int previousLongitude = 0;
+        int previousElevation = 0;
+
+        for (int i = 0; i < track.size(); i++) {
+            int latitude = (int) Math.round(track.getLatitude(i) * COORDINATE_SCALE);
+            int longitude = (int) Math.round(track.getLongitude(i) * COORDINATE_SCALE);
+            int elevation = (int) Math.round(track.getElevation(i) * ELEVATION_SCALE);
+
+            putVarint(buffer, latitude - previousLatitude);
+            putVarint(buffer, longitude - previousLongitude);
+            putVarint(buffer, elevation - previousElevation);
+
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+            previousElevation = elevation;
+        }
+
+        buffer.flip();
+
+        try {
+            // Write to a temporary File first so a partially written File is never read
+            FileOutputStream outStream = new FileOutputStream(tempFile);
+
+            try {
+                FileChannel channel = outStream.getChannel();
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                outStream.close();
+            }
+
+            // Replace the previous binary track
+            return tempFile.renameTo(trackFile);
+
+        } catch (IOException e) {
+            e.printStackTrace();
+
+            tempFile.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Reads the binary track for a GPX File if it exists and is up to date with the GPX File
+     *
+     * @param gpxFile    GPX File to read the binary track for
+     * @return GpxTrack decoded from the binary track or null if the binary track is missing, out
+     * of date, or corrupt
+     */
+    @Nullable
+    public static GpxTrack readTrack(File gpxFile) {
+
+        File trackFile = getTrackFile(gpxFile);
+
+        if (!trackFile.exists()) {
+            return null;
+        }
+
+        try {
+            FileInputStream inStream = new FileInputStream(trackFile);
+
+            try {
+                // Map the File into memory
+                FileChannel channel = inStream.getChannel();
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                return decodeTrack(buffer, gpxFile);
+            } finally {
+                inStream.close();
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Deletes the binary track for a GPX File
+     *
+     * @param gpxFile    GPX File whose binary track is to be deleted
+     */
+    public static void deleteTrack(File gpxFile) {
+        getTrackFile(gpxFile).delete();
+    }
+
+    /**
+     * Decodes a GpxTrack from a buffer containing a binary track
+     *
+     * @param buffer     Buffer containing the binary track
+     * @param gpxFile    GPX File the binary track was generated from
+     * @return The decoded GpxTrack or null if the buffer is out of date or not a binary track
+     */
+    private static GpxTrack decodeTrack(ByteBuffer buffer, File gpxFile) {
+
+        // Check the header describes the current version of the source File
+        if (buffer.remaining() < HEADER_SIZE
+                || buffer.getInt() != MAGIC
+                || buffer.getInt() != VERSION
+                || buffer.getLong() != gpxFile.length()
+                || buffer.getLong() != gpxFile.lastModified()) {
+            return null;
+        }
+
+        // Read the pre-computed stats
+        GpxStats stats = new GpxStats();
+        stats.distance = buffer.getDouble();
+        stats.elevation = buffer.getDouble();
+        stats.latitude = buffer.getDouble();
+        stats.longitude = buffer.getDouble();
+        stats.midLatitude = buffer.getDouble();
+        stats.midLongitude = buffer.getDouble();
+        stats.north = buffer.getDouble();
+        stats.south = buffer.getDouble();
+        stats.east = buffer.getDouble();
+        stats.west = buffer.getDouble();
+
+        int size = buffer.getInt();
+        int segmentCount = buffer.getInt();
+
+        if (size <= 0 || segmentCount <= 0) {
+            return null;
+        }
+
+        // Read the offset of each segment
+        int[] segmentStarts = new int[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            segmentStarts[i] = buffer.getInt();
+        }
+
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        double[] elevations = new double[size];
+
+        // Decode the points by accumulating the deltas
+        int latitude = 0;
+        int longitude = 0;
+        int elevation = 0;
+
+        for (int i = 0; i < size; i++) {
+            latitude += getVarint(buffer);
+            longitude += getVarint(buffer);
+            elevation += getVarint(buffer);
+
+            latitudes[i] = latitude / COORDINATE_SCALE;
+            longitudes[i] = longitude / COORDINATE_SCALE;
+            elevations[i] = elevation / ELEVATION_SCALE;
+        }
+
+        GpxTrack track = new GpxTrack(latitudes, longitudes, elevations, size, segmentStarts, gpxFile);
+        track.setStats(stats);
+
+        return track;
+    }
+
+    /**
+     * Writes a signed int to the buffer as a zig-zag encoded varint
+     */
+    private static void putVarint(ByteBuffer buffer, int value) {
+
+        // Zig-zag encode so small negative deltas also use few bytes
+        int encoded = (value << 1) ^ (value >> 31);
+
+        while ((encoded & ~0x7F) != 0) {
+            buffer.put((byte) ((encoded & 0x7F) | 0x80));
+            encoded >>>= 7;
+        }
+
+        buffer.put((byte) encoded);
+    }
+
+    /**
+     * Reads a zig-zag encoded varint from the buffer
+     */
+    private static int getVarint(ByteBuffer buffer) {
+        int encoded = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = buffer.get();
+            encoded |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
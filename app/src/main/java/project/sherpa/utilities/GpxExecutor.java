@@ -0,0 +1,274 @@
+package project.sherpa.utilities;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.IntDef;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+import static project.sherpa.utilities.GpxExecutor.Priority.BACKGROUND;
+import static project.sherpa.utilities.GpxExecutor.Priority.VISIBLE;
+
+/**
+ * Shared, bounded pool of worker threads for processing GPX files in the background.
+ *
+ * Jobs are run in order of their Priority so that work for Views the user can see runs before
+ * work that is being done ahead of time. Jobs with the same key that are submitted while one is
+ * already queued or running are merged, so the work is only done once and the result is delivered
+ * to every Callback. Results are delivered on the main thread unless the owner of the Callback
+ * has been garbage collected or cancelled.
+ */
+
+public class GpxExecutor {
+    // ** Constants ** //
+    private static final int THREAD_COUNT = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    @IntDef({VISIBLE, BACKGROUND})
+    public @interface Priority {
+        int VISIBLE     = 0;
+        int BACKGROUND  = 1;
+    }
+
+    // ** Member Variables ** //
+    private static GpxExecutor sInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Handler mMainHandler;
+    private final Map<String, Task<?>> mInFlight;
+    private final AtomicLong mSequence;
+
+    private GpxExecutor() {
+        mExecutor = new ThreadPoolExecutor(
+                THREAD_COUNT,
+                THREAD_COUNT,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mInFlight = new HashMap<>();
+        mSequence = new AtomicLong();
+    }
+
+    /**
+     * Enforces Singleton Pattern.
+     *
+     * @return The Singleton instance of the GpxExecutor
+     */
+    public static synchronized GpxExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new GpxExecutor();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Submits a Job to be run on the worker threads
+     *
+     * @param key         Key identifying the work done by the Job. Jobs with the same key are only
+     *                    run once while one of them is in-flight.
+     * @param priority    Priority of the Job
+     * @param owner       Object that requested the Job, e.g. the View that will display the
+     *                    result. The Callback is skipped if the owner is garbage collected or
+     *                    cancelled. May be null.
+     * @param job         Job to be run
+     * @param callback    Callback to receive the result of the Job on the main thread
+     */
+    public <T> void submit(String key, @Priority int priority, Object owner, Job<T> job, Callback<T> callback) {
+
+        Waiter<T> waiter = new Waiter<>(owner, callback);
+
+        synchronized (mInFlight) {
+
+            @SuppressWarnings("unchecked")
+            Task<T> task = (Task<T>) mInFlight.get(key);
+
+            if (task != null) {
+
+                // Merge the request with the in-flight Task
+                task.waiters.add(waiter);
+
+                // Move the Task ahead in the queue if the new request is more urgent
+                if (priority < task.priority && mExecutor.remove(task)) {
+                    task.priority = priority;
+                    mExecutor.execute(task);
+                }
+
+                return;
+            }
+
+            task = new Task<>(key, priority, mSequence.getAndIncrement(), job);
+            task.waiters.add(waiter);
+
+            mInFlight.put(key, task);
+            mExecutor.execute(task);
+        }
+    }
+
+    /**
+     * Cancels the delivery of results to every Callback submitted for an owner. Jobs that no
+     * longer have any Callbacks to deliver to are removed from the queue.
+     *
+     * @param owner    Owner whose requests are to be cancelled
+     */
+    public void cancel(Object owner) {
+
+        if (owner == null) return;
+
+        synchronized (mInFlight) {
+            for (Task<?> task : new ArrayList<>(mInFlight.values())) {
+                for (Waiter<?> waiter : task.waiters) {
+                    if (waiter.owner.get() == owner) {
+                        waiter.cancelled = true;
+                    }
+                }
+
+                // Remove any Task that is still queued and no longer has anyone to deliver to
+                if (!task.hasActiveWaiters() && mExecutor.remove(task)) {
+                    removeInFlight(task);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers the result of a Task to each of its active Waiters on the main thread
+     *
+     * @param task      Task that has completed
+     * @param result    Result of the Task's Job
+     */
+    private <T> void deliver(final Task<T> task, final T result) {
+
+        final List<Waiter<T>> waiters;
+
+        synchronized (mInFlight) {
+
+            // Requests made from now on will need to run the Job again
+            removeInFlight(task);
+            waiters = new ArrayList<>(task.waiters);
+        }
+
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Waiter<T> waiter : waiters) {
+                    if (waiter.isActive()) {
+                        waiter.callback.onResult(result);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes a Task from the in-flight Map if it is still the Task registered for its key. Must
+     * be called while holding the lock on mInFlight.
+     *
+     * @param task    Task to be removed
+     */
+    private void removeInFlight(Task<?> task) {
+        if (mInFlight.get(task.key) == task) {
+            mInFlight.remove(task.key);
+        }
+    }
+
+    public interface Job<T> {
+        T run();
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * A Callback for a Task along with the owner that requested it
+     */
+    private static class Waiter<T> {
+        // ** Member Variables ** //
+        final WeakReference<Object> owner;
+        final boolean hasOwner;
+        final Callback<T> callback;
+        volatile boolean cancelled;
+
+        Waiter(Object owner, Callback<T> callback) {
+            this.owner = new WeakReference<>(owner);
+            this.hasOwner = owner != null;
+            this.callback = callback;
+        }
+
+        boolean isActive() {
+            return !cancelled && (!hasOwner || owner.get() != null);
+        }
+    }
+
+    /**
+     * A Job queued in the executor, ordered by Priority and then by the order it was submitted
+     */
+    private class Task<T> implements Runnable, Comparable<Task<?>> {
+        // ** Member Variables ** //
+        final String key;
+        final long sequence;
+        final Job<T> job;
+        final List<Waiter<T>> waiters = new ArrayList<>();
+        volatile int priority;
+
+        Task(String key, int priority, long sequence, Job<T> job) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.job = job;
+        }
+
+        boolean hasActiveWaiters() {
+            for (Waiter<T> waiter : waiters) {
+                if (waiter.isActive()) return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public void run() {
+
+            // Skip the work if nobody is waiting for the result anymore
+            synchronized (mInFlight) {
+                if (!hasActiveWaiters()) {
+                    removeInFlight(this);
+                    return;
+                }
+            }
+
+            T result = null;
+
+            try {
+                result = job.run();
+            } catch (RuntimeException e) {
+                Timber.e(e, "Error processing " + key);
+            }
+
+            deliver(this, result);
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+}
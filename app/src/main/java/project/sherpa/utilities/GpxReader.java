@@ -0,0 +1,210 @@
+package project.sherpa.utilities;
+
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import project.sherpa.utilities.objects.GpxTrack;
+
+/**
+ * Streaming reader for GPX files. Track points are read directly from an XmlPullParser into
+ * packed coordinate arrays so that no Objects are created for individual points. The points of
+ * every segment of every track are read into the same arrays, with the offset of each segment
+ * recorded as it starts.
+ */
+
+public class GpxReader {
+    // ** Constants ** //
+    private static final String TAG_TRACK_SEGMENT   = "trkseg";
+    private static final String TAG_TRACK_POINT     = "trkpt";
+    private static final String TAG_ELEVATION       = "ele";
+    private static final String ATTR_LATITUDE       = "lat";
+    private static final String ATTR_LONGITUDE      = "lon";
+
+    private static final int INITIAL_CAPACITY       = 1024;
+    private static final int INITIAL_SEGMENTS       = 4;
+    private static final int BUFFER_SIZE            = 8192;
+
+    // ** Member Variables ** //
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private double[] mElevations;
+    private int mSize;
+
+    private int[] mSegmentStarts;
+    private int mSegmentCount;
+
+    private GpxReader() {
+        mLatitudes = new double[INITIAL_CAPACITY];
+        mLongitudes = new double[INITIAL_CAPACITY];
+        mElevations = new double[INITIAL_CAPACITY];
+        mSegmentStarts = new int[INITIAL_SEGMENTS];
+    }
+
+    /**
+     * Reads every track segment of a GPX File into a GpxTrack
+     *
+     * @param gpxFile    File corresponding to a GPX file that contains coordinates for a guide
+     * @return GpxTrack containing the coordinates of the File
+     * @throws IOException if the File cannot be read
+     * @throws XmlPullParserException if the File is not valid XML
+     */
+    public static GpxTrack read(File gpxFile) throws IOException, XmlPullParserException {
+
+        // Open a buffered stream so the parser isn't reading from the disk byte-by-byte
+        InputStream inStream = new BufferedInputStream(new FileInputStream(gpxFile), BUFFER_SIZE);
+
+        try {
+            GpxReader reader = new GpxReader();
+            reader.parse(inStream);
+
+            return reader.buildTrack(gpxFile);
+        } finally {
+            inStream.close();
+        }
+    }
+
+    /**
+     * Streams through the XML, appending the coordinates of each track point to the buffers
+     *
+     * @param inStream    InputStream of the GPX file
+     */
+    private void parse(InputStream inStream) throws IOException, XmlPullParserException {
+
+        // Init the parser
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        parser.setInput(inStream, null);
+
+        // Coordinates of the point currently being read
+        double latitude = 0;
+        double longitude = 0;
+        double elevation = 0;
+        boolean inPoint = false;
+
+        int eventType = parser.getEventType();
+
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                String name = parser.getName();
+
+                if (TAG_TRACK_SEGMENT.equals(name)) {
+
+                    // Record the offset of the new segment
+                    startSegment();
+
+                } else if (TAG_TRACK_POINT.equals(name)) {
+
+                    // Read the coordinates from the attributes of the point
+                    latitude = parseDouble(parser.getAttributeValue(null, ATTR_LATITUDE));
+                    longitude = parseDouble(parser.getAttributeValue(null, ATTR_LONGITUDE));
+                    elevation = 0;
+                    inPoint = true;
+
+                } else if (inPoint && TAG_ELEVATION.equals(name)) {
+
+                    // Read the elevation from the text of the element
+                    elevation = parseDouble(parser.nextText());
+                }
+            } else if (eventType == XmlPullParser.END_TAG) {
+                String name = parser.getName();
+
+                if (TAG_TRACK_POINT.equals(name)) {
+
+                    // Point is complete. Add it to the buffers
+                    addPoint(latitude, longitude, elevation);
+                    inPoint = false;
+                }
+            }
+
+            eventType = parser.next();
+        }
+    }
+
+    /**
+     * Records the start of a new segment at the current end of the buffers
+     */
+    private void startSegment() {
+
+        // Re-use the previous segment if no points were added to it
+        if (mSegmentCount > 0 && mSegmentStarts[mSegmentCount - 1] == mSize) {
+            return;
+        }
+
+        if (mSegmentCount == mSegmentStarts.length) {
+            mSegmentStarts = Arrays.copyOf(mSegmentStarts, mSegmentCount * 2);
+        }
+
+        mSegmentStarts[mSegmentCount++] = mSize;
+    }
+
+    /**
+     * Appends a point to the buffers, growing them if they are full
+     */
+    private void addPoint(double latitude, double longitude, double elevation) {
+
+        if (mSize == mLatitudes.length) {
+
+            // Double the capacity of the buffers
+            int capacity = mSize * 2;
+
+            mLatitudes = Arrays.copyOf(mLatitudes, capacity);
+            mLongitudes = Arrays.copyOf(mLongitudes, capacity);
+            mElevations = Arrays.copyOf(mElevations, capacity);
+        }
+
+        mLatitudes[mSize] = latitude;
+        mLongitudes[mSize] = longitude;
+        mElevations[mSize] = elevation;
+        mSize++;
+    }
+
+    /**
+     * Creates a GpxTrack from the buffers
+     *
+     * @param source    File the buffers were read from
+     * @return GpxTrack backed by the buffers or null if no points were read
+     */
+    private GpxTrack buildTrack(File source) {
+        if (mSize == 0) {
+            return null;
+        }
+
+        // Drop a trailing segment that has no points
+        int segmentCount = mSegmentCount;
+
+        if (segmentCount > 0 && mSegmentStarts[segmentCount - 1] == mSize) {
+            segmentCount--;
+        }
+
+        // Points outside of a segment are treated as a single segment
+        int[] segmentStarts = segmentCount > 0 && mSegmentStarts[0] == 0
+                ? Arrays.copyOf(mSegmentStarts, segmentCount)
+                : new int[] {0};
+
+        return new GpxTrack(mLatitudes, mLongitudes, mElevations, mSize, segmentStarts, source);
+    }
+
+    /**
+     * Parses a double from a String, treating missing values as 0
+     */
+    private static double parseDouble(String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
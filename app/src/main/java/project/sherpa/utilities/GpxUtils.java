@@ -1,38 +1,235 @@
 package project.sherpa.utilities;
 
+import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
 
 import com.github.mikephil.charting.data.Entry;
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
 import com.mapbox.mapboxsdk.annotations.PolylineOptions;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 
-import org.gavaghan.geodesy.Ellipsoid;
-import org.gavaghan.geodesy.GeodeticCalculator;
-import org.gavaghan.geodesy.GeodeticMeasurement;
-import org.gavaghan.geodesy.GlobalPosition;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import io.ticofab.androidgpxparser.parser.GPXParser;
-import io.ticofab.androidgpxparser.parser.domain.Gpx;
-import io.ticofab.androidgpxparser.parser.domain.TrackPoint;
+import project.sherpa.files.GpxFile;
+import project.sherpa.utilities.GeodesicUtils.DistanceMode;
+import project.sherpa.utilities.objects.ElevationProfile;
 import project.sherpa.utilities.objects.GpxStats;
+import project.sherpa.utilities.objects.GpxTrack;
+import project.sherpa.utilities.objects.OfflineRegionPlan;
 
 /**
  * Created by Alvin on 7/21/2017.
  */
 
 public class GpxUtils {
+    // ** Constants ** //
+    private static final int TRACK_CACHE_POINTS = 200000;
+
+    // ** Member Variables ** //
+    @DistanceMode
+    private static int sDistanceMode = DistanceMode.FAST;
+
+    private static final LruCache<String, GpxTrack> sTrackCache =
+            new LruCache<String, GpxTrack>(TRACK_CACHE_POINTS) {
+                @Override
+                protected int sizeOf(String key, GpxTrack track) {
+
+                    // Size the cache by the number of points so a few long tracks can't crowd out
+                    // the memory budget
+                    return Math.max(track.size(), 1);
+                }
+            };
+
+    // Lock for each track key so a File is only parsed once at a time without blocking the
+    // requests for other Files
+    private static final Map<String, Object> sTrackLocks = new HashMap<>();
+
+    /**
+     * Sets the DistanceMode used to calculate the distance between points of a track. FAST is
+     * used by default.
+     *
+     * @param mode    DistanceMode to use for calculating distances
+     */
+    public static void setDistanceMode(@DistanceMode int mode) {
+        sDistanceMode = mode;
+    }
+
+    /**
+     * Calculates the total distance of a GpxTrack, excluding the gaps between its segments
+     *
+     * @param track    GpxTrack to calculate the distance of
+     * @param mode     DistanceMode to use for calculating the distance between points
+     * @return Total distance of the track in meters
+     */
+    public static double getTrackDistance(GpxTrack track, @DistanceMode int mode) {
+
+        double totalDistance = 0;
+
+        for (int segment = 0; segment < track.getSegmentCount(); segment++) {
+            int end = track.getSegmentEnd(segment);
+
+            for (int i = track.getSegmentStart(segment) + 1; i < end; i++) {
+                totalDistance += GeodesicUtils.distance(mode,
+                        track.getLatitude(i - 1), track.getLongitude(i - 1),
+                        track.getLatitude(i), track.getLongitude(i));
+            }
+        }
+
+        return totalDistance;
+    }
+
+    /**
+     * Retrieves the parsed GpxTrack for a File. The File is only parsed the first time it is
+     * requested or if it has been modified since it was last parsed; every other call returns the
+     * cached GpxTrack.
+     *
+     * Only the lookup and insert hold the cache's lock. The File is parsed under a lock for its
+     * key alone, so requests for the same File wait for a single parse while other Files are
+     * parsed in parallel.
+     *
+     * @param gpxFile    File corresponding to a GPX file that contains coordinates for a guide
+     * @return The GpxTrack for the File or null if it could not be parsed
+     */
+    @Nullable
+    public static GpxTrack getGpxTrack(File gpxFile) {
+
+        String key = getTrackKey(gpxFile);
+
+        // Check whether the track has already been parsed
+        GpxTrack track = getCachedTrack(key, gpxFile);
+        if (track != null) return track;
+
+        synchronized (getTrackLock(key)) {
+
+            // The track may have been parsed by another thread while this one waited
+            track = getCachedTrack(key, gpxFile);
+            if (track != null) return track;
+
+            // Parse the File and cache the result
+            track = parseGpxTrack(gpxFile);
+
+            synchronized (sTrackCache) {
+                if (track != null) {
+                    sTrackCache.put(key, track);
+                } else {
+                    sTrackCache.remove(key);
+                }
+            }
+
+            return track;
+        }
+    }
+
+    /**
+     * Retrieves a GpxTrack from the cache if it is up to date with its File
+     *
+     * @param key        Key of the GpxTrack from getTrackKey()
+     * @param gpxFile    File the GpxTrack was parsed from
+     * @return The cached GpxTrack or null if it isn't cached or the File has changed
+     */
+    @Nullable
+    private static GpxTrack getCachedTrack(String key, File gpxFile) {
+
+        GpxTrack track;
+
+        synchronized (sTrackCache) {
+            track = sTrackCache.get(key);
+        }
+
+        return track != null && !track.isStale(gpxFile)
+                ? track
+                : null;
+    }
+
+    /**
+     * Retrieves the lock used to parse the File for a track key
+     *
+     * @param key    Key of the GpxTrack from getTrackKey()
+     * @return Object to synchronize on while the File is parsed
+     */
+    private static Object getTrackLock(String key) {
+
+        synchronized (sTrackLocks) {
+            Object lock = sTrackLocks.get(key);
+
+            if (lock == null) {
+                lock = new Object();
+                sTrackLocks.put(key, lock);
+            }
+
+            return lock;
+        }
+    }
+
+    /**
+     * Generates the key used to cache the GpxTrack for a File. GpxFiles are keyed by the
+     * FirebaseId of their Guide, other Files by their path.
+     *
+     * @param gpxFile    File corresponding to a GPX file
+     * @return Key for the File's GpxTrack
+     */
+    private static String getTrackKey(File gpxFile) {
+        return gpxFile instanceof GpxFile && ((GpxFile) gpxFile).firebaseId != null
+                ? ((GpxFile) gpxFile).firebaseId
+                : gpxFile.getAbsolutePath();
+    }
 
     /**
-     * Uses Vincenty's formulate to calculate the distance traveled from a GPX file. Also
+     * Selects the GpxExecutor Priority for a request
+     *
+     * @param owner    Object that made the request
+     * @return VISIBLE if the request was made on behalf of an owner, BACKGROUND otherwise
+     */
+    private static int getPriority(Object owner) {
+        return owner != null
+                ? GpxExecutor.Priority.VISIBLE
+                : GpxExecutor.Priority.BACKGROUND;
+    }
+
+    /**
+     * Parses a GPX File into a GpxTrack
+     *
+     * @param gpxFile    File corresponding to a GPX file
+     * @return GpxTrack containing the coordinates of the File or null if it could not be parsed
+     */
+    private static GpxTrack parseGpxTrack(File gpxFile) {
+
+        // Check for an up-to-date binary track for the File
+        GpxTrack track = GpxBinaryUtils.readTrack(gpxFile);
+
+        if (track != null) {
+            return track;
+        }
+
+        try {
+            // Stream the track points directly into a GpxTrack
+            track = GpxReader.read(gpxFile);
+
+            if (track != null && GpxBinaryUtils.getTrackFile(gpxFile).exists()) {
+
+                // The GPX File has changed since its binary track was written. Regenerate it.
+                GpxBinaryUtils.writeTrack(gpxFile, track, getGpxStats(track));
+            }
+
+            return track;
+        } catch (XmlPullParserException | IOException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Uses the selected DistanceMode to calculate the distance traveled from a GPX file. Also
      * calculates the max difference in altitude for the track. This means that if the trail starts
      * and ends at the same point, it will still calculate the difference in altitude from the
      * highest and lowest points on the trail.
@@ -41,313 +238,516 @@ public class GpxUtils {
      * @return A GpxStats Object containing the calculates distance and elevation
      */
     public static GpxStats getGpxStats(File gpxFile) {
-        try {
-            // Create a FileInputStream from the Gpx File
-            InputStream inStream = new FileInputStream(gpxFile);
-
-            // Parse to a Gpx
-            Gpx parsedGpx = new GPXParser().parse(inStream);
-
-            // Close the FileInputStream
-            inStream.close();
-
-            if (parsedGpx != null) {
-                // Get the TrackPoints from the Gpx
-                List<TrackPoint> points = parsedGpx.getTracks().get(0).getTrackSegments().get(0).getTrackPoints();
-
-                // Initialize the variables that will be used to calculate the distance and elevation
-                double totalDistance = 0.0;
-                double low = 0.0;
-                double high = 0.0;
-
-                // Initialize the coordinates that will be used to calculate the center of the trail
-                double north = 0;
-                double south = 0;
-                double east = 0;
-                double west = 0;
-
-                // Init the Geodetic Calculater (Uses Vincenty's formula for higher accuracy)
-                GeodeticCalculator calculator = new GeodeticCalculator();
-
-                // Iterate through each pair of points and calculate the distance between them
-                for (int i = 0; i < points.size() - 1; i++) {
-                    // Ellipsoid.WGS84 is the commonly accepted model for Earth
-                    GeodeticMeasurement measurement = calculator.calculateGeodeticMeasurement(Ellipsoid.WGS84,
-                            // Note: Distance is calculated ignoring elevation
-                            // First point
-                            new GlobalPosition(points.get(i).getLatitude(), points.get(i).getLongitude(), 0),
-                            // Second point
-                            new GlobalPosition(points.get(i + 1).getLatitude(), points.get(i + 1).getLongitude(), 0));
 
-                    // Add the distance between the two points to the total distance
-                    totalDistance += measurement.getPointToPointDistance();
-
-                    // Find the high and low elevation
-                    if (i == 0) {
-                        // For the first point, set the respective elevations for the low and high
-                        boolean firstHigher = points.get(i).getElevation() > points.get(i + 1).getElevation();
-                        if (firstHigher) {
-                            low = points.get(i + 1).getElevation();
-                            high = points.get(i).getElevation();
-                        } else {
-                            low = points.get(i).getElevation();
-                            high = points.get(i + 1).getElevation();
-                        }
+        // Get the parsed track for the File
+        GpxTrack track = getGpxTrack(gpxFile);
 
-                        // For the first point, set all coordinates to the points coordinates
-                        if (points.get(i).getLongitude() > points.get(i + 1).getLongitude()) {
-                            north = points.get(i).getLongitude();
-                            south = points.get(i + 1).getLongitude();
-                        } else {
-                            north = points.get(i + 1).getLongitude();
-                            south = points.get(i).getLongitude();
-                        }
+        if (track == null) {
+            return null;
+        }
 
-                        if (points.get(i).getLatitude() > points.get(i + 1).getLatitude()) {
-                            east = points.get(i).getLatitude();
-                            west = points.get(i + 1).getLatitude();
-                        } else {
-                            east = points.get(i + 1).getLatitude();
-                            west = points.get(i).getLatitude();
-                        }
+        return getGpxStats(track);
+    }
 
-                    } else {
-                        // For all other iterations, set the high elevation if higher or low
-                        // elevation if lower
-                        double elevation = points.get(i + 1).getElevation();
+    /**
+     * Retrieves the GpxStats for a GPX file from the local database, where they are keyed by a
+     * hash of the File's contents. The GpxStats are only calculated if the same contents have
+     * never been seen before, after which they are stored for future requests.
+     *
+     * @param context    Interface to global Context
+     * @param gpxFile    File corresponding to a GPX file that contains coordinates for a guide
+     * @return A GpxStats Object containing the calculates distance and elevation
+     */
+    public static GpxStats getGpxStats(Context context, File gpxFile) {
 
-                        // Set the coordinates if they are more extreme than the previous coordinate
-                        double longitude = points.get(i + 1).getLongitude();
-                        double latitude = points.get(i + 1).getLatitude();
+        String hash = HashUtils.hashFile(gpxFile);
 
-                        if (elevation < low) {
-                            low = elevation;
-                        } else if (elevation > high) {
-                            high = elevation;
-                        }
+        if (hash == null) {
+            return null;
+        }
 
-                        if (north < longitude) {
-                            north = longitude;
-                        } else if (south > longitude) {
-                            south = longitude;
-                        }
+        // Check whether the stats for the contents have already been calculated
+        GpxStats stats = ContentProviderUtils.getGpxStats(context, hash);
 
-                        if (east  < latitude) {
-                            east = latitude;
-                        } else if (west > latitude) {
-                            west = latitude;
-                        }
-                    }
-                }
+        if (stats != null) {
+            return stats;
+        }
 
-                // Create a GpxStats Object from the stats
-                GpxStats gpxStats = new GpxStats();
-                gpxStats.distance = totalDistance;
-                gpxStats.elevation = high - low;
-                gpxStats.latitude = (west + east) / 2;
-                gpxStats.longitude = (north + south) / 2;
+        // Calculate and store the stats
+        stats = getGpxStats(gpxFile);
 
-                return gpxStats;
-            }
-        } catch (XmlPullParserException | IOException e) {
-            e.printStackTrace();
+        if (stats != null) {
+            ContentProviderUtils.insertGpxStats(context, hash, stats);
         }
 
-        return null;
+        return stats;
     }
 
     /**
-     * Creates a PolylineOptions that can be used to visualize the GPX's coordinates on a
-     * MapboxMap. Also creates a Marker to be used to indicate the start of a trail.
+     * Writes a compact binary copy of a GPX File's track and stats next to the GPX File so that
+     * it can be loaded without parsing the XML the next time it is opened.
      *
-     * @param gpxFile    A File corresponding to a GPX file that contains coordinates for a guide
+     * @param gpxFile    GPX File that has been saved to internal storage
      */
-    public static void getMapboxOptions(@NonNull final File gpxFile, final MapboxOptionsListener listener) {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                // Initialize the List that will be used to generate the Polyline
-                List<LatLng> trailPoints = new ArrayList<>();
+    public static void cacheGpxTrack(File gpxFile) {
 
-                // Get a reference of the LatLng that will be used to mark the start of the trail
-                LatLng start = null;
+        // Get the parsed track for the File
+        GpxTrack track = getGpxTrack(gpxFile);
 
-                try {
-                    // Create an InputStream from gpxFile
-                    FileInputStream inStream = new FileInputStream(gpxFile);
+        if (track == null) {
+            return;
+        }
 
-                    // Parse a Gpx from the FileInputStream
-                    Gpx parsedGpx = new GPXParser().parse(inStream);
+        GpxStats stats = getGpxStats(track);
 
-                    // Close the InputStream
-                    inStream.close();
+        if (stats != null) {
+            GpxBinaryUtils.writeTrack(gpxFile, track, stats);
+        }
+    }
 
+    /**
+     * Calculates the GpxStats for a GpxTrack. The result is stored in the GpxTrack so it only
+     * needs to be calculated once.
+     *
+     * @param track    GpxTrack to calculate the GpxStats for
+     * @return A GpxStats Object containing the calculates distance and elevation
+     */
+    private static GpxStats getGpxStats(GpxTrack track) {
 
+        // Check whether the stats have already been calculated
+        if (track.getStats() != null) {
+            return track.getStats();
+        }
 
-                    if (parsedGpx != null) {
-                        // Get the individual points from the Gpx
-                        List<TrackPoint> points = parsedGpx.getTracks().get(0).getTrackSegments().get(0).getTrackPoints();
+        if (track.size() < 2) {
+            return null;
+        }
 
-                        // Iterate through and convert the point coordinates to a LatLng
-                        for (TrackPoint point : points) {
-                            LatLng trailPoint = new LatLng(point.getLatitude(), point.getLongitude(), point.getElevation());
+        // Initialize the variables that will be used to calculate the distance and elevation
+        double totalDistance = 0.0;
+        double low = track.getElevation(0);
+        double high = track.getElevation(0);
 
-                            // Add the LatLng to the List
-                            trailPoints.add(trailPoint);
+        // Initialize the coordinates that will be used to calculate the center of the trail
+        double north = track.getLatitude(0);
+        double south = track.getLatitude(0);
+        double east = track.getLongitude(0);
+        double west = track.getLongitude(0);
 
-                            if (start == null) {
-                                // Set the LatLng to be used for the starting coordinate
-                                start = new LatLng(point.getLatitude(), point.getLongitude());
-                            }
-                        }
-                    }
-                } catch (XmlPullParserException | IOException e) {
-                    e.printStackTrace();
+        // Iterate through each segment of the track. Distance is only calculated between points
+        // in the same segment so that gaps between segments are not counted.
+        for (int segment = 0; segment < track.getSegmentCount(); segment++) {
+            int start = track.getSegmentStart(segment);
+            int end = track.getSegmentEnd(segment);
+
+            for (int i = start; i < end; i++) {
+
+                // Set the coordinates if they are more extreme than the previous coordinate
+                double longitude = track.getLongitude(i);
+                double latitude = track.getLatitude(i);
+
+                if (i > start) {
+                    // Add the distance between the two points to the total distance
+                    // Note: Distance is calculated ignoring elevation
+                    totalDistance += GeodesicUtils.distance(sDistanceMode,
+                            track.getLatitude(i - 1), track.getLongitude(i - 1),
+                            latitude, longitude);
                 }
 
-                // Create a MarkerOptions for marking the beginning of the trail
-                MarkerOptions markerOptions = new MarkerOptions().position(start);
+                // Set the high elevation if higher or low elevation if lower
+                double elevation = track.getElevation(i);
 
-                // Create a PolylineOptions from the List
-                PolylineOptions polylineOptions = new PolylineOptions().addAll(trailPoints);
+                if (elevation < low) {
+                    low = elevation;
+                } else if (elevation > high) {
+                    high = elevation;
+                }
+
+                if (north < latitude) {
+                    north = latitude;
+                } else if (south > latitude) {
+                    south = latitude;
+                }
 
-                listener.onOptionReady(markerOptions, polylineOptions);
+                if (east < longitude) {
+                    east = longitude;
+                } else if (west > longitude) {
+                    west = longitude;
+                }
             }
-        }).run();
+        }
 
+        // Get the point at the middle of the track
+        int middle = track.size() / 2;
+
+        // Create a GpxStats Object from the stats
+        GpxStats gpxStats = new GpxStats();
+        gpxStats.distance = totalDistance;
+        gpxStats.elevation = high - low;
+        gpxStats.latitude = (north + south) / 2;
+        gpxStats.longitude = (east + west) / 2;
+        gpxStats.midLatitude = track.getLatitude(middle);
+        gpxStats.midLongitude = track.getLongitude(middle);
+        gpxStats.north = north;
+        gpxStats.south = south;
+        gpxStats.east = east;
+        gpxStats.west = west;
+
+        track.setStats(gpxStats);
+
+        return gpxStats;
     }
 
     /**
-     * Calculates the Entries that will be used to plot the elevation data for the LineGraph if the
-     * .gpx file includes elevation data. When the data has been calculated, it alerts the calling
-     * thread and passes the completed data through.
+     * Selects the level of detail to draw a track at for the position of a map's camera
      *
-     * @param gpxFile    .gpx file that wil be used to calculate the elevation chart data
-     * @param listener   Listener to alert the calling thread that calculations are complete
+     * @param zoom        Zoom level of the map's camera
+     * @param latitude    Latitude of the map's camera
+     * @return The level of detail to pass to getMapboxOptions
      */
-    public static void getElevationChartData(final File gpxFile, final ElevationDataListener listener) {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                // Init List of Entries to return
-                List<Entry> elevationData = new ArrayList<>();
-
-                try {
-                    // Create InputStream from File
-                    InputStream inStream = new FileInputStream(gpxFile);
-
-                    // Parse the Gpx from the InputStream
-                    Gpx parsedGpx = new GPXParser().parse(inStream);
-
-                    if (parsedGpx == null) {
-                        // Unable to parse. Nothing to return
-                        listener.onElevationDataReady(null);
-                    }
+    public static int getDetailLevel(double zoom, double latitude) {
+        return TrackSimplifier.getLevelForZoom(zoom, latitude);
+    }
 
-                    // Get the TrackPoints from the parsed Gpx
-                    List<TrackPoint> trackPoints = parsedGpx.getTracks().get(0).getTrackSegments().get(0).getTrackPoints();
+    /**
+     * Creates the PolylineOptions that can be used to visualize the GPX's coordinates on a
+     * MapboxMap. Also creates a Marker to be used to indicate the start of a trail. Each segment
+     * in the GPX gets its own PolylineOptions so no line is drawn across the gaps between them.
+     * The File is processed in the background and the listener is called on the main thread.
+     *
+     * @param gpxFile    A File corresponding to a GPX file that contains coordinates for a guide
+     */
+    public static void getMapboxOptions(@NonNull final File gpxFile, final MapboxOptionsListener listener) {
+        getMapboxOptions(gpxFile, TrackSimplifier.FULL_DETAIL, null, listener);
+    }
+
+    /**
+     * Creates the PolylineOptions that can be used to visualize the GPX's coordinates on a
+     * MapboxMap, simplified to a level of detail. One PolylineOptions is created for each segment
+     * in the GPX. Also creates a Marker to be used to indicate the start of a trail. The File is
+     * processed in the background and the listener is called on the main thread.
+     *
+     * @param gpxFile        A File corresponding to a GPX file that contains coordinates for a guide
+     * @param detailLevel    Level of detail to simplify the Polyline to from getDetailLevel()
+     * @param owner          Object displaying the Polyline. Requests with an owner are processed
+     *                       first and are dropped if the owner is cancelled with GpxExecutor.
+     */
+    public static void getMapboxOptions(@NonNull final File gpxFile, final int detailLevel,
+                                        @Nullable Object owner, final MapboxOptionsListener listener) {
+
+        String key = getTrackKey(gpxFile) + "/polyline/" + detailLevel;
+
+        GpxExecutor.getInstance().submit(key, getPriority(owner), owner,
+                new GpxExecutor.Job<List<List<LatLng>>>() {
+                    @Override
+                    public List<List<LatLng>> run() {
+                        // Initialize the List of segments that will be used to generate the
+                        // Polylines
+                        List<List<LatLng>> segmentPoints = new ArrayList<>();
+
+                        // Get the parsed track for the File
+                        GpxTrack track = getGpxTrack(gpxFile);
+
+                        if (track != null) {
+                            // Get the indices of the points to be drawn at the level of detail
+                            int[] indices = getDetailLevelIndices(track, detailLevel);
+                            int count = indices != null ? indices.length : track.size();
+
+                            List<LatLng> trailPoints = null;
+                            int segment = -1;
+                            int segmentEnd = 0;
+
+                            // Iterate through and convert the point coordinates to a LatLng. The
+                            // indices are in ascending order, so the points of each segment are
+                            // together.
+                            for (int j = 0; j < count; j++) {
+                                int i = indices != null ? indices[j] : j;
+
+                                // Start a new List when the point belongs to the next segment
+                                if (i >= segmentEnd) {
+                                    while (i >= segmentEnd) {
+                                        segment++;
+                                        segmentEnd = track.getSegmentEnd(segment);
+                                    }
+
+                                    trailPoints = new ArrayList<>();
+                                    segmentPoints.add(trailPoints);
+                                }
+
+                                LatLng trailPoint = new LatLng(track.getLatitude(i), track.getLongitude(i), track.getElevation(i));
+
+                                // Add the LatLng to the List
+                                trailPoints.add(trailPoint);
+                            }
+                        }
 
-                    // Init the calculator that will be used to get the distance between each point
-                    GeodeticCalculator calculator = new GeodeticCalculator();
+                        return segmentPoints;
+                    }
+                },
+                new GpxExecutor.Callback<List<List<LatLng>>>() {
+                    @Override
+                    public void onResult(List<List<LatLng>> segmentPoints) {
+
+                        // Get a reference of the LatLng that will be used to mark the start of the trail
+                        LatLng start = null;
+
+                        if (segmentPoints != null && segmentPoints.size() > 0) {
+                            // The first point is included at every level of detail
+                            LatLng first = segmentPoints.get(0).get(0);
+                            start = new LatLng(first.getLatitude(), first.getLongitude());
+                        }
 
-                    // Keep track of total distance for X-coordinate
-                    double totalDistance = 0.0;
+                        // Create a MarkerOptions for marking the beginning of the trail
+                        MarkerOptions markerOptions = new MarkerOptions().position(start);
 
-                    // Iterate and get the distance traveled between each point and its elevation
-                    for (int i = 0; i < trackPoints.size() - 1; i++) {
-                        // X-Coordinate = distance traveled
-                        // Y-Coordinate = elevation at the end point
-                        // Setup
-                        double lat1 = trackPoints.get(i).getLatitude();
-                        double lon1 = trackPoints.get(i).getLongitude();
-                        double ele1 = trackPoints.get(i).getElevation();
-                        double lat2 = trackPoints.get(i + 1).getLatitude();
-                        double lon2 = trackPoints.get(i + 1).getLongitude();
-                        double ele2 = trackPoints.get(i + 1).getElevation();
-
-                        if (i == 0) {
-                            // First Entry: The X-coord is 0 for the start, and the starting elevation will
-                            // be used as the Y-coord
-                            elevationData.add(new Entry(0, (float) ele1));
+                        // Create a PolylineOptions for each segment. Each request gets its own
+                        // PolylineOptions as they are modified by the caller
+                        List<PolylineOptions> polylineOptionsList = new ArrayList<>();
+
+                        if (segmentPoints != null) {
+                            for (List<LatLng> trailPoints : segmentPoints) {
+                                polylineOptionsList.add(new PolylineOptions().addAll(trailPoints));
+                            }
                         }
 
-                        // Calculate the distance between the two points
-                        GeodeticMeasurement measurement = calculator.calculateGeodeticMeasurement(
-                                Ellipsoid.WGS84,
-                                new GlobalPosition(lat1, lon1, 0),
-                                new GlobalPosition(lat2, lon2, 0));
+                        listener.onOptionReady(markerOptions, polylineOptionsList);
+                    }
+                });
+    }
+
+    /**
+     * Retrieves the indices of the points of a GpxTrack to be drawn at a level of detail. The
+     * levels of detail are generated the first time they are requested for a GpxTrack.
+     *
+     * @param track          GpxTrack to retrieve the indices for
+     * @param detailLevel    Level of detail of the points
+     * @return Indices of the points to draw or null if every point should be drawn
+     */
+    private static int[] getDetailLevelIndices(GpxTrack track, int detailLevel) {
+
+        if (detailLevel <= TrackSimplifier.FULL_DETAIL) {
+            return null;
+        }
+
+        int[][] levels = track.getDetailLevels();
+
+        if (levels == null) {
+
+            // Simplify the track into its levels of detail
+            levels = TrackSimplifier.buildLevels(track);
+            track.setDetailLevels(levels);
+        }
+
+        return levels[Math.min(detailLevel, levels.length - 1)];
+    }
+
+    /**
+     * Calculates the Entries that will be used to plot the elevation data for the LineGraph if the
+     * .gpx file includes elevation data. The elevation data is downsampled to at most maxEntries
+     * Entries while preserving its shape. The File is processed in the background and the listener
+     * is called on the main thread with the completed data.
+     *
+     * @param gpxFile       .gpx file that wil be used to calculate the elevation chart data
+     * @param maxEntries    Maximum number of Entries to generate, e.g. the width of the chart
+     * @param owner         Object displaying the chart. Requests with an owner are processed
+     *                      first and are dropped if the owner is cancelled with GpxExecutor.
+     * @param listener      Listener to alert the calling thread that calculations are complete
+     */
+    public static void getElevationChartData(final File gpxFile, final int maxEntries,
+                                             @Nullable Object owner,
+                                             final ElevationDataListener listener) {
 
-                        // Add the traveled distance to the total distance to keep track of the X-coord
-                        totalDistance += measurement.getPointToPointDistance();
+        String key = getTrackKey(gpxFile) + "/elevation/" + maxEntries;
 
-                        // Add the Entry to the List
-                        elevationData.add(new Entry((float) totalDistance, (float) ele2));
+        GpxExecutor.getInstance().submit(key, getPriority(owner), owner,
+                new GpxExecutor.Job<ElevationSeries>() {
+                    @Override
+                    public ElevationSeries run() {
+                        return getElevationSeries(gpxFile, maxEntries);
                     }
+                },
+                new GpxExecutor.Callback<ElevationSeries>() {
+                    @Override
+                    public void onResult(ElevationSeries series) {
+
+                        if (series == null) {
+                            // Nothing to plot
+                            listener.onElevationDataReady(null);
+                            return;
+                        }
 
-                } catch (XmlPullParserException | IOException e) {
-                    e.printStackTrace();
-                }
+                        // Init List of Entries to return. Each request gets its own Entries as
+                        // they are modified by the caller
+                        // X-Coordinate = distance traveled
+                        // Y-Coordinate = elevation at the point
+                        List<Entry> elevationData = new ArrayList<>(series.distances.length);
 
-                // Check to ensure the Gpx file has elevation data to plot
-                float elevationCheck = 0;
-                for (Entry entry : elevationData) {
-                    // Add the elevation of each Entry to the elevationCheck
-                    elevationCheck += entry.getY();
+                        for (int i = 0; i < series.distances.length; i++) {
+                            elevationData.add(new Entry(series.distances[i], series.elevations[i]));
+                        }
 
-                    // If there is any elevation, then the chart will be valid
-                    if (elevationCheck > 0) {
-                        break;
+                        ElevationProfile profile = new ElevationProfile();
+                        profile.entries = elevationData;
+                        profile.minElevation = series.minElevation;
+                        profile.maxElevation = series.maxElevation;
+                        profile.totalDistance = series.totalDistance;
+
+                        listener.onElevationDataReady(profile);
                     }
+                });
+    }
+
+    /**
+     * Calculates the downsampled elevation profile of a GPX File
+     *
+     * @param gpxFile       .gpx file that wil be used to calculate the elevation chart data
+     * @param maxEntries    Maximum number of points to include in the profile
+     * @return ElevationSeries for the File or null if it has no elevation data to plot
+     */
+    private static ElevationSeries getElevationSeries(File gpxFile, int maxEntries) {
+
+        // Get the parsed track for the File
+        GpxTrack track = getGpxTrack(gpxFile);
+
+        if (track == null || track.size() < 2) {
+            // Unable to parse. Nothing to return
+            return null;
+        }
+
+        // Get the DistanceMode that will be used to get the distance between each point
+        @DistanceMode int mode = sDistanceMode;
+
+        // Distance traveled at each point for the X-coordinate
+        double[] distances = new double[track.size()];
+
+        // Keep track of total distance and range of the elevation
+        double totalDistance = 0.0;
+        double minElevation = track.getElevation(0);
+        double maxElevation = track.getElevation(0);
+
+        // Iterate through each segment of the track so the X-coord of each segment
+        // continues from the end of the previous segment
+        for (int segment = 0; segment < track.getSegmentCount(); segment++) {
+            int start = track.getSegmentStart(segment);
+            int end = track.getSegmentEnd(segment);
+
+            // Iterate and get the distance traveled between each point and its elevation
+            for (int i = start; i < end; i++) {
+                double elevation = track.getElevation(i);
+
+                if (i > start) {
+                    // Add the distance traveled between the two points to the total distance
+                    // to keep track of the X-coord
+                    totalDistance += GeodesicUtils.distance(mode,
+                            track.getLatitude(i - 1), track.getLongitude(i - 1),
+                            track.getLatitude(i), track.getLongitude(i));
                 }
 
-                if (elevationCheck == 0) {
-                    // If total elevation is zero, then there is no data to plot
-                    listener.onElevationDataReady(null);
-                } else {
-                    listener.onElevationDataReady(elevationData);
+                distances[i] = totalDistance;
+
+                if (elevation < minElevation) {
+                    minElevation = elevation;
+                } else if (elevation > maxElevation) {
+                    maxElevation = elevation;
                 }
             }
-        }).run();
+        }
+
+        if (minElevation == 0 && maxElevation == 0) {
+            // If there is no elevation, then there is no data to plot
+            return null;
+        }
+
+        // Select the points that preserve the shape of the elevation profile
+        int[] indices = ChartDownsampler.downsampleElevation(distances, track, maxEntries);
+
+        ElevationSeries series = new ElevationSeries();
+        series.distances = new float[indices.length];
+        series.elevations = new float[indices.length];
+        series.minElevation = minElevation;
+        series.maxElevation = maxElevation;
+        series.totalDistance = totalDistance;
+
+        for (int i = 0; i < indices.length; i++) {
+            series.distances[i] = (float) distances[indices[i]];
+            series.elevations[i] = (float) track.getElevation(indices[i]);
+        }
+
+        return series;
     }
 
     /**
-     * Retrieves the coordinates of the mid-point of a Gpx File
+     * Plans the Mapbox tile regions to download to view a track offline. The File is processed in
+     * the background and the listener is called on the main thread.
      *
-     * @param gpxFile    Gpx File to find the mid-point for.
-     * @return LatLngs coordinates for the mid-point of the Gpx File
+     * @param gpxFile     A File corresponding to a GPX file that contains coordinates for a guide
+     * @param owner       Object waiting for the OfflineRegionPlan. May be null.
+     * @param listener    Listener to pass the OfflineRegionPlan to. Receives null if the File
+     *                    could not be parsed.
      */
-    public static LatLng getMidPoint(File gpxFile) {
-        try {
-            // Create a FileInputStream from the Gpx File
-            InputStream inStream = new FileInputStream(gpxFile);
+    public static void getOfflineRegionPlan(@NonNull final File gpxFile, @Nullable Object owner,
+                                            final OfflineRegionPlanListener listener) {
 
-            // Parse to a Gpx
-            Gpx parsedGpx = new GPXParser().parse(inStream);
+        String key = getTrackKey(gpxFile) + "/offline";
 
-            // Close the FileInputStream
-            inStream.close();
+        GpxExecutor.getInstance().submit(key, getPriority(owner), owner,
+                new GpxExecutor.Job<OfflineRegionPlan>() {
+                    @Override
+                    public OfflineRegionPlan run() {
+                        GpxTrack track = getGpxTrack(gpxFile);
 
-            if (parsedGpx != null) {
-                // Get the TrackPoints from the Gpx
-                List<TrackPoint> points = parsedGpx.getTracks().get(0).getTrackSegments().get(0).getTrackPoints();
+                        return track != null
+                                ? OfflineRegionPlanner.plan(track)
+                                : null;
+                    }
+                },
+                new GpxExecutor.Callback<OfflineRegionPlan>() {
+                    @Override
+                    public void onResult(OfflineRegionPlan plan) {
+                        listener.onPlanReady(plan);
+                    }
+                });
+    }
 
-                // Get the TrackPoint at the middle of the List
-                TrackPoint point = points.get(points.size() / 2);
+    /**
+     * Retrieves the coordinates of the mid-point of a Gpx File
+     *
+     * @param context    Interface to global Context
+     * @param gpxFile    Gpx File to find the mid-point for.
+     * @return LatLngs coordinates for the mid-point of the Gpx File
+     */
+    public static LatLng getMidPoint(Context context, File gpxFile) {
 
-                return new LatLng(point.getLatitude(), point.getLongitude());
-            }
-        } catch (XmlPullParserException | IOException e) {
-            e.printStackTrace();
+        // Get the stats for the File, which include the point at the middle of the track
+        GpxStats stats = getGpxStats(context, gpxFile);
+
+        if (stats == null) {
+            return null;
         }
 
-        return null;
+        return new LatLng(stats.midLatitude, stats.midLongitude);
+    }
+
+    /**
+     * Downsampled elevation profile shared between the requests for the same chart data
+     */
+    private static class ElevationSeries {
+        float[] distances;
+        float[] elevations;
+        double minElevation;
+        double maxElevation;
+        double totalDistance;
     }
 
     public interface MapboxOptionsListener {
-        void onOptionReady(MarkerOptions markerOptions, PolylineOptions polylineOptions);
+        void onOptionReady(MarkerOptions markerOptions, List<PolylineOptions> polylineOptionsList);
     }
 
     public interface ElevationDataListener {
-        void onElevationDataReady(List<Entry> elevationData);
+        void onElevationDataReady(ElevationProfile elevationProfile);
+    }
+
+    public interface OfflineRegionPlanListener {
+        void onPlanReady(OfflineRegionPlan plan);
     }
 }
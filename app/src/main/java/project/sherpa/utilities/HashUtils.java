@@ -0,0 +1,70 @@
+package project.sherpa.utilities;
+
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Generates hashes of the contents of Files so that Files with the same content can be
+ * identified regardless of their name or location.
+ */
+
+public class HashUtils {
+    // ** Constants ** //
+    private static final String ALGORITHM   = "SHA-1";
+    private static final int BUFFER_SIZE    = 8192;
+    private static final char[] HEX_DIGITS  = "0123456789abcdef".toCharArray();
+
+    /**
+     * Calculates the SHA-1 hash of a File's contents
+     *
+     * @param file    File to be hashed
+     * @return Hex String of the hash or null if the File could not be read
+     */
+    @Nullable
+    public static String hashFile(File file) {
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+            InputStream inStream = new FileInputStream(file);
+
+            try {
+                // Feed the File through the digest
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+
+                while ((read = inStream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                inStream.close();
+            }
+
+            return toHex(digest.digest());
+
+        } catch (IOException | NoSuchAlgorithmException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Converts an Array of bytes to a lower-case hex String
+     */
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+}
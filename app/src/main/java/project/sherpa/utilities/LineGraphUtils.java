@@ -18,6 +18,7 @@ import java.util.List;
 import project.sherpa.R;
 import project.sherpa.mpandroidchart.DistanceAxisFormatter;
 import project.sherpa.mpandroidchart.ElevationAxisFormatter;
+import project.sherpa.utilities.objects.ElevationProfile;
 
 /**
  * Created by Alvin on 7/27/2017.
@@ -31,14 +32,24 @@ public class LineGraphUtils {
 
     public static void addElevationDataToLineChart(File gpxFile, final LineChart lineChart, final Context context) {
 
+        // Only generate as many Entries as there are pixels on the chart
+        int maxEntries = lineChart.getWidth() > 0
+                ? lineChart.getWidth()
+                : context.getResources().getDisplayMetrics().widthPixels;
+
+        // Drop any data still being calculated for a previous File bound to the LineChart
+        GpxExecutor.getInstance().cancel(lineChart);
+
         // Calculate the Entries for the LineChart from the .gpx data
-        GpxUtils.getElevationChartData(gpxFile, new GpxUtils.ElevationDataListener() {
+        GpxUtils.getElevationChartData(gpxFile, maxEntries, lineChart, new GpxUtils.ElevationDataListener() {
             @Override
-            public void onElevationDataReady(List<Entry> elevationData) {
-                if (elevationData == null) {
+            public void onElevationDataReady(ElevationProfile elevationProfile) {
+                if (elevationProfile == null) {
                     return;
                 }
 
+                List<Entry> elevationData = elevationProfile.entries;
+
                 double distanceConversion   = GeneralUtils.isUnitPreferenceMetric(context)
                         ? METERS_PER_KILOMETER
                         : METERS_PER_MILE;
@@ -52,7 +63,7 @@ public class LineGraphUtils {
                     entry.setY((float) (entry.getY() / heightConversion));
                 }
 
-                float totalDistance = elevationData.get(elevationData.size() - 1).getX();
+                float totalDistance = (float) (elevationProfile.totalDistance / distanceConversion);
 
                 // Set the number of labels to display on the chart based on the total distance of
                 // the trail
@@ -114,10 +125,24 @@ public class LineGraphUtils {
                         ? 250f
                         : 500f;
 
+                // Fit the Y-Axes to the range of the full elevation data as the downsampled
+                // Entries may not include the highest and lowest points. The range is widened to
+                // the nearest labels so the line doesn't touch the edges of the chart.
+                float axisMinimum = (float) (Math.floor(elevationProfile.minElevation / heightConversion / granularity) * granularity);
+                float axisMaximum = (float) (Math.ceil(elevationProfile.maxElevation / heightConversion / granularity) * granularity);
+
+                if (axisMaximum <= axisMinimum) {
+                    axisMaximum = axisMinimum + granularity;
+                }
+
                 lineChart.getAxisRight().setValueFormatter(new ElevationAxisFormatter(context));
                 lineChart.getAxisRight().setGranularity(granularity);
+                lineChart.getAxisRight().setAxisMinimum(axisMinimum);
+                lineChart.getAxisRight().setAxisMaximum(axisMaximum);
                 lineChart.getAxisLeft().setValueFormatter(new ElevationAxisFormatter(context));
                 lineChart.getAxisLeft().setGranularity(granularity);
+                lineChart.getAxisLeft().setAxisMinimum(axisMinimum);
+                lineChart.getAxisLeft().setAxisMaximum(axisMaximum);
 
                 // Remove the description label from the chart
                 Description description = new Description();
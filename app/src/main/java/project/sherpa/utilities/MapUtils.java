@@ -4,9 +4,11 @@ import android.content.Context;
 import android.widget.Toast;
 
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
+import com.mapbox.mapboxsdk.annotations.Polyline;
 import com.mapbox.mapboxsdk.annotations.PolylineOptions;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
 import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
+import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.offline.OfflineManager;
@@ -20,10 +22,13 @@ import org.json.JSONObject;
 
 import java.io.File;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 
 import project.sherpa.R;
 import project.sherpa.data.GuideContract;
 import project.sherpa.models.datamodels.Guide;
+import project.sherpa.utilities.objects.OfflineRegionPlan;
 import timber.log.Timber;
 
 /**
@@ -34,106 +39,215 @@ public class MapUtils {
     // ** Constants ** //
     private static final String JSON_CHARSET = "UTF-8";
 
+    // Default maximum number of tiles Mapbox allows to be saved offline
+    public static final long MAPBOX_TILE_LIMIT = 6000;
+
     /**
-     * Adds a PolylineOptions representing the track from a .gpx file to a MapboxMap
+     * Adds the Polylines representing the track from a .gpx file to a MapboxMap. The track is
+     * simplified to the level of detail visible at the camera's zoom level.
+     *
+     * The MapboxMap only has a single OnCameraIdleListener, so it is left to the caller. The
+     * returned listener redraws the track when the camera's zoom requires a different level of
+     * detail and should be set on the MapboxMap or called from the caller's own listener.
      *
-     * @param gpxFile      .gpx file containing a track to be plotted on the MapboxMap
-     * @param mapboxMap    MapboxMap where the PolylineOptions will be drawn on
+     * @param gpxFile       .gpx file containing a track to be plotted on the MapboxMap
+     * @param mapboxMap     MapboxMap where the PolylineOptions will be drawn on
+     * @param moveCamera    Whether to move the camera to fit the track
+     * @return OnCameraIdleListener that keeps the track at the level of detail for the camera
      */
-    public static void addMapOptionsToMap(File gpxFile, final MapboxMap mapboxMap, final boolean moveCamera) {
+    public static MapboxMap.OnCameraIdleListener addMapOptionsToMap(final File gpxFile,
+                                                                    final MapboxMap mapboxMap,
+                                                                    final boolean moveCamera) {
 
-        // Parse the GPX File to get the Mapbox PolyLine and Marker
-        GpxUtils.getMapboxOptions(gpxFile, new GpxUtils.MapboxOptionsListener() {
-            @Override
-            public void onOptionReady(MarkerOptions markerOptions, PolylineOptions polylineOptions) {
-                // Set the Marker for the start of the trail
-                mapboxMap.addMarker(markerOptions);
+        final DetailLevelListener listener = new DetailLevelListener(gpxFile, mapboxMap);
+
+        if (!moveCamera) {
 
-                // Set the Polyline representing the trail
-                mapboxMap.addPolyline(polylineOptions
-                        .width(3));
+            // Draw the track at the level of detail for the current camera position
+            listener.onCameraIdle();
+
+            return listener;
+        }
+
+        // Use the simplest outline of the track to find the camera position that fits the track
+        GpxUtils.getMapboxOptions(gpxFile, TrackSimplifier.LEVEL_COUNT - 1, mapboxMap, new GpxUtils.MapboxOptionsListener() {
+            @Override
+            public void onOptionReady(MarkerOptions markerOptions, List<PolylineOptions> polylineOptionsList) {
 
-                if (moveCamera) {
-                    // Position the camera such that it fits all the points in the PolyLine
-                    CameraPosition position = mapboxMap.getCameraForLatLngBounds(
-                            new LatLngBounds.Builder().includes(polylineOptions.getPoints()).build(),
-                            new int[]{50, 100, 50, 100});
+                // Include the points of every segment
+                List<LatLng> points = new ArrayList<>();
 
-                    mapboxMap.animateCamera(CameraUpdateFactory.newCameraPosition(position));
+                for (PolylineOptions polylineOptions : polylineOptionsList) {
+                    points.addAll(polylineOptions.getPoints());
                 }
+
+                if (points.size() < 2) return;
+
+                // Position the camera such that it fits all the points in the PolyLine
+                CameraPosition position = mapboxMap.getCameraForLatLngBounds(
+                        new LatLngBounds.Builder().includes(points).build(),
+                        new int[]{50, 100, 50, 100});
+
+                // Draw the track at the level of detail for the new camera position
+                listener.drawTrack(GpxUtils.getDetailLevel(position.zoom, position.target.getLatitude()));
+
+                mapboxMap.animateCamera(CameraUpdateFactory.newCameraPosition(position));
             }
         });
+
+        return listener;
     }
 
     /**
-     * Saves Mapbox tiles corresponding to a Guide so that it can be viewed while offline
+     * Saves the Mapbox tiles for the regions of an OfflineRegionPlan so that a Guide can be viewed
+     * while offline. Each region is downloaded as its own OfflineRegion tagged with the Guide's
+     * FirebaseId and the callback reports the progress of all of them combined. The Guide is
+     * recorded as a user of each new OfflineRegion and of the shared OfflineRegions in the plan.
+     * Shared OfflineRegions whose download was interrupted are resumed and included in the
+     * progress.
      *
      * @param context     Interface to global Context
      * @param guide       Guide whose region is to be saved
+     * @param plan        OfflineRegionPlan from GpxUtils.getOfflineRegionPlan() for the Guide
      * @param callback    Callback to notify of download progress and completion
+     * @return MapboxDownload that can be used to stop the OfflineRegions from downloading
      */
-    public static void saveMapboxOffline(final Context context, final Guide guide,
-                                         final MapboxDownloadCallback callback) {
+    public static MapboxDownload saveMapboxOffline(final Context context, final Guide guide,
+                                                   final OfflineRegionPlan plan,
+                                                   final MapboxDownloadCallback callback) {
+
+        final MapboxDownload download = new MapboxDownload();
 
-        // Setup the variables required for downloading Mapbox tiles
-        GpxUtils.getMapboxOptions(guide.getGpxFile(), new GpxUtils.MapboxOptionsListener() {
+        // Use the regions already saved for other Guides
+        OfflineRegionManager.addSharedRegions(context, guide, plan);
+
+        if (plan.sharedRegionIds.isEmpty()) {
+            saveMapboxOffline(context, guide, plan, new ArrayList<OfflineRegion>(), download, callback);
+            return download;
+        }
+
+        // Find the shared OfflineRegions so any that are incomplete can be resumed
+        OfflineManager.getInstance(context).listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
             @Override
-            public void onOptionReady(MarkerOptions markerOptions, PolylineOptions polylineOptions) {
+            public void onList(OfflineRegion[] offlineRegions) {
+
+                List<OfflineRegion> sharedRegions = new ArrayList<>();
+
+                for (OfflineRegion region : offlineRegions) {
+                    if (plan.sharedRegionIds.contains(region.getID())) {
+                        sharedRegions.add(region);
+                    }
+                }
+
+                saveMapboxOffline(context, guide, plan, sharedRegions, download, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                Timber.e("Error: " + error);
 
-                // Get the bounds to download based on the bounds required for the Polyline
-                LatLngBounds bounds = new LatLngBounds.Builder()
-                        .includes(polylineOptions.getPoints())
-                        .build();
+                callback.onDownloadCancelled();
+            }
+        });
 
-                // Setup the definition, passing in the LatLngBounds
-                OfflineTilePyramidRegionDefinition definition = new OfflineTilePyramidRegionDefinition(
-                        context.getString(R.string.outdoors_style),
-                        bounds,
-                        13, // Min zoom
-                        16, // Max zoom
-                        context.getResources().getDisplayMetrics().density);
+        return download;
+    }
 
-                // Metadata for the offline region
-                byte[] metadata;
+    /**
+     * Downloads the new regions of an OfflineRegionPlan and resumes the shared OfflineRegions
+     *
+     * @param context          Interface to global Context
+     * @param guide            Guide whose region is to be saved
+     * @param plan             OfflineRegionPlan for the Guide
+     * @param sharedRegions    OfflineRegions in the plan that were saved for other Guides
+     * @param download         MapboxDownload to add the OfflineRegions to as they start
+     * @param callback         Callback to notify of download progress and completion
+     */
+    private static void saveMapboxOffline(Context context, Guide guide, OfflineRegionPlan plan,
+                                          List<OfflineRegion> sharedRegions,
+                                          MapboxDownload download,
+                                          MapboxDownloadCallback callback) {
 
-                try {
+        // The download was stopped while the shared regions were listed
+        if (download.isCancelled()) return;
 
-                    JSONObject jsonObject = new JSONObject();
+        if (plan.regions.isEmpty() && sharedRegions.isEmpty()) {
 
-                    // Use the trail as the name of the region
-                    jsonObject.put(GuideContract.GuideEntry.TRAIL_NAME, guide.trailName);
+            // Every tile is already saved offline
+            callback.onDownloadComplete();
+            return;
+        }
 
-                    // Add FirebaseId of the Guide
-                    jsonObject.put(GuideContract.GuideEntry.FIREBASE_ID, guide.firebaseId);
+        // Metadata for the offline region
+        byte[] metadata;
 
-                    // Convert to String and then to byte array
-                    String json = jsonObject.toString();
-                    metadata = json.getBytes(JSON_CHARSET);
-                } catch (JSONException | UnsupportedEncodingException e) {
-                    e.printStackTrace();
+        try {
 
-                    metadata = null;
-                }
+            JSONObject jsonObject = new JSONObject();
 
-                // Check that metadata was successfully generated
-                if (metadata != null) {
-                    saveMapboxTiles(context, definition, metadata, callback);
-                }
-            }
-        });
+            // Use the trail as the name of the region
+            jsonObject.put(GuideContract.GuideEntry.TRAIL_NAME, guide.trailName);
+
+            // Add FirebaseId of the Guide
+            jsonObject.put(GuideContract.GuideEntry.FIREBASE_ID, guide.firebaseId);
+
+            // Convert to String and then to byte array
+            String json = jsonObject.toString();
+            metadata = json.getBytes(JSON_CHARSET);
+        } catch (JSONException | UnsupportedEncodingException e) {
+            e.printStackTrace();
+
+            metadata = null;
+        }
+
+        // Check that metadata was successfully generated
+        if (metadata == null) {
+            callback.onDownloadCancelled();
+            return;
+        }
+
+        String styleUrl = context.getString(R.string.outdoors_style);
+        float density = context.getResources().getDisplayMetrics().density;
+
+        RegionDownloadProgress progress = new RegionDownloadProgress(
+                plan.regions.size() + sharedRegions.size(), download, callback);
+
+        // Resume the shared regions after the new ones in the RegionDownloadProgress
+        for (int i = 0; i < sharedRegions.size(); i++) {
+            resumeMapboxTiles(context, sharedRegions.get(i), progress, plan.regions.size() + i);
+        }
+
+        // Download the coarse overview and the detailed corridor along the track
+        for (int i = 0; i < plan.regions.size(); i++) {
+            OfflineRegionPlan.Region region = plan.regions.get(i);
+
+            OfflineTilePyramidRegionDefinition definition = new OfflineTilePyramidRegionDefinition(
+                    styleUrl,
+                    region.bounds,
+                    region.minZoom,
+                    region.maxZoom,
+                    density);
+
+            saveMapboxTiles(context, guide, region, definition, metadata, progress, i);
+        }
     }
 
     /**
      * Saves Mapbox Tiles for a definition and metadata
      *
      * @param context       Interface to global Context
+     * @param guide         Guide the region is downloaded for
+     * @param region        Region from the Guide's OfflineRegionPlan
      * @param definition    Definition for the region to be downloaded
      * @param metadata      Metadata for the region to be downloaded
-     * @param callback      Callback to notify of download progress and completion
+     * @param progress      RegionDownloadProgress combining the progress of each region
+     * @param index         Index of the region in the RegionDownloadProgress
      */
-    private static void saveMapboxTiles(final Context context,
+    private static void saveMapboxTiles(final Context context, final Guide guide,
+                                        final OfflineRegionPlan.Region region,
                                         OfflineTilePyramidRegionDefinition definition,
-                                        byte[] metadata, final MapboxDownloadCallback callback) {
+                                        byte[] metadata, final RegionDownloadProgress progress,
+                                        final int index) {
 
         // Init the OfflineManager
         OfflineManager manager = OfflineManager.getInstance(context);
@@ -145,68 +259,192 @@ public class MapUtils {
                     @Override
                     public void onCreate(OfflineRegion offlineRegion) {
 
-                        // Set download to Active
-                        offlineRegion.setDownloadState(OfflineRegion.STATE_ACTIVE);
+                        // Record the OfflineRegion so other Guides in the Area can share it
+                        region.regionId = offlineRegion.getID();
+                        OfflineRegionManager.registerRegion(context, guide, region);
+
+                        // Start the download and track its progress
+                        observeDownload(context, offlineRegion, progress, index);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Timber.e("Error: " + error);
+
+                        // The region will never report its progress, so the download can't
+                        // complete
+                        progress.onRegionFailed();
+                    }
+                });
 
-                        // Init the obsever to keep track of the download progress
-                        offlineRegion.setObserver(new OfflineRegion.OfflineRegionObserver() {
+    }
 
-                            @Override
-                            public void onStatusChanged(OfflineRegionStatus status) {
+    /**
+     * Resumes downloading a shared OfflineRegion if its download was interrupted
+     *
+     * @param context          Interface to global Context
+     * @param offlineRegion    Shared OfflineRegion
+     * @param progress         RegionDownloadProgress combining the progress of each region
+     * @param index            Index of the region in the RegionDownloadProgress
+     */
+    private static void resumeMapboxTiles(final Context context, final OfflineRegion offlineRegion,
+                                          final RegionDownloadProgress progress, final int index) {
 
-                                // Calculate the percentage progress
-                                double progress = status.getRequiredResourceCount() >= 0
-                                        ? (100.0 * status.getCompletedResourceCount() / status.getRequiredResourceCount())
-                                        : 0.0;
+        offlineRegion.getStatus(new OfflineRegion.OfflineRegionStatusCallback() {
+            @Override
+            public void onStatus(OfflineRegionStatus status) {
+
+                if (status.isComplete()) {
+                    progress.onStatusChanged(index, status);
+                } else {
+                    observeDownload(context, offlineRegion, progress, index);
+                }
+            }
 
-                                if (status.isComplete()) {
+            @Override
+            public void onError(String error) {
+                Timber.e("Error: " + error);
 
-                                    // Download complete
-                                    callback.onDownloadComplete();
+                progress.onRegionFailed();
+            }
+        });
+    }
 
-                                } else if (status.isRequiredResourceCountPrecise()) {
+    /**
+     * Sets an OfflineRegion to download and reports its status to a RegionDownloadProgress
+     *
+     * @param context          Interface to global Context
+     * @param offlineRegion    OfflineRegion to download
+     * @param progress         RegionDownloadProgress combining the progress of each region
+     * @param index            Index of the region in the RegionDownloadProgress
+     */
+    private static void observeDownload(final Context context, OfflineRegion offlineRegion,
+                                        final RegionDownloadProgress progress, final int index) {
 
-                                    // Update ProgressBar
-                                    callback.onUpdateProgress(progress);
-                                }
-                            }
+        // Track the OfflineRegion so it can be stopped. Regions created after the download was
+        // stopped are never started.
+        if (!progress.getDownload().addRegion(offlineRegion)) return;
 
-                            @Override
-                            public void onError(OfflineRegionError error) {
+        // Set download to Active
+        offlineRegion.setDownloadState(OfflineRegion.STATE_ACTIVE);
 
-                                // Show a Toast to the user to let them know of the failure to save
-                                Toast.makeText(context,
-                                        context.getString(R.string.error_downloading_mapbox),
-                                        Toast.LENGTH_LONG)
-                                        .show();
+        // Init the obsever to keep track of the download progress
+        offlineRegion.setObserver(new OfflineRegion.OfflineRegionObserver() {
 
-                                Timber.e(error.getMessage());
-                            }
+            @Override
+            public void onStatusChanged(OfflineRegionStatus status) {
 
-                            @Override
-                            public void mapboxTileCountLimitExceeded(long limit) {
+                // Combine the status with the other regions for the Guide
+                progress.onStatusChanged(index, status);
+            }
 
-                                // Notify user of reaching max tile count
-                                Toast.makeText(context,
-                                        context.getString(R.string.error_tile_count_exceeded),
-                                        Toast.LENGTH_LONG)
-                                        .show();
+            @Override
+            public void onError(OfflineRegionError error) {
 
-                                Timber.i("Exceeded TileCountLimit");
-                            }
-                        });
-                    }
+                // Show a Toast to the user to let them know of the failure to save
+                Toast.makeText(context,
+                        context.getString(R.string.error_downloading_mapbox),
+                        Toast.LENGTH_LONG)
+                        .show();
 
-                    @Override
-                    public void onError(String error) {
-                        Timber.e("Error: " + error);
+                Timber.e(error.getMessage());
+            }
+
+            @Override
+            public void mapboxTileCountLimitExceeded(long limit) {
+
+                // Only notify the user once for all the regions of the Guide
+                if (!progress.onTileCountLimitExceeded()) return;
+
+                // Notify user of reaching max tile count
+                Toast.makeText(context,
+                        context.getString(R.string.error_tile_count_exceeded),
+                        Toast.LENGTH_LONG)
+                        .show();
+
+                Timber.i("Exceeded TileCountLimit");
+            }
+        });
+    }
+
+    /**
+     * Measures the storage used by the Mapbox tiles saved for a Guide. The size of each
+     * OfflineRegion is divided between the Guides sharing it.
+     *
+     * @param context     Interface to global Context
+     * @param guideId     FirebaseId of the Guide
+     * @param callback    Callback to pass the size in bytes to
+     */
+    public static void measureMapboxOffline(final Context context, String guideId,
+                                            final MapboxSizeCallback callback) {
+
+        final List<Long> regionIds = ContentProviderUtils.getOfflineRegionIdsForGuide(context, guideId);
+
+        if (regionIds.isEmpty()) {
+            callback.onSizeReady(0);
+            return;
+        }
+
+        OfflineManager.getInstance(context).listOfflineRegions(new OfflineManager.ListOfflineRegionsCallback() {
+            @Override
+            public void onList(OfflineRegion[] offlineRegions) {
+
+                List<OfflineRegion> guideRegions = new ArrayList<>();
+
+                for (OfflineRegion region : offlineRegions) {
+                    if (regionIds.contains(region.getID())) {
+                        guideRegions.add(region);
                     }
-                });
+                }
+
+                if (guideRegions.isEmpty()) {
+                    callback.onSizeReady(0);
+                    return;
+                }
+
+                // Sum the Guide's share of each region, notifying the callback after the last
+                final long[] size = {0};
+                final int[] remaining = {guideRegions.size()};
+
+                for (final OfflineRegion region : guideRegions) {
+                    region.getStatus(new OfflineRegion.OfflineRegionStatusCallback() {
+                        @Override
+                        public void onStatus(OfflineRegionStatus status) {
+
+                            int guideCount = Math.max(1,
+                                    ContentProviderUtils.getOfflineRegionGuideCount(context, region.getID()));
+
+                            size[0] += status.getCompletedResourceSize() / guideCount;
+
+                            if (--remaining[0] == 0) {
+                                callback.onSizeReady(size[0]);
+                            }
+                        }
+
+                        @Override
+                        public void onError(String error) {
+                            Timber.e("Error: " + error);
+
+                            if (--remaining[0] == 0) {
+                                callback.onSizeReady(size[0]);
+                            }
+                        }
+                    });
+                }
+            }
 
+            @Override
+            public void onError(String error) {
+                Timber.e("Error: " + error);
+
+                callback.onSizeReady(0);
+            }
+        });
     }
 
     /**
-     * Deletes Mapbox tiles that have been saved offline for a given Guide
+     * Deletes Mapbox tiles that have been saved offline for a given Guide. Regions shared with
+     * other Guides are kept until the last Guide using them is deleted.
      *
      * @param context    Interface to global Context
      * @param guide      Guide whose associated Mapbox tiles should be deleted
@@ -214,6 +452,11 @@ public class MapUtils {
     public static void deleteMapboxOffline(final Context context, final Guide guide,
                                            final MapboxDeleteCallback callback) {
 
+        // Find the regions no other Guide uses. They are only released once their tiles have
+        // been deleted so they are never left untracked.
+        final List<Long> regionIds = ContentProviderUtils.getOfflineRegionIdsForGuide(context, guide.firebaseId);
+        final List<Long> unusedRegionIds = OfflineRegionManager.getUnusedRegionIds(context, guide);
+
         // Init the OfflineManager
         OfflineManager manager = OfflineManager.getInstance(context);
 
@@ -222,8 +465,28 @@ public class MapUtils {
             @Override
             public void onList(OfflineRegion[] offlineRegions) {
 
+                // A Guide's map is split across several regions
+                List<OfflineRegion> guideRegions = new ArrayList<>();
+
                 // Iterate through the regions and check the metadata for a match
                 for (OfflineRegion region : offlineRegions) {
+
+                    // Delete shared regions once no Guide uses them
+                    if (unusedRegionIds.contains(region.getID())) {
+                        guideRegions.add(region);
+                        continue;
+                    }
+
+                    // Release the regions that other Guides still use
+                    if (regionIds.contains(region.getID())) {
+                        OfflineRegionManager.releaseRegion(context, guide, region.getID());
+                        continue;
+                    }
+
+                    // Regions saved before they could be shared belong to the Guide in their
+                    // metadata
+                    if (OfflineRegionManager.isRegionTracked(context, region.getID())) continue;
+
                     try {
 
                         // Convert the metadata to a json String
@@ -236,30 +499,54 @@ public class MapUtils {
                         String firebaseId = jsonObject.getString(GuideContract.GuideEntry.FIREBASE_ID);
 
                         if (guide.firebaseId.equals(firebaseId)) {
-
-                            // Delete the tiles for the OfflineRegion
-                            deleteTiles(context, region, callback);
+                            guideRegions.add(region);
                         }
                     } catch (UnsupportedEncodingException | JSONException e) {
                         e.printStackTrace();
                     }
                 }
+
+                if (guideRegions.isEmpty()) {
+                    callback.onComplete();
+                    return;
+                }
+
+                // Delete the tiles for each OfflineRegion, notifying the callback after the last
+                final int[] remaining = {guideRegions.size()};
+
+                for (OfflineRegion region : guideRegions) {
+                    deleteTiles(context, guide, region, new MapboxDeleteCallback() {
+                        @Override
+                        public void onComplete() {
+                            if (--remaining[0] == 0) {
+                                callback.onComplete();
+                            }
+                        }
+                    });
+                }
             }
 
             @Override
             public void onError(String error) {
                 Timber.e("Error: " + error);
+
+                // The regions are still tracked so they can be deleted later
+                callback.onComplete();
             }
         });
     }
 
     /**
-     * Deletes an OfflineRegion for Mapbox
+     * Deletes an OfflineRegion for Mapbox. The callback is notified whether or not the deletion
+     * succeeds, but the Guide is only released from the OfflineRegion once its tiles are deleted.
      *
      * @param context          Interface to global Context
+     * @param guide            Guide whose tiles are being deleted
      * @param offlineRegion    OfflineRegion to be deleted
+     * @param callback         Callback to notify once the deletion has finished
      */
-    private static void deleteTiles(final Context context, OfflineRegion offlineRegion,
+    private static void deleteTiles(final Context context, final Guide guide,
+                                    final OfflineRegion offlineRegion,
                                     final MapboxDeleteCallback callback) {
 
         // Delete the region
@@ -267,6 +554,9 @@ public class MapUtils {
             @Override
             public void onDelete() {
 
+                // Stop tracking the region now that its tiles are gone
+                OfflineRegionManager.releaseRegion(context, guide, offlineRegion.getID());
+
                 // Trigger callback
                 callback.onComplete();
 
@@ -283,16 +573,248 @@ public class MapUtils {
                         .show();
 
                 Timber.e("Error: " + error);
+
+                // The region is still tracked so it can be deleted later
+                callback.onComplete();
             }
         });
     }
 
+    /**
+     * Draws a track's Polylines and replaces them with ones at a different level of detail when
+     * the camera's zoom level changes
+     */
+    private static class DetailLevelListener implements MapboxMap.OnCameraIdleListener {
+
+        // ** Member Variables ** //
+        private File mGpxFile;
+        private MapboxMap mMapboxMap;
+        private List<Polyline> mPolylines = new ArrayList<>();
+        private boolean mMarkerAdded;
+        private int mDetailLevel = -1;
+
+        DetailLevelListener(File gpxFile, MapboxMap mapboxMap) {
+            mGpxFile = gpxFile;
+            mMapboxMap = mapboxMap;
+        }
+
+        @Override
+        public void onCameraIdle() {
+
+            // Check whether the new zoom level requires a different level of detail
+            CameraPosition position = mMapboxMap.getCameraPosition();
+            drawTrack(GpxUtils.getDetailLevel(position.zoom, position.target.getLatitude()));
+        }
+
+        /**
+         * Draws the track at a level of detail, replacing the Polylines that were drawn at a
+         * different one
+         *
+         * @param detailLevel    Level of detail to draw the Polylines at
+         */
+        void drawTrack(final int detailLevel) {
+
+            if (detailLevel == mDetailLevel) return;
+
+            mDetailLevel = detailLevel;
+
+            GpxUtils.getMapboxOptions(mGpxFile, detailLevel, mMapboxMap, new GpxUtils.MapboxOptionsListener() {
+                @Override
+                public void onOptionReady(MarkerOptions markerOptions, List<PolylineOptions> polylineOptionsList) {
+
+                    // Skip results for a level of detail the camera has since moved away from
+                    if (detailLevel != mDetailLevel) return;
+
+                    // Set the Marker for the start of the trail
+                    if (!mMarkerAdded && markerOptions.getPosition() != null) {
+                        mMapboxMap.addMarker(markerOptions);
+                        mMarkerAdded = true;
+                    }
+
+                    // Swap the Polylines for the ones at the new level of detail
+                    for (Polyline polyline : mPolylines) {
+                        mMapboxMap.removePolyline(polyline);
+                    }
+
+                    mPolylines.clear();
+
+                    for (PolylineOptions polylineOptions : polylineOptionsList) {
+                        mPolylines.add(mMapboxMap.addPolyline(polylineOptions
+                                .width(3)));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Tracks the OfflineRegions downloading for a Guide so they can be stopped together
+     */
+    public static class MapboxDownload {
+
+        // ** Member Variables ** //
+        private List<OfflineRegion> mRegions = new ArrayList<>();
+        private boolean mCancelled;
+
+        /**
+         * Stops the OfflineRegions from downloading in the background. The tiles that have been
+         * saved are kept so the download can be resumed later.
+         */
+        public void cancel() {
+
+            if (mCancelled) return;
+            mCancelled = true;
+
+            for (OfflineRegion region : mRegions) {
+                region.setDownloadState(OfflineRegion.STATE_INACTIVE);
+            }
+
+            mRegions.clear();
+        }
+
+        boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Adds an OfflineRegion that is about to start downloading
+         *
+         * @param region    OfflineRegion to track
+         * @return True if the region should start downloading. False if the download has been
+         * cancelled.
+         */
+        boolean addRegion(OfflineRegion region) {
+
+            if (mCancelled) return false;
+
+            mRegions.add(region);
+            return true;
+        }
+    }
+
+    /**
+     * Combines the status of each of the OfflineRegions saved for a Guide so the progress of the
+     * whole download can be reported. The observers of the OfflineRegions are all called on the
+     * main thread.
+     */
+    private static class RegionDownloadProgress {
+
+        // ** Member Variables ** //
+        private MapboxDownload mDownload;
+        private MapboxDownloadCallback mCallback;
+        private long[] mCompleted;
+        private long[] mRequired;
+        private boolean[] mPrecise;
+        private boolean[] mComplete;
+        private boolean mFinished;
+        private boolean mLimitReported;
+
+        RegionDownloadProgress(int regionCount, MapboxDownload download,
+                               MapboxDownloadCallback callback) {
+            mDownload = download;
+            mCallback = callback;
+            mCompleted = new long[regionCount];
+            mRequired = new long[regionCount];
+            mPrecise = new boolean[regionCount];
+            mComplete = new boolean[regionCount];
+        }
+
+        /**
+         * Updates the status of one region and notifies the callback of the combined progress
+         *
+         * @param index     Index of the region
+         * @param status    New status of the region
+         */
+        void onStatusChanged(int index, OfflineRegionStatus status) {
+
+            if (mDownload.isCancelled()) return;
+
+            mCompleted[index] = status.getCompletedResourceCount();
+            mRequired[index] = status.getRequiredResourceCount();
+            mPrecise[index] = status.isRequiredResourceCountPrecise();
+            mComplete[index] = status.isComplete();
+
+            // Sum up the regions
+            long completed = 0;
+            long required = 0;
+            boolean complete = true;
+            boolean precise = true;
+
+            for (int i = 0; i < mComplete.length; i++) {
+                completed += mCompleted[i];
+                required += mRequired[i];
+                complete &= mComplete[i];
+                precise &= mPrecise[i] || mComplete[i];
+            }
+
+            if (complete) {
+
+                // Download complete
+                if (!mFinished) {
+                    mFinished = true;
+                    mCallback.onDownloadComplete();
+                }
+
+            } else if (precise) {
+
+                // Calculate the percentage progress
+                double progress = required > 0
+                        ? (100.0 * completed / required)
+                        : 0.0;
+
+                // Update ProgressBar
+                mCallback.onUpdateProgress(progress);
+            }
+        }
+
+        MapboxDownload getDownload() {
+            return mDownload;
+        }
+
+        /**
+         * Cancels the download when one of the regions could not be created or resumed as the
+         * combined progress can never complete
+         */
+        void onRegionFailed() {
+
+            if (!mFinished) {
+                mFinished = true;
+                mCallback.onDownloadCancelled();
+            }
+        }
+
+        /**
+         * Cancels the download when the tile count limit is exceeded as the regions can't be
+         * completed
+         *
+         * @return True the first time the tile count limit is exceeded by any of the regions
+         */
+        boolean onTileCountLimitExceeded() {
+
+            if (mLimitReported) return false;
+
+            mLimitReported = true;
+
+            if (!mFinished) {
+                mFinished = true;
+                mCallback.onDownloadCancelled();
+            }
+
+            return true;
+        }
+    }
+
     public interface MapboxDownloadCallback {
         void onDownloadComplete();
         void onUpdateProgress(double progress);
+        void onDownloadCancelled();
     }
 
     public interface MapboxDeleteCallback {
         void onComplete();
     }
+
+    public interface MapboxSizeCallback {
+        void onSizeReady(long bytes);
+    }
 }
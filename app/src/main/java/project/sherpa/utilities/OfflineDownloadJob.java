@@ -0,0 +1,397 @@
+package project.sherpa.utilities;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.storage.FileDownloadTask;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.OnProgressListener;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import project.sherpa.files.abstractfiles.BaseFile;
+import project.sherpa.models.datamodels.Guide;
+import project.sherpa.utilities.objects.OfflineRegionPlan;
+import timber.log.Timber;
+
+/**
+ * Downloads the files and Mapbox tiles of a Guide for offline use as a single job. Files are
+ * downloaded from Firebase Storage a few at a time while the map tiles are downloaded alongside
+ * them, and each file is retried with an increasing delay before the job is considered failed.
+ * The progress of the files and tiles is combined, weighted by their size.
+ *
+ * Jobs that include the Guide's map are checkpointed: the files that have finished downloading
+ * are recorded in SharedPreferences so that a job interrupted by a failure or by the process
+ * being killed can be resumed without downloading them again. The checkpoint is removed when the
+ * job completes. All callbacks are delivered on the main thread.
+ */
+
+public class OfflineDownloadJob {
+    // ** Constants ** //
+    private static final String PREFS_NAME              = "offline_downloads";
+    private static final int MAX_PARALLEL_DOWNLOADS     = 3;
+    private static final int MAX_ATTEMPTS               = 4;
+    private static final long RETRY_BASE_DELAY          = 1000;
+
+    // Weight of a file whose size is not known until its download starts
+    private static final long ESTIMATED_FILE_BYTES      = 256 * 1024;
+
+    // ** Member Variables ** //
+    private Context mContext;
+    private Guide mGuide;
+    private OfflineRegionPlan mPlan;
+    private JobListener mListener;
+    private Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private List<DownloadItem> mItems = new ArrayList<>();
+    private Deque<DownloadItem> mQueue = new ArrayDeque<>();
+    private List<FileDownloadTask> mActiveTasks = new ArrayList<>();
+    private int mActiveDownloads;
+    private int mRemainingFiles;
+
+    private MapUtils.MapboxDownload mMapDownload;
+    private long mMapBytes;
+    private double mMapProgress;
+    private boolean mMapComplete;
+    private boolean mFinished;
+
+    /**
+     * Creates a job to download files and, optionally, the Mapbox tiles for a Guide
+     *
+     * @param context     Interface to global Context
+     * @param guide       Guide the files belong to
+     * @param files       Files to download from Firebase Storage
+     * @param plan        OfflineRegionPlan for the Guide's map or null if only the files are to be
+     *                    downloaded
+     * @param listener    JobListener to notify of the progress and result of the job
+     */
+    public OfflineDownloadJob(Context context, @NonNull Guide guide, @NonNull List<BaseFile> files,
+                              @Nullable OfflineRegionPlan plan, @NonNull JobListener listener) {
+
+        mContext = context.getApplicationContext();
+        mGuide = guide;
+        mPlan = plan;
+        mListener = listener;
+
+        for (BaseFile file : files) {
+            mItems.add(new DownloadItem(file));
+        }
+
+        if (mPlan != null) {
+
+            // Weight the map by its estimated size
+            mMapBytes = Math.max(mPlan.estimatedBytes, ESTIMATED_FILE_BYTES);
+        } else {
+            mMapComplete = true;
+        }
+    }
+
+    /**
+     * Checks whether a Guide has a checkpointed download that has not completed
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     * @return True if the Guide's download should be resumed. False otherwise.
+     */
+    public static boolean hasCheckpoint(Context context, String guideId) {
+        return getPreferences(context).contains(guideId);
+    }
+
+    /**
+     * Removes the checkpoint for a Guide's download
+     *
+     * @param context    Interface to global Context
+     * @param guideId    FirebaseId of the Guide
+     */
+    public static void clearCheckpoint(Context context, String guideId) {
+        getPreferences(context).edit().remove(guideId).apply();
+    }
+
+    /**
+     * Starts downloading the files and map tiles. Files recorded as downloaded in the Guide's
+     * checkpoint are skipped.
+     */
+    public void start() {
+
+        Set<String> completedPaths = new HashSet<>();
+
+        if (mPlan != null) {
+
+            // Resume from the checkpoint or start a new one
+            completedPaths.addAll(getPreferences(mContext).getStringSet(mGuide.firebaseId, new HashSet<String>()));
+            saveCheckpoint(completedPaths);
+        }
+
+        for (DownloadItem item : mItems) {
+
+            // Skip files that were downloaded before the job was interrupted
+            if (completedPaths.contains(item.file.getPath()) && item.file.exists()) {
+                item.transferredBytes = item.totalBytes = item.file.length();
+            } else {
+                mQueue.add(item);
+            }
+        }
+
+        mRemainingFiles = mQueue.size();
+
+        if (mPlan != null) {
+            downloadMap();
+        }
+
+        // Fill the available download slots
+        while (mActiveDownloads < MAX_PARALLEL_DOWNLOADS && !mQueue.isEmpty()) {
+            downloadFile(mQueue.poll());
+        }
+
+        checkComplete();
+    }
+
+    /**
+     * Stops the job without notifying the JobListener. The downloads in progress and the map
+     * tiles are stopped and the checkpoint is kept so the job can be resumed later.
+     */
+    public void cancel() {
+
+        if (mFinished) return;
+
+        mFinished = true;
+        mQueue.clear();
+
+        for (FileDownloadTask task : new ArrayList<>(mActiveTasks)) {
+            task.cancel();
+        }
+
+        mActiveTasks.clear();
+
+        if (mMapDownload != null) {
+            mMapDownload.cancel();
+        }
+    }
+
+    /**
+     * Downloads the Mapbox tiles for the Guide alongside its files
+     */
+    private void downloadMap() {
+
+        mMapDownload = MapUtils.saveMapboxOffline(mContext, mGuide, mPlan, new MapUtils.MapboxDownloadCallback() {
+            @Override
+            public void onDownloadComplete() {
+                mMapComplete = true;
+                mMapProgress = 1;
+
+                updateProgress();
+                checkComplete();
+            }
+
+            @Override
+            public void onUpdateProgress(double progress) {
+                mMapProgress = progress / 100;
+                updateProgress();
+            }
+
+            @Override
+            public void onDownloadCancelled() {
+                fail();
+            }
+        });
+    }
+
+    /**
+     * Downloads a single file from Firebase Storage, retrying with an increasing delay if the
+     * download fails
+     *
+     * @param item    DownloadItem for the file to download
+     */
+    private void downloadFile(final DownloadItem item) {
+
+        if (mFinished) return;
+
+        mActiveDownloads++;
+        item.attempts++;
+
+        StorageReference reference = FirebaseStorage.getInstance().getReference();
+        final FileDownloadTask task = FirebaseProviderUtils.getReferenceForFile(reference, item.file)
+                .getFile(item.file);
+
+        mActiveTasks.add(task);
+
+        task.addOnProgressListener(new OnProgressListener<FileDownloadTask.TaskSnapshot>() {
+                    @Override
+                    public void onProgress(FileDownloadTask.TaskSnapshot taskSnapshot) {
+
+                        // Replace the estimated size of the file with its actual size
+                        if (taskSnapshot.getTotalByteCount() > 0) {
+                            item.totalBytes = taskSnapshot.getTotalByteCount();
+                        }
+
+                        item.transferredBytes = taskSnapshot.getBytesTransferred();
+                        updateProgress();
+                    }
+                })
+                .addOnSuccessListener(new OnSuccessListener<FileDownloadTask.TaskSnapshot>() {
+                    @Override
+                    public void onSuccess(FileDownloadTask.TaskSnapshot taskSnapshot) {
+
+                        mActiveTasks.remove(task);
+                        mActiveDownloads--;
+                        mRemainingFiles--;
+
+                        item.transferredBytes = item.totalBytes;
+
+                        if (mFinished) return;
+
+                        // Record the file so it is not downloaded again if the job is resumed
+                        if (mPlan != null) {
+                            Set<String> completedPaths = new HashSet<>(
+                                    getPreferences(mContext).getStringSet(mGuide.firebaseId, new HashSet<String>()));
+                            completedPaths.add(item.file.getPath());
+
+                            saveCheckpoint(completedPaths);
+                        }
+
+                        updateProgress();
+
+                        // Start the next file in the queue
+                        if (!mQueue.isEmpty()) {
+                            downloadFile(mQueue.poll());
+                        }
+
+                        checkComplete();
+                    }
+                })
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+
+                        mActiveTasks.remove(task);
+                        mActiveDownloads--;
+                        item.transferredBytes = 0;
+
+                        Timber.e(e, "Failed to download " + item.file.getName());
+
+                        if (mFinished) return;
+
+                        // There is no point retrying a file that doesn't exist
+                        boolean notFound = e instanceof StorageException
+                                && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+
+                        if (notFound || item.attempts >= MAX_ATTEMPTS) {
+                            fail();
+                            return;
+                        }
+
+                        // Retry after 1s, 2s, 4s...
+                        long delay = RETRY_BASE_DELAY << (item.attempts - 1);
+
+                        mHandler.postDelayed(new Runnable() {
+                            @Override
+                            public void run() {
+                                downloadFile(item);
+                            }
+                        }, delay);
+                    }
+                });
+    }
+
+    /**
+     * Notifies the JobListener of the combined progress of the files and map tiles
+     */
+    private void updateProgress() {
+
+        if (mFinished) return;
+
+        long totalBytes = mMapBytes;
+        double completedBytes = mMapBytes * mMapProgress;
+
+        for (DownloadItem item : mItems) {
+            totalBytes += item.totalBytes;
+            completedBytes += Math.min(item.transferredBytes, item.totalBytes);
+        }
+
+        mListener.onUpdateProgress(totalBytes > 0
+                ? 100.0 * completedBytes / totalBytes
+                : 0.0);
+    }
+
+    /**
+     * Completes the job once all of the files and map tiles have been downloaded
+     */
+    private void checkComplete() {
+
+        if (mFinished || mRemainingFiles > 0 || !mMapComplete) return;
+
+        mFinished = true;
+
+        if (mPlan != null) {
+            clearCheckpoint(mContext, mGuide.firebaseId);
+        }
+
+        mListener.onComplete();
+    }
+
+    /**
+     * Stops the job after a file or the map could not be downloaded. The checkpoint is kept so
+     * the job can be resumed later.
+     */
+    private void fail() {
+
+        if (mFinished) return;
+
+        mFinished = true;
+        mQueue.clear();
+
+        // Stop the map tiles from downloading in the background
+        if (mMapDownload != null) {
+            mMapDownload.cancel();
+        }
+
+        mListener.onFailed();
+    }
+
+    /**
+     * Records the files that have been downloaded for the Guide
+     *
+     * @param completedPaths    Paths of the files that have been downloaded
+     */
+    private void saveCheckpoint(Set<String> completedPaths) {
+        getPreferences(mContext).edit().putStringSet(mGuide.firebaseId, completedPaths).apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * A file to be downloaded and the progress of its download
+     */
+    private static class DownloadItem {
+        // ** Member Variables ** //
+        private BaseFile file;
+        private int attempts;
+        private long totalBytes = ESTIMATED_FILE_BYTES;
+        private long transferredBytes;
+
+        DownloadItem(BaseFile file) {
+            this.file = file;
+        }
+    }
+
+    public interface JobListener {
+        void onUpdateProgress(double progress);
+        void onComplete();
+        void onFailed();
+    }
+}
@@ -1,26 +1,33 @@
 package project.sherpa.utilities;
 
 import android.content.Context;
+import android.content.DialogInterface;
 import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
 import android.widget.Toast;
 
+import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.firebase.storage.FileDownloadTask;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.StorageTask;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import project.sherpa.R;
 import project.sherpa.files.GpxFile;
+import project.sherpa.files.ImageFile;
 import project.sherpa.files.abstractfiles.BaseFile;
 import project.sherpa.models.datamodels.Author;
 import project.sherpa.models.datamodels.Guide;
 import project.sherpa.models.datamodels.Section;
+import project.sherpa.ui.dialogs.MapDownloadDialog;
 import project.sherpa.ui.dialogs.ProgressDialog;
+import project.sherpa.utilities.objects.OfflineRegionPlan;
+import timber.log.Timber;
 
 /**
  * Created by Alvin on 8/26/2017.
@@ -32,8 +39,8 @@ public class OfflineGuideManager {
     private Guide mGuide;
     private Section[] mSections;
     private Author mAuthor;
-
-    private DownloadListener mListener;
+    private OfflineDownloadJob mActiveJob;
+    private boolean mStopped;
 
     public OfflineGuideManager(@NonNull Guide guide, @NonNull Section[] sections, @NonNull Author author) {
         mGuide = guide;
@@ -41,6 +48,21 @@ public class OfflineGuideManager {
         mAuthor = author;
     }
 
+    /**
+     * Stops the download in progress without notifying its callback, such as when a background
+     * job is stopped by the system. The checkpoint is kept so the download can be resumed later
+     * and no further downloads are started by this OfflineGuideManager.
+     */
+    public void stop() {
+
+        mStopped = true;
+
+        if (mActiveJob != null) {
+            mActiveJob.cancel();
+            mActiveJob = null;
+        }
+    }
+
     /**
      * Checks whether the Guide, Sections, and Author already exist in the local database
      *
@@ -71,7 +93,9 @@ public class OfflineGuideManager {
 
     /**
      * Caches the Guide, Author, and Sections to the offline database, their files to internal
-     * storage, and the corresponding Mapbox Tiles to internal storage
+     * storage, and the corresponding Mapbox Tiles to internal storage. The GPX File is downloaded
+     * first so the user can confirm the estimated size of the map before the rest is downloaded.
+     * If an earlier download of the Guide was interrupted, it is resumed instead.
      *
      * @param activity    Interface to Activity for context and SupportFragmentManager
      * @param callback    The Callback to be triggered when downloading Mapbox Tiles
@@ -79,10 +103,196 @@ public class OfflineGuideManager {
     public void cache(AppCompatActivity activity, MapUtils.MapboxDownloadCallback callback) {
 
         // Ensure the guide isn't already cached
-        if (!isCachedOffline(activity)) {
-            initDownloadListener(activity, callback);
-            cacheGuideFiles(activity);
+        if (isCachedOffline(activity)) return;
+
+        if (hasPendingDownload(activity)) {
+            resume(activity, callback);
+        } else {
+            downloadGpx(activity, callback);
+        }
+    }
+
+    /**
+     * Checks whether a download of the Guide was started but did not complete, either because a
+     * file failed to download or because the app was closed
+     *
+     * @param context    Interface to global Context
+     * @return True if the download should be resumed. False otherwise.
+     */
+    public boolean hasPendingDownload(Context context) {
+        return OfflineDownloadJob.hasCheckpoint(context, mGuide.firebaseId);
+    }
+
+    /**
+     * Resumes an interrupted download of the Guide from its checkpoint. The user has already
+     * confirmed the size of the map so the download continues without asking again.
+     *
+     * @param activity    Interface to Activity for context and SupportFragmentManager
+     * @param callback    Callback to inform the calling Object of the download status
+     */
+    public void resume(final AppCompatActivity activity, final MapUtils.MapboxDownloadCallback callback) {
+
+        GpxFile gpxFile = mGuide.generateGpxFileForDownload(activity);
+
+        if (!gpxFile.exists()) {
+
+            // The map can't be planned without the GPX File so start the download over
+            OfflineDownloadJob.clearCheckpoint(activity, mGuide.firebaseId);
+            downloadGpx(activity, callback);
+            return;
+        }
+
+        mGuide.setGpxUri(activity, gpxFile);
+
+        GpxUtils.getOfflineRegionPlan(gpxFile, activity, new GpxUtils.OfflineRegionPlanListener() {
+            @Override
+            public void onPlanReady(OfflineRegionPlan plan) {
+
+                if (plan == null) {
+                    Toast.makeText(activity,
+                            activity.getString(R.string.error_downloading_mapbox),
+                            Toast.LENGTH_LONG)
+                            .show();
+
+                    cancelDownload(activity, callback);
+                    return;
+                }
+
+                // The regions created before the download was interrupted are already recorded
+                // for the Area, so they are resumed as shared regions instead of being created
+                // again
+                OfflineRegionManager.removeSavedTiles(activity, mGuide, plan);
+                downloadGuide(activity, callback, plan);
+            }
+        });
+    }
+
+    /**
+     * Caches the Guide without any user interaction, for use from a background job. The Guide is
+     * skipped if its map is too large or would exceed the user's storage budget. An interrupted
+     * download of the Guide is resumed.
+     *
+     * @param context     Interface to global Context
+     * @param callback    Callback to inform the calling Object of the download status. The
+     *                    download is cancelled if the Guide is skipped.
+     */
+    public void cacheInBackground(final Context context, final MapUtils.MapboxDownloadCallback callback) {
+
+        if (isCachedOffline(context)) {
+            callback.onDownloadComplete();
+            return;
+        }
+
+        final GpxFile gpxFile = mGuide.generateGpxFileForDownload(context);
+
+        // The GPX File is kept while a download is pending
+        if (hasPendingDownload(context) && gpxFile.exists()) {
+            mGuide.setGpxUri(context, gpxFile);
+            downloadGuideInBackground(context, callback);
+            return;
         }
+
+        List<BaseFile> files = new ArrayList<>();
+        files.add(gpxFile);
+
+        startJob(new OfflineDownloadJob(context, mGuide, files, null, new OfflineDownloadJob.JobListener() {
+            @Override
+            public void onUpdateProgress(double progress) {
+
+            }
+
+            @Override
+            public void onComplete() {
+                mGuide.setGpxUri(context, gpxFile);
+                GpxUtils.cacheGpxTrack(gpxFile);
+
+                downloadGuideInBackground(context, callback);
+            }
+
+            @Override
+            public void onFailed() {
+                cancelDownload(context, callback);
+            }
+        }));
+    }
+
+    /**
+     * Updates a cached Guide to a newer version from Firebase. The OfflineGuideManager must be
+     * created with the Guide and Sections retrieved from Firebase. Only the files that are missing
+     * or have changed on Firebase Storage are downloaded, the images of Sections that were removed
+     * are deleted, and the map is extended if the GPX File has changed.
+     *
+     * @param context     Interface to global Context
+     * @param version     Time the Guide was last modified on Firebase
+     * @param callback    Callback to inform the calling Object of the update status
+     */
+    public void update(final Context context, final long version,
+                       final MapUtils.MapboxDownloadCallback callback) {
+
+        Guide cachedGuide = ContentProviderUtils.getGuideFromDatabase(context, mGuide.firebaseId);
+
+        if (cachedGuide == null) {
+            callback.onDownloadCancelled();
+            return;
+        }
+
+        // Keep the user's favorite status for the Guide
+        mGuide.setFavorite(cachedGuide.isFavorite());
+
+        final Section[] cachedSections = ContentProviderUtils.getSectionsFromDatabase(context, mGuide.firebaseId);
+        final GpxFile gpxFile = mGuide.generateGpxFileForDownload(context);
+
+        List<BaseFile> guideFiles = new ArrayList<>();
+        guideFiles.add(gpxFile);
+        guideFiles.add(mGuide.generateImageFileForDownload(context));
+
+        getChangedFiles(guideFiles, new ChangedFilesListener() {
+            @Override
+            public void onChangedFiles(List<BaseFile> changedFiles) {
+
+                final boolean gpxChanged = changedFiles.contains(gpxFile);
+                List<BaseFile> files = new ArrayList<>(changedFiles);
+
+                // Sections are given new FirebaseIds when they are edited, so an image only needs
+                // to be downloaded if the Section is new
+                for (Section section : mSections) {
+                    if (section.hasImage) {
+                        ImageFile imageFile = section.generateImageFileForDownload(context);
+
+                        if (!imageFile.exists()) {
+                            files.add(imageFile);
+                        }
+                    }
+                }
+
+                startJob(new OfflineDownloadJob(context, mGuide, files, null, new OfflineDownloadJob.JobListener() {
+                    @Override
+                    public void onUpdateProgress(double progress) {
+                        callback.onUpdateProgress(progress);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        deleteRemovedSections(context, cachedSections);
+                        mGuide.setGpxUri(context, gpxFile);
+
+                        if (gpxChanged) {
+                            GpxUtils.cacheGpxTrack(gpxFile);
+                            updateMapboxTiles(context, version, callback);
+                        } else {
+                            finishUpdate(context, version, callback);
+                        }
+                    }
+
+                    @Override
+                    public void onFailed() {
+
+                        // The version isn't recorded so the update is attempted again later
+                        callback.onDownloadCancelled();
+                    }
+                }));
+            }
+        });
     }
 
     /**
@@ -103,75 +313,164 @@ public class OfflineGuideManager {
     }
 
     /**
-     * Sets up the DownloadListener to handle when downloads for files are complete
+     * Removes the Guide from the local database and deletes its files and Mapbox tiles without
+     * any Dialogs so it can be used when evicting Guides to free storage
      *
-     * @param activity    Interface to Activity for context and SupportFragmentManager
-     * @param callback    Callback to be used when download Mapbox Tiles
+     * @param context    Interface to global Context
      */
-    private void initDownloadListener(AppCompatActivity activity, MapUtils.MapboxDownloadCallback callback) {
-
-        // Setup the Dialog
-        ProgressDialog dialog = new ProgressDialog();
-        dialog.setCancelable(false);
-        dialog.setTitle(activity.getString(R.string.progress_download_files_title));
-        dialog.setIndeterminate(true);
+    public void deleteInBackground(Context context) {
 
-        dialog.show(activity.getSupportFragmentManager(), null);
+        deleteCachedGuide(context);
+        deleteCachedFiles(context);
 
-        // Init the DownloadListener
-        if (mListener == null) mListener = new DownloadListener(activity, dialog, callback);
+        MapUtils.deleteMapboxOffline(context, mGuide, new MapUtils.MapboxDeleteCallback() {
+            @Override
+            public void onComplete() {
+                Timber.d("Deleted map tiles for " + mGuide.firebaseId);
+            }
+        });
     }
 
     /**
-     * Caches the Guide to the local database
+     * Downloads the GPX File for the Guide so its map can be planned
      *
-     * @param context    Interface to global Context
+     * @param activity    Interface to Activity for context and SupportFragmentManager
+     * @param callback    Callback to inform the calling Object of the download status
      */
-    private void cacheGuide(Context context) {
-        ContentProviderUtils.insertModel(context, mGuide);
-        ContentProviderUtils.bulkInsertSections(context, mSections);
-        ContentProviderUtils.insertModel(context, mAuthor);
+    private void downloadGpx(final AppCompatActivity activity,
+                             final MapUtils.MapboxDownloadCallback callback) {
+
+        final ProgressDialog dialog = showProgressDialog(activity, R.string.progress_download_files_title);
+        final GpxFile gpxFile = mGuide.generateGpxFileForDownload(activity);
+
+        List<BaseFile> files = new ArrayList<>();
+        files.add(gpxFile);
+
+        startJob(new OfflineDownloadJob(activity, mGuide, files, null, new OfflineDownloadJob.JobListener() {
+            @Override
+            public void onUpdateProgress(double progress) {
+                dialog.updateProgress((int) progress);
+            }
+
+            @Override
+            public void onComplete() {
+                dialog.dismiss();
+
+                mGuide.setGpxUri(activity, gpxFile);
+
+                // Store a binary copy of the track so the GPX doesn't need to be re-parsed
+                GpxUtils.cacheGpxTrack(gpxFile);
+
+                confirmMapDownload(activity, callback);
+            }
+
+            @Override
+            public void onFailed() {
+                dialog.dismiss();
+
+                Toast.makeText(activity,
+                        activity.getString(R.string.error_downloading_guide),
+                        Toast.LENGTH_LONG)
+                        .show();
+
+                cancelDownload(activity, callback);
+            }
+        }));
     }
 
     /**
-     * Saves the files associated with a Guide to Internal Storage
+     * Plans the Mapbox regions for the downloaded GPX File and asks the user to confirm the
+     * estimated size of the map before downloading the rest of the Guide
      *
-     * @param context    Interface to global Context
+     * @param activity    Interface to Activity for context and SupportFragmentManager
+     * @param callback    Callback to inform the calling Object of the download status
      */
-    private void cacheGuideFiles(Context context) {
+    private void confirmMapDownload(final AppCompatActivity activity,
+                                    final MapUtils.MapboxDownloadCallback callback) {
 
-        downloadFile(mGuide.generateGpxFileForDownload(context));
-        downloadFile(mGuide.generateImageFileForDownload(context));
-        downloadFile(mAuthor.generateImageFileForDownload(context));
+        GpxUtils.getOfflineRegionPlan(mGuide.getGpxFile(), activity, new GpxUtils.OfflineRegionPlanListener() {
+            @Override
+            public void onPlanReady(final OfflineRegionPlan plan) {
 
-        for (Section section : mSections) {
+                // Only the tiles that aren't already saved for other Guides in the Area need to
+                // be downloaded
+                if (plan != null) {
+                    OfflineRegionManager.removeSavedTiles(activity, mGuide, plan);
+                }
 
-            // Download image for any Section with an image
-            if (section.hasImage) {
-                downloadFile(section.generateImageFileForDownload(context));
+                // Check the map can be saved at all before asking the user
+                if (plan == null || plan.tileCount > MapUtils.MAPBOX_TILE_LIMIT) {
+                    Toast.makeText(activity,
+                            activity.getString(plan == null
+                                    ? R.string.error_downloading_mapbox
+                                    : R.string.error_map_too_large),
+                            Toast.LENGTH_LONG)
+                            .show();
+
+                    cancelDownload(activity, callback);
+                    return;
+                }
+
+                // Download the rest of the Guide without asking if its map is already saved
+                if (plan.regions.isEmpty()) {
+                    downloadGuide(activity, callback, plan);
+                    return;
+                }
+
+                // Show the estimate to the user
+                MapDownloadDialog dialog = new MapDownloadDialog();
+                dialog.setCancelable(false);
+                dialog.setEstimate(plan.tileCount, plan.estimatedBytes);
+
+                dialog.setOnClickListener(new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        downloadGuide(activity, callback, plan);
+                    }
+                });
+
+                dialog.setOnCancelClickListener(new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        cancelDownload(activity, callback);
+                    }
+                });
+
+                dialog.show(activity.getSupportFragmentManager(), null);
             }
-        }
+        });
     }
 
     /**
-     * Saves the Mapbox Map tiles required to show the trail for the Guide
+     * Downloads the rest of the Guide's files and its map tiles together, then saves the Guide to
+     * the local database. The Guide is only saved once everything has been downloaded so that the
+     * Uris of its files can be saved with it and a failed download never leaves it half cached.
      *
      * @param activity    Interface to Activity for context and SupportFragmentManager
      * @param callback    Callback to inform the calling Object of the download status
+     * @param plan        OfflineRegionPlan for the Guide's map
      */
-    private void saveMapboxTiles(final AppCompatActivity activity, final MapUtils.MapboxDownloadCallback callback) {
+    private void downloadGuide(final AppCompatActivity activity,
+                               final MapUtils.MapboxDownloadCallback callback,
+                               OfflineRegionPlan plan) {
 
-        // Initialize the Progress Dialog
-        final ProgressDialog dialog = new ProgressDialog();
-        dialog.setTitle(activity.getString(R.string.progress_download_map_title));
-        dialog.setCancelable(false);
+        final ProgressDialog dialog = showProgressDialog(activity, R.string.progress_download_guide_title);
 
-        dialog.show(activity.getSupportFragmentManager(), null);
+        startJob(new OfflineDownloadJob(activity, mGuide, getGuideFiles(activity), plan, new OfflineDownloadJob.JobListener() {
+            @Override
+            public void onUpdateProgress(double progress) {
+
+                // Update the progress for the Dialog
+                dialog.updateProgress((int) progress);
+
+                callback.onUpdateProgress(progress);
+            }
 
-        // Save the map tiles for offline use
-        MapUtils.saveMapboxOffline(activity, mGuide, new MapUtils.MapboxDownloadCallback() {
             @Override
-            public void onDownloadComplete() {
+            public void onComplete() {
+                dialog.dismiss();
+
+                cacheGuide(activity);
 
                 // Show a Toast to inform the user of successful download
                 Toast.makeText(activity,
@@ -179,26 +478,311 @@ public class OfflineGuideManager {
                         Toast.LENGTH_LONG)
                         .show();
 
-                // Dismiss the Dialog
+                callback.onDownloadComplete();
+            }
+
+            @Override
+            public void onFailed() {
                 dialog.dismiss();
 
-                callback.onDownloadComplete();
+                // The checkpoint is kept so the download can be resumed later
+                Toast.makeText(activity,
+                        activity.getString(R.string.error_download_interrupted),
+                        Toast.LENGTH_LONG)
+                        .show();
+
+                callback.onDownloadCancelled();
             }
+        }));
+    }
+
+    /**
+     * Plans the Guide's map and downloads the rest of the Guide if it fits within the user's
+     * storage budget
+     *
+     * @param context     Interface to global Context
+     * @param callback    Callback to inform the calling Object of the download status
+     */
+    private void downloadGuideInBackground(final Context context,
+                                           final MapUtils.MapboxDownloadCallback callback) {
 
+        GpxUtils.getOfflineRegionPlan(mGuide.getGpxFile(), null, new GpxUtils.OfflineRegionPlanListener() {
             @Override
-            public void onUpdateProgress(double progress) {
+            public void onPlanReady(OfflineRegionPlan plan) {
 
-                // Update the progress for the Dialog
-                dialog.updateProgress((int) progress);
+                if (plan != null) {
+                    OfflineRegionManager.removeSavedTiles(context, mGuide, plan);
+                }
 
-                callback.onUpdateProgress(progress);
+                // Skip the Guide instead of asking the user
+                if (plan == null
+                        || plan.tileCount > MapUtils.MAPBOX_TILE_LIMIT
+                        || !OfflineStorageUtils.hasSpaceFor(context, plan.estimatedBytes)) {
+
+                    cancelDownload(context, callback);
+                    return;
+                }
+
+                startJob(new OfflineDownloadJob(context, mGuide, getGuideFiles(context), plan, new OfflineDownloadJob.JobListener() {
+                    @Override
+                    public void onUpdateProgress(double progress) {
+                        callback.onUpdateProgress(progress);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        cacheGuide(context);
+                        callback.onDownloadComplete();
+                    }
+
+                    @Override
+                    public void onFailed() {
+
+                        // The checkpoint is kept so the download is resumed by the next job
+                        callback.onDownloadCancelled();
+                    }
+                }));
             }
         });
     }
 
+    /**
+     * Downloads the map tiles along the updated track of the Guide that aren't already saved
+     *
+     * @param context     Interface to global Context
+     * @param version     Time the Guide was last modified on Firebase
+     * @param callback    Callback to inform the calling Object of the update status
+     */
+    private void updateMapboxTiles(final Context context, final long version,
+                                   final MapUtils.MapboxDownloadCallback callback) {
+
+        GpxUtils.getOfflineRegionPlan(mGuide.getGpxFile(), null, new GpxUtils.OfflineRegionPlanListener() {
+            @Override
+            public void onPlanReady(OfflineRegionPlan plan) {
+
+                if (plan != null) {
+                    OfflineRegionManager.removeSavedTiles(context, mGuide, plan);
+                }
+
+                // Keep the existing map if the new one can't be downloaded
+                if (plan == null || plan.tileCount > MapUtils.MAPBOX_TILE_LIMIT) {
+                    finishUpdate(context, version, callback);
+                    return;
+                }
+
+                startJob(new OfflineDownloadJob(context, mGuide, new ArrayList<BaseFile>(), plan, new OfflineDownloadJob.JobListener() {
+                    @Override
+                    public void onUpdateProgress(double progress) {
+                        callback.onUpdateProgress(progress);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        finishUpdate(context, version, callback);
+                    }
+
+                    @Override
+                    public void onFailed() {
+
+                        // The Guide is already cached so the checkpoint would never be resumed
+                        OfflineDownloadJob.clearCheckpoint(context, mGuide.firebaseId);
+                        callback.onDownloadCancelled();
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * Replaces the cached Guide and Sections in the local database with the updated versions
+     *
+     * @param context     Interface to global Context
+     * @param version     Time the Guide was last modified on Firebase
+     * @param callback    Callback to inform the calling Object the update is complete
+     */
+    private void finishUpdate(Context context, long version, MapUtils.MapboxDownloadCallback callback) {
+
+        ContentProviderUtils.deleteModel(context, mGuide);
+        ContentProviderUtils.deleteSectionsForGuide(context, mGuide);
+        ContentProviderUtils.insertModel(context, mGuide);
+        ContentProviderUtils.bulkInsertSections(context, mSections);
+
+        OfflineStorageUtils.recordUpdate(context, mGuide, mSections, mAuthor, version);
+
+        // Replace any stale copies being displayed
+        DataCache.getInstance().store(mGuide);
+        DataCache.getInstance().store(mSections);
+
+        callback.onDownloadComplete();
+    }
+
+    /**
+     * Deletes the images of the cached Sections that are no longer part of the Guide
+     *
+     * @param context           Interface to global Context
+     * @param cachedSections    Sections of the Guide in the local database
+     */
+    private void deleteRemovedSections(Context context, Section[] cachedSections) {
+
+        Set<String> sectionIds = new HashSet<>();
+
+        for (Section section : mSections) {
+            sectionIds.add(section.firebaseId);
+        }
+
+        for (Section section : cachedSections) {
+            if (section.hasImage && !sectionIds.contains(section.firebaseId)) {
+                ImageFile.getDestinationFile(context, section.firebaseId).delete();
+            }
+        }
+    }
+
+    /**
+     * Checks which files are missing or have been uploaded to Firebase Storage since they were
+     * downloaded by comparing their metadata to the local files
+     *
+     * @param files       Files to check
+     * @param listener    Listener to pass the files that need to be downloaded to
+     */
+    private void getChangedFiles(List<BaseFile> files, final ChangedFilesListener listener) {
+
+        final List<BaseFile> changedFiles = new ArrayList<>();
+        final int[] remaining = {files.size()};
+
+        StorageReference reference = FirebaseStorage.getInstance().getReference();
+
+        for (final BaseFile file : files) {
+
+            if (!file.exists()) {
+                changedFiles.add(file);
+
+                if (--remaining[0] == 0) {
+                    listener.onChangedFiles(changedFiles);
+                }
+
+                continue;
+            }
+
+            FirebaseProviderUtils.getReferenceForFile(reference, file)
+                    .getMetadata()
+                    .addOnSuccessListener(new OnSuccessListener<StorageMetadata>() {
+                        @Override
+                        public void onSuccess(StorageMetadata storageMetadata) {
+
+                            if (storageMetadata.getUpdatedTimeMillis() > file.lastModified()) {
+                                changedFiles.add(file);
+                            }
+
+                            if (--remaining[0] == 0) {
+                                listener.onChangedFiles(changedFiles);
+                            }
+                        }
+                    })
+                    .addOnFailureListener(new OnFailureListener() {
+                        @Override
+                        public void onFailure(@NonNull Exception e) {
+                            Timber.e(e, "Failed to check " + file.getName());
+
+                            // Keep the file that is already saved
+                            if (--remaining[0] == 0) {
+                                listener.onChangedFiles(changedFiles);
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Removes the GPX File downloaded to estimate the size of the map when the user decides not
+     * to save the Guide
+     *
+     * @param context     Interface to global Context
+     * @param callback    Callback to inform the calling Object of the cancellation
+     */
+    private void cancelDownload(Context context, MapUtils.MapboxDownloadCallback callback) {
+
+        GpxFile gpxFile = mGuide.generateGpxFileForDownload(context);
+        GpxBinaryUtils.deleteTrack(gpxFile);
+        gpxFile.delete();
+
+        OfflineDownloadJob.clearCheckpoint(context, mGuide.firebaseId);
+
+        callback.onDownloadCancelled();
+    }
+
+    /**
+     * Starts an OfflineDownloadJob and tracks it so it can be stopped
+     *
+     * @param job    OfflineDownloadJob to start
+     */
+    private void startJob(OfflineDownloadJob job) {
+
+        // Don't start another download once the OfflineGuideManager has been stopped
+        if (mStopped) return;
+
+        mActiveJob = job;
+        job.start();
+    }
+
+    /**
+     * Caches the Guide to the local database
+     *
+     * @param context    Interface to global Context
+     */
+    private void cacheGuide(Context context) {
+        ContentProviderUtils.insertModel(context, mGuide);
+        ContentProviderUtils.bulkInsertSections(context, mSections);
+        ContentProviderUtils.insertModel(context, mAuthor);
+
+        OfflineStorageUtils.recordGuide(context, mGuide, mSections, mAuthor);
+    }
+
+    /**
+     * Generates the files associated with a Guide to be saved to Internal Storage
+     *
+     * @param context    Interface to global Context
+     * @return List of the image files for the Guide, its Author, and its Sections
+     */
+    private List<BaseFile> getGuideFiles(Context context) {
+
+        // The GPX File has already been downloaded to plan the map
+        List<BaseFile> files = new ArrayList<>();
+        files.add(mGuide.generateImageFileForDownload(context));
+        files.add(mAuthor.generateImageFileForDownload(context));
+
+        for (Section section : mSections) {
+
+            // Download image for any Section with an image
+            if (section.hasImage) {
+                files.add(section.generateImageFileForDownload(context));
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Shows a ProgressDialog for a download
+     *
+     * @param activity    Interface to Activity for context and SupportFragmentManager
+     * @param titleRes    Resource Id of the title of the Dialog
+     * @return The ProgressDialog being shown
+     */
+    private ProgressDialog showProgressDialog(AppCompatActivity activity, int titleRes) {
+
+        ProgressDialog dialog = new ProgressDialog();
+        dialog.setCancelable(false);
+        dialog.setTitle(activity.getString(titleRes));
+
+        dialog.show(activity.getSupportFragmentManager(), null);
+
+        return dialog;
+    }
+
     private void deleteCachedGuide(Context context) {
         ContentProviderUtils.deleteModel(context, mGuide);
         ContentProviderUtils.deleteSectionsForGuide(context, mGuide);
+        ContentProviderUtils.deleteOfflineGuide(context, mGuide.firebaseId);
 
         if (ContentProviderUtils.getGuideCountForAuthor(context, mAuthor) == 0) {
             ContentProviderUtils.deleteModel(context, mAuthor);
@@ -206,7 +790,9 @@ public class OfflineGuideManager {
     }
 
     private void deleteCachedFiles(Context context) {
-        mGuide.generateGpxFileForDownload(context).delete();
+        GpxFile gpxFile = mGuide.generateGpxFileForDownload(context);
+        GpxBinaryUtils.deleteTrack(gpxFile);
+        gpxFile.delete();
         mGuide.generateImageFileForDownload(context).delete();
 
         for (Section section : mSections) {
@@ -249,86 +835,7 @@ public class OfflineGuideManager {
         });
     }
 
-    /**
-     * Saves a BaseFile to Internal Storage
-     *
-     * @param file    BaseFile to save the download to
-     */
-    private void downloadFile(final BaseFile file) {
-
-        // Generate a StorageTask for the download
-        StorageReference reference = FirebaseStorage.getInstance().getReference();
-        StorageTask<FileDownloadTask.TaskSnapshot> task =
-                FirebaseProviderUtils.getReferenceForFile(reference, file)
-                        .getFile(file);
-
-        // Add the Task to the Listener
-        mListener.addDownloadTask(task);
-
-        task.addOnSuccessListener(new OnSuccessListener<FileDownloadTask.TaskSnapshot>() {
-            @Override
-            public void onSuccess(FileDownloadTask.TaskSnapshot taskSnapshot) {
-
-                // Remove the Task from the Listener
-                mListener.removeDownloadTask(taskSnapshot.getTask());
-
-                if (file instanceof GpxFile) {
-                    mGuide.setGpxUri(file);
-                }
-            }
-        });
-    }
-
-    private class DownloadListener {
-        // ** Member Variables ** //
-        private AppCompatActivity mActivity;
-        private ProgressDialog mDialog;
-        private MapUtils.MapboxDownloadCallback mCallback;
-        private List<StorageTask<FileDownloadTask.TaskSnapshot>> mTaskList;
-
-        DownloadListener(AppCompatActivity activity, ProgressDialog dialog, MapUtils.MapboxDownloadCallback callback) {
-            mActivity = activity;
-            mDialog = dialog;
-            mCallback = callback;
-        }
-
-        /**
-         * Adds a download task to be monitored
-         *
-         * @param task    Download task to be monitored
-         */
-        void addDownloadTask(StorageTask<FileDownloadTask.TaskSnapshot> task) {
-
-            // Init the List to keep track of tasks
-            if (mTaskList == null) {
-                mTaskList = new ArrayList<>();
-            }
-
-            // Add the task to the List
-            mTaskList.add(task);
-        }
-
-        /**
-         * Removes a download task as it finishes
-         *
-         * @param task    The task to be removed
-         */
-        void removeDownloadTask(StorageTask<FileDownloadTask.TaskSnapshot> task) {
-
-            // Remove the task from the List
-            mTaskList.remove(task);
-
-            if (mTaskList.size() == 0) {
-
-                // Dismiss the dialog
-                mDialog.dismiss();
-
-                // If there are no more tasks left, then begin saving the guide to the database
-                // The files must be downloaded first so that when the guide is saved to the
-                // database the Uri of the files can also be saved to the database.
-                cacheGuide(mActivity);
-                saveMapboxTiles(mActivity, mCallback);
-            }
-        }
+    private interface ChangedFilesListener {
+        void onChangedFiles(List<BaseFile> changedFiles);
     }
 }
@@ -0,0 +1,187 @@
+package project.sherpa.utilities;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import project.sherpa.models.datamodels.Guide;
+import project.sherpa.utilities.objects.OfflineRegionPlan;
+
+/**
+ * Shares the Mapbox OfflineRegions saved for Guides in the same Area.
+ *
+ * Every OfflineRegion created for a Guide is recorded in the local database along with the tiles
+ * it covers, and each Guide records which OfflineRegions it uses. Before a Guide's map is
+ * downloaded, the tiles already covered by OfflineRegions in its Area are removed from its
+ * OfflineRegionPlan and the Guide is added as a user of those OfflineRegions instead, so only the
+ * tiles that are not on disk are downloaded. When a Guide is deleted, only the OfflineRegions that
+ * no other Guide uses are deleted.
+ */
+
+public class OfflineRegionManager {
+
+    /**
+     * Removes the tiles already saved offline for other Guides in the same Area from an
+     * OfflineRegionPlan and rebuilds its regions and estimate. The OfflineRegions covering the
+     * removed tiles are added to the OfflineRegionPlan's shared regions.
+     *
+     * @param context    Interface to global Context
+     * @param guide      Guide the OfflineRegionPlan is for
+     * @param plan       OfflineRegionPlan from GpxUtils.getOfflineRegionPlan()
+     */
+    public static void removeSavedTiles(Context context, Guide guide, OfflineRegionPlan plan) {
+
+        List<OfflineRegionPlan.Region> savedRegions =
+                ContentProviderUtils.getOfflineRegionsForArea(context, getAreaKey(guide));
+
+        for (OfflineRegionPlan.Region saved : savedRegions) {
+            boolean shared = false;
+
+            if (saved.rectZoom == OfflineRegionPlanner.OVERVIEW_MAX_ZOOM) {
+
+                // Use the saved overview if it covers the whole overview of the track
+                if (plan.overviewRect != null && contains(saved.rect, plan.overviewRect)) {
+                    plan.overviewRect = null;
+                    shared = true;
+                }
+
+            } else if (saved.rectZoom == OfflineRegionPlanner.CORRIDOR_MIN_ZOOM) {
+
+                // Remove the corridor tiles the saved region covers
+                Iterator<Long> iterator = plan.corridorTiles.iterator();
+
+                while (iterator.hasNext()) {
+                    long tile = iterator.next();
+
+                    if (contains(saved.rect, OfflineRegionPlanner.getTileX(tile), OfflineRegionPlanner.getTileY(tile))) {
+                        iterator.remove();
+                        shared = true;
+                    }
+                }
+            }
+
+            if (shared) {
+                plan.sharedRegionIds.add(saved.regionId);
+            }
+        }
+
+        // Re-merge the tiles that still need to be downloaded
+        OfflineRegionPlanner.buildRegions(plan);
+    }
+
+    /**
+     * Records that a Guide uses the OfflineRegions already saved offline that were added to its
+     * OfflineRegionPlan by removeSavedTiles()
+     *
+     * @param context    Interface to global Context
+     * @param guide      Guide to record the shared OfflineRegions for
+     * @param plan       OfflineRegionPlan for the Guide
+     */
+    public static void addSharedRegions(Context context, Guide guide, OfflineRegionPlan plan) {
+
+        for (long regionId : plan.sharedRegionIds) {
+            ContentProviderUtils.insertOfflineRegionGuide(context, regionId, guide.firebaseId);
+        }
+    }
+
+    /**
+     * Records an OfflineRegion that has been created for a Guide so it can be shared with other
+     * Guides in the same Area
+     *
+     * @param context    Interface to global Context
+     * @param guide      Guide the OfflineRegion was created for
+     * @param region     Region from the Guide's OfflineRegionPlan with the Id of the OfflineRegion
+     */
+    public static void registerRegion(Context context, Guide guide, OfflineRegionPlan.Region region) {
+        ContentProviderUtils.insertOfflineRegion(context, getAreaKey(guide), region);
+        ContentProviderUtils.insertOfflineRegionGuide(context, region.regionId, guide.firebaseId);
+    }
+
+    /**
+     * Finds the OfflineRegions of a Guide that no other Guide uses. Nothing is changed in the
+     * local database so the OfflineRegions stay tracked until their tiles have been deleted.
+     *
+     * @param context    Interface to global Context
+     * @param guide      Guide being deleted
+     * @return List of the Ids of the OfflineRegions that should be deleted with the Guide
+     */
+    public static List<Long> getUnusedRegionIds(Context context, Guide guide) {
+
+        List<Long> unusedIds = new ArrayList<>();
+
+        for (long regionId : ContentProviderUtils.getOfflineRegionIdsForGuide(context, guide.firebaseId)) {
+
+            // Keep the OfflineRegion while another Guide still uses it
+            if (ContentProviderUtils.getOfflineRegionGuideCount(context, regionId) <= 1) {
+                unusedIds.add(regionId);
+            }
+        }
+
+        return unusedIds;
+    }
+
+    /**
+     * Removes a Guide as a user of an OfflineRegion. The OfflineRegion stops being tracked once no
+     * Guide uses it, so this must only be called for an unused OfflineRegion after its tiles have
+     * been deleted.
+     *
+     * @param context     Interface to global Context
+     * @param guide       Guide being deleted
+     * @param regionId    Id of the OfflineRegion
+     */
+    public static void releaseRegion(Context context, Guide guide, long regionId) {
+
+        ContentProviderUtils.deleteOfflineRegionGuide(context, regionId, guide.firebaseId);
+
+        if (ContentProviderUtils.getOfflineRegionGuideCount(context, regionId) == 0) {
+            ContentProviderUtils.deleteOfflineRegion(context, regionId);
+        }
+    }
+
+    /**
+     * Checks whether an OfflineRegion is shared through the OfflineRegionManager. OfflineRegions
+     * saved before they could be shared are only used by the Guide in their metadata.
+     *
+     * @param context     Interface to global Context
+     * @param regionId    Id of the OfflineRegion
+     * @return True if the OfflineRegion is recorded in the local database. False otherwise.
+     */
+    public static boolean isRegionTracked(Context context, long regionId) {
+        return ContentProviderUtils.isOfflineRegionInDatabase(context, regionId);
+    }
+
+    /**
+     * Generates the key that a Guide's OfflineRegions are shared under
+     *
+     * @param guide    Guide to generate the key for
+     * @return The Guide's Area or, if the Area is not set, its Trail
+     */
+    private static String getAreaKey(Guide guide) {
+
+        if (guide.area != null) {
+            return guide.area;
+        } else if (guide.trailId != null) {
+            return guide.trailId;
+        } else {
+            return guide.firebaseId;
+        }
+    }
+
+    /**
+     * Checks whether a rectangle of tiles contains another
+     */
+    private static boolean contains(int[] outer, int[] inner) {
+        return outer[0] <= inner[0] && outer[1] <= inner[1]
+                && outer[2] >= inner[2] && outer[3] >= inner[3];
+    }
+
+    /**
+     * Checks whether a rectangle of tiles contains a tile
+     */
+    private static boolean contains(int[] rect, int x, int y) {
+        return rect[0] <= x && x <= rect[2]
+                && rect[1] <= y && y <= rect[3];
+    }
+}
@@ -0,0 +1,399 @@
+package project.sherpa.utilities;
+
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import project.sherpa.utilities.objects.GpxStats;
+import project.sherpa.utilities.objects.GpxTrack;
+import project.sherpa.utilities.objects.OfflineRegionPlan;
+
+/**
+ * Plans the Mapbox tile regions to download for a track so that only the tiles near the trail are
+ * saved at high zoom levels.
+ *
+ * A single coarse overview region covers the bounds of the whole track at low zoom levels. At
+ * high zoom levels, the tiles within CORRIDOR_BUFFER meters of the track are collected at
+ * CORRIDOR_MIN_ZOOM and merged into as few rectangles as possible, each of which becomes a small
+ * tile pyramid region. A long diagonal or looping trail therefore downloads a fraction of the
+ * tiles its bounding box would require.
+ *
+ * Tiles are tracked as rectangles at a fixed zoom level so that OfflineRegionManager can remove
+ * the tiles already saved for other Guides from a plan before its regions are rebuilt.
+ */
+
+public class OfflineRegionPlanner {
+    // ** Constants ** //
+    public static final int OVERVIEW_MIN_ZOOM       = 10;
+    public static final int OVERVIEW_MAX_ZOOM       = 13;
+    public static final int CORRIDOR_MIN_ZOOM       = 14;
+    public static final int CORRIDOR_MAX_ZOOM       = 16;
+
+    // Distance in meters on either side of the track to download at high zoom levels
+    private static final double CORRIDOR_BUFFER     = 400;
+
+    // Rough average size of a tile of the outdoors style, used for the download estimate
+    private static final long AVERAGE_TILE_BYTES    = 30 * 1024;
+
+    private static final double METERS_PER_DEGREE   = 111319.49;
+    private static final double MAX_LATITUDE        = 85.05112878;
+
+    // Inset of the bounds of each region so it doesn't include the neighboring tiles
+    private static final double BOUNDS_INSET        = 1e-7;
+
+    /**
+     * Plans the regions to download for a GpxTrack
+     *
+     * @param track    GpxTrack to plan the regions for
+     * @return OfflineRegionPlan containing the overview and corridor regions and the estimated
+     * size of the download
+     */
+    public static OfflineRegionPlan plan(GpxTrack track) {
+
+        OfflineRegionPlan plan = new OfflineRegionPlan();
+
+        // Tiles of the overview covering the buffered bounds of the track
+        double[] bounds = getBufferedBounds(track);
+        plan.overviewRect = new int[] {
+                lonToTileX(bounds[3], OVERVIEW_MAX_ZOOM),
+                latToTileY(bounds[0], OVERVIEW_MAX_ZOOM),
+                lonToTileX(bounds[2], OVERVIEW_MAX_ZOOM),
+                latToTileY(bounds[1], OVERVIEW_MAX_ZOOM)};
+
+        // Tiles near the track
+        plan.corridorTiles = getCorridorTiles(track);
+
+        buildRegions(plan);
+
+        return plan;
+    }
+
+    /**
+     * Builds the regions to download and the estimated size of the download from the overview and
+     * corridor tiles of an OfflineRegionPlan. Must be called again after tiles that are already
+     * saved offline are removed from the OfflineRegionPlan.
+     *
+     * @param plan    OfflineRegionPlan to build the regions for
+     */
+    public static void buildRegions(OfflineRegionPlan plan) {
+
+        plan.regions.clear();
+        plan.tileCount = 0;
+
+        if (plan.overviewRect != null) {
+            plan.regions.add(buildRegion(plan.overviewRect, OVERVIEW_MAX_ZOOM, OVERVIEW_MIN_ZOOM, OVERVIEW_MAX_ZOOM));
+
+            // Count the tiles covering the overview at each zoom level
+            for (int zoom = OVERVIEW_MIN_ZOOM; zoom <= OVERVIEW_MAX_ZOOM; zoom++) {
+                int shift = OVERVIEW_MAX_ZOOM - zoom;
+                long width = (plan.overviewRect[2] >> shift) - (plan.overviewRect[0] >> shift) + 1;
+                long height = (plan.overviewRect[3] >> shift) - (plan.overviewRect[1] >> shift) + 1;
+
+                plan.tileCount += width * height;
+            }
+        }
+
+        // Corridor regions covering the tiles near the track
+        for (int[] rect : mergeTiles(plan.corridorTiles)) {
+            plan.regions.add(buildRegion(rect, CORRIDOR_MIN_ZOOM, CORRIDOR_MIN_ZOOM, CORRIDOR_MAX_ZOOM));
+        }
+
+        // Each corridor tile is downloaded along with every tile beneath it up to the max zoom
+        long tilesPerCorridorTile = 0;
+
+        for (int zoom = CORRIDOR_MIN_ZOOM; zoom <= CORRIDOR_MAX_ZOOM; zoom++) {
+            tilesPerCorridorTile += 1L << (2 * (zoom - CORRIDOR_MIN_ZOOM));
+        }
+
+        plan.tileCount += plan.corridorTiles.size() * tilesPerCorridorTile;
+        plan.estimatedBytes = plan.tileCount * AVERAGE_TILE_BYTES;
+    }
+
+    /**
+     * Retrieves the column of a tile encoded in an OfflineRegionPlan's corridor tiles
+     */
+    public static int getTileX(long tile) {
+        return (int) (tile >>> 32);
+    }
+
+    /**
+     * Retrieves the row of a tile encoded in an OfflineRegionPlan's corridor tiles
+     */
+    public static int getTileY(long tile) {
+        return (int) tile;
+    }
+
+    /**
+     * Creates a Region covering a rectangle of tiles
+     *
+     * @param rect        Min x, min y, max x, and max y of the tiles
+     * @param rectZoom    Zoom level of the tiles
+     * @param minZoom     Min zoom level to download
+     * @param maxZoom     Max zoom level to download
+     * @return Region for the rectangle of tiles
+     */
+    private static OfflineRegionPlan.Region buildRegion(int[] rect, int rectZoom, int minZoom, int maxZoom) {
+
+        OfflineRegionPlan.Region region = new OfflineRegionPlan.Region();
+        region.rect = rect;
+        region.rectZoom = rectZoom;
+        region.minZoom = minZoom;
+        region.maxZoom = maxZoom;
+
+        // Inset the bounds so the neighboring tiles aren't included
+        region.bounds = buildBounds(
+                tileYToLat(rect[1], rectZoom) - BOUNDS_INSET,
+                tileYToLat(rect[3] + 1, rectZoom) + BOUNDS_INSET,
+                tileXToLon(rect[2] + 1, rectZoom) - BOUNDS_INSET,
+                tileXToLon(rect[0], rectZoom) + BOUNDS_INSET);
+
+        return region;
+    }
+
+    /**
+     * Calculates the bounds of a GpxTrack expanded by CORRIDOR_BUFFER on every side
+     *
+     * @param track    GpxTrack to calculate the bounds for
+     * @return Array of the north, south, east, and west bounds in degrees
+     */
+    private static double[] getBufferedBounds(GpxTrack track) {
+
+        double north;
+        double south;
+        double east;
+        double west;
+
+        GpxStats stats = track.getStats();
+
+        if (stats != null) {
+            north = stats.north;
+            south = stats.south;
+            east = stats.east;
+            west = stats.west;
+        } else {
+            north = -MAX_LATITUDE;
+            south = MAX_LATITUDE;
+            east = -180;
+            west = 180;
+
+            for (int i = 0; i < track.size(); i++) {
+                north = Math.max(north, track.getLatitude(i));
+                south = Math.min(south, track.getLatitude(i));
+                east = Math.max(east, track.getLongitude(i));
+                west = Math.min(west, track.getLongitude(i));
+            }
+        }
+
+        // Use the latitude furthest from the equator so the buffer is never too narrow
+        double bufferLatitude = CORRIDOR_BUFFER / METERS_PER_DEGREE;
+        double bufferLongitude = bufferLatitude / Math.cos(Math.toRadians(
+                Math.min(Math.max(Math.abs(north), Math.abs(south)), MAX_LATITUDE)));
+
+        return new double[] {
+                clampLatitude(north + bufferLatitude),
+                clampLatitude(south - bufferLatitude),
+                Math.min(east + bufferLongitude, 180),
+                Math.max(west - bufferLongitude, -180)};
+    }
+
+    /**
+     * Collects the tiles at CORRIDOR_MIN_ZOOM within CORRIDOR_BUFFER of any point on a GpxTrack.
+     * Points are interpolated between consecutive track points that are further apart than the
+     * buffer so that no part of the track is skipped.
+     *
+     * @param track    GpxTrack to collect the tiles for
+     * @return Set of the tiles encoded by encodeTile()
+     */
+    private static Set<Long> getCorridorTiles(GpxTrack track) {
+
+        Set<Long> tiles = new HashSet<>();
+
+        for (int segment = 0; segment < track.getSegmentCount(); segment++) {
+            int start = track.getSegmentStart(segment);
+            int end = track.getSegmentEnd(segment);
+
+            for (int i = start; i < end; i++) {
+                double latitude = track.getLatitude(i);
+                double longitude = track.getLongitude(i);
+
+                addCorridorTiles(tiles, latitude, longitude);
+
+                if (i + 1 == end) continue;
+
+                // Fill in the gap to the next point
+                double nextLatitude = track.getLatitude(i + 1);
+                double nextLongitude = track.getLongitude(i + 1);
+
+                double distance = GeodesicUtils.localDistance(latitude, longitude, nextLatitude, nextLongitude);
+                int steps = (int) Math.ceil(distance / CORRIDOR_BUFFER);
+
+                for (int step = 1; step < steps; step++) {
+                    double fraction = (double) step / steps;
+
+                    addCorridorTiles(tiles,
+                            latitude + (nextLatitude - latitude) * fraction,
+                            longitude + (nextLongitude - longitude) * fraction);
+                }
+            }
+        }
+
+        return tiles;
+    }
+
+    /**
+     * Adds the tiles within CORRIDOR_BUFFER of a point to a Set
+     */
+    private static void addCorridorTiles(Set<Long> tiles, double latitude, double longitude) {
+
+        double bufferLatitude = CORRIDOR_BUFFER / METERS_PER_DEGREE;
+        double bufferLongitude = bufferLatitude / Math.cos(Math.toRadians(clampLatitude(latitude)));
+
+        int minX = lonToTileX(longitude - bufferLongitude, CORRIDOR_MIN_ZOOM);
+        int maxX = lonToTileX(longitude + bufferLongitude, CORRIDOR_MIN_ZOOM);
+        int minY = latToTileY(latitude + bufferLatitude, CORRIDOR_MIN_ZOOM);
+        int maxY = latToTileY(latitude - bufferLatitude, CORRIDOR_MIN_ZOOM);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                tiles.add(encodeTile(x, y));
+            }
+        }
+    }
+
+    /**
+     * Merges a Set of tiles into rectangles that cover exactly those tiles. Each row is split
+     * into runs of consecutive tiles, and runs that span the same columns in consecutive rows are
+     * merged into one rectangle.
+     *
+     * @param tiles    Set of tiles encoded by encodeTile()
+     * @return List of rectangles as Arrays of the min x, min y, max x, and max y of the tiles
+     */
+    private static List<int[]> mergeTiles(Set<Long> tiles) {
+
+        // Group the columns of the tiles by row
+        TreeMap<Integer, List<Integer>> rows = new TreeMap<>();
+
+        for (long tile : tiles) {
+            int x = getTileX(tile);
+            int y = getTileY(tile);
+
+            List<Integer> columns = rows.get(y);
+
+            if (columns == null) {
+                columns = new ArrayList<>();
+                rows.put(y, columns);
+            }
+
+            columns.add(x);
+        }
+
+        List<int[]> rects = new ArrayList<>();
+
+        // Rectangles that reached the previous row, keyed by the columns they span
+        Map<Long, int[]> openRects = new HashMap<>();
+
+        for (Map.Entry<Integer, List<Integer>> row : rows.entrySet()) {
+            int y = row.getKey();
+            List<Integer> columns = row.getValue();
+            Collections.sort(columns);
+
+            Map<Long, int[]> rowRects = new HashMap<>();
+            int runStart = columns.get(0);
+
+            for (int i = 0; i < columns.size(); i++) {
+
+                // Continue the run while the columns are consecutive
+                if (i + 1 < columns.size() && columns.get(i + 1) == columns.get(i) + 1) continue;
+
+                int runEnd = columns.get(i);
+                long runKey = encodeTile(runStart, runEnd);
+
+                // Extend the rectangle above if it spans the same columns
+                int[] rect = openRects.get(runKey);
+
+                if (rect != null && rect[3] == y - 1) {
+                    rect[3] = y;
+                } else {
+                    rect = new int[] {runStart, y, runEnd, y};
+                    rects.add(rect);
+                }
+
+                rowRects.put(runKey, rect);
+
+                if (i + 1 < columns.size()) {
+                    runStart = columns.get(i + 1);
+                }
+            }
+
+            openRects = rowRects;
+        }
+
+        return rects;
+    }
+
+    /**
+     * Creates a LatLngBounds from its edges
+     */
+    private static LatLngBounds buildBounds(double north, double south, double east, double west) {
+        return new LatLngBounds.Builder()
+                .include(new LatLng(north, east))
+                .include(new LatLng(south, west))
+                .build();
+    }
+
+    /**
+     * Packs the coordinates of a tile into a single long
+     */
+    private static long encodeTile(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static double clampLatitude(double latitude) {
+        return Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+    }
+
+    /**
+     * Converts a longitude to the column of the Web Mercator tile containing it
+     */
+    private static int lonToTileX(double longitude, int zoom) {
+        int tiles = 1 << zoom;
+        int x = (int) Math.floor((longitude + 180) / 360 * tiles);
+
+        return Math.max(0, Math.min(tiles - 1, x));
+    }
+
+    /**
+     * Converts a latitude to the row of the Web Mercator tile containing it
+     */
+    private static int latToTileY(double latitude, int zoom) {
+        int tiles = 1 << zoom;
+        double radians = Math.toRadians(clampLatitude(latitude));
+        int y = (int) Math.floor((1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * tiles);
+
+        return Math.max(0, Math.min(tiles - 1, y));
+    }
+
+    /**
+     * Converts the column of a Web Mercator tile to the longitude of its western edge
+     */
+    private static double tileXToLon(int x, int zoom) {
+        return (double) x / (1 << zoom) * 360 - 180;
+    }
+
+    /**
+     * Converts the row of a Web Mercator tile to the latitude of its northern edge
+     */
+    private static double tileYToLat(int y, int zoom) {
+        double n = Math.PI * (1 - 2.0 * y / (1 << zoom));
+
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+}
@@ -0,0 +1,303 @@
+package project.sherpa.utilities;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.support.annotation.Nullable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import project.sherpa.R;
+import project.sherpa.files.GpxFile;
+import project.sherpa.files.ImageFile;
+import project.sherpa.models.datamodels.Author;
+import project.sherpa.models.datamodels.Guide;
+import project.sherpa.models.datamodels.Section;
+import project.sherpa.utilities.objects.OfflineGuideStorage;
+import timber.log.Timber;
+
+/**
+ * Utility class for tracking the storage used by each Guide saved for offline use and keeping
+ * the total within the budget set by the user.
+ *
+ * The size of a Guide's database rows, GPX File, and images is recorded when it is saved, along
+ * with its share of the Mapbox tiles it uses, and the time it was last opened is updated every
+ * time it is viewed. When the total exceeds the budget, the least recently opened Guides that are
+ * not favorites are deleted until it fits again.
+ */
+
+public class OfflineStorageUtils {
+    // ** Constants ** //
+    private static final long BYTES_PER_MEGABYTE    = 1024 * 1024;
+
+    // Estimated size of a row in the local database
+    private static final long DATABASE_ROW_BYTES    = 512;
+
+    /**
+     * Retrieves the maximum amount of storage the user allows saved Guides to use
+     *
+     * @param context    Interface to global Context
+     * @return The budget in bytes or Long.MAX_VALUE if the user has not limited the storage
+     */
+    public static long getBudget(Context context) {
+
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        long megabytes = Long.parseLong(prefs.getString(
+                context.getString(R.string.pref_offline_budget_key),
+                context.getString(R.string.pref_offline_budget_default)));
+
+        return megabytes > 0
+                ? megabytes * BYTES_PER_MEGABYTE
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks whether a download fits within the user's storage budget. Guides that would be
+     * evicted to make room for it are not counted.
+     *
+     * @param context    Interface to global Context
+     * @param bytes      Estimated size of the download
+     * @return True if the download can be saved without exceeding the budget. False otherwise.
+     */
+    public static boolean hasSpaceFor(Context context, long bytes) {
+
+        long budget = getBudget(context);
+
+        if (budget == Long.MAX_VALUE) return true;
+
+        // Only favorite Guides are kept when the budget is exceeded
+        long usage = 0;
+
+        for (OfflineGuideStorage storage : getOfflineGuides(context)) {
+            Guide guide = new Guide();
+            guide.firebaseId = storage.guideId;
+
+            if (ContentProviderUtils.isGuideFavorite(context, guide)) {
+                usage += storage.getSize();
+            }
+        }
+
+        return usage + bytes <= budget;
+    }
+
+    /**
+     * Records the storage used by a Guide that has just been saved for offline use and evicts
+     * other Guides if the budget has been exceeded
+     *
+     * @param context     Interface to global Context
+     * @param guide       Guide that was saved
+     * @param sections    Sections of the Guide
+     * @param author      Author of the Guide
+     */
+    public static void recordGuide(final Context context, Guide guide, Section[] sections, Author author) {
+
+        final String guideId = guide.firebaseId;
+
+        ContentProviderUtils.insertOfflineGuide(
+                context,
+                guideId,
+                measureFiles(context, guide, sections, author),
+                System.currentTimeMillis(),
+                guide.getModifiedDate());
+
+        // Evict once the size of the map is known
+        measureMapSize(context, guideId, new MapUtils.MapboxSizeCallback() {
+            @Override
+            public void onSizeReady(long bytes) {
+                evictIfNeeded(context, guideId);
+            }
+        });
+    }
+
+    /**
+     * Records the storage used and the version of a cached Guide that has been updated
+     *
+     * @param context     Interface to global Context
+     * @param guide       Guide that was updated
+     * @param sections    Updated Sections of the Guide
+     * @param author      Author of the Guide
+     * @param version     Time the Guide was last modified on Firebase
+     */
+    public static void recordUpdate(final Context context, Guide guide, Section[] sections,
+                                    Author author, long version) {
+
+        final String guideId = guide.firebaseId;
+
+        ContentProviderUtils.updateOfflineGuideVersion(
+                context,
+                guideId,
+                measureFiles(context, guide, sections, author),
+                version);
+
+        measureMapSize(context, guideId, new MapUtils.MapboxSizeCallback() {
+            @Override
+            public void onSizeReady(long bytes) {
+                evictIfNeeded(context, guideId);
+            }
+        });
+    }
+
+    /**
+     * Re-measures a cached Guide's share of the map tiles, which changes as other Guides in the
+     * same Area are saved or deleted
+     *
+     * @param context     Interface to global Context
+     * @param guideId     FirebaseId of the Guide
+     * @param callback    Callback to pass the new size to
+     */
+    public static void measureMapSize(final Context context, final String guideId,
+                                      final MapUtils.MapboxSizeCallback callback) {
+
+        MapUtils.measureMapboxOffline(context, guideId, new MapUtils.MapboxSizeCallback() {
+            @Override
+            public void onSizeReady(long bytes) {
+                ContentProviderUtils.updateOfflineGuideMapSize(context, guideId, bytes);
+                callback.onSizeReady(bytes);
+            }
+        });
+    }
+
+    /**
+     * Retrieves the storage used by each cached Guide. Guides saved before their storage was
+     * tracked are measured and recorded as never having been opened.
+     *
+     * @param context    Interface to global Context
+     * @return List of the OfflineGuideStorage for each cached Guide, least recently opened first
+     */
+    public static List<OfflineGuideStorage> getOfflineGuides(Context context) {
+
+        List<OfflineGuideStorage> guides = ContentProviderUtils.getOfflineGuides(context);
+
+        Set<String> trackedIds = new HashSet<>();
+
+        for (OfflineGuideStorage storage : guides) {
+            trackedIds.add(storage.guideId);
+        }
+
+        boolean recorded = false;
+
+        for (String guideId : ContentProviderUtils.getCachedGuideIds(context)) {
+
+            if (trackedIds.contains(guideId)) continue;
+
+            Guide guide = ContentProviderUtils.getGuideFromDatabase(context, guideId);
+            if (guide == null) continue;
+
+            ContentProviderUtils.insertOfflineGuide(
+                    context,
+                    guideId,
+                    measureFiles(context,
+                            guide,
+                            ContentProviderUtils.getSectionsFromDatabase(context, guideId),
+                            ContentProviderUtils.getAuthorFromDatabase(context, guide.authorId)),
+                    0,
+                    0);
+
+            // The size of the map is filled in when it has been measured
+            measureMapSize(context, guideId, new MapUtils.MapboxSizeCallback() {
+                @Override
+                public void onSizeReady(long bytes) {
+
+                }
+            });
+
+            recorded = true;
+        }
+
+        return recorded
+                ? ContentProviderUtils.getOfflineGuides(context)
+                : guides;
+    }
+
+    /**
+     * Deletes the least recently opened Guides that are not favorites until the storage used by
+     * the cached Guides fits within the budget
+     *
+     * @param context        Interface to global Context
+     * @param keepGuideId    FirebaseId of a Guide that should not be evicted, such as one that
+     *                       has just been saved
+     */
+    public static void evictIfNeeded(Context context, @Nullable String keepGuideId) {
+
+        long budget = getBudget(context);
+
+        if (budget == Long.MAX_VALUE) return;
+
+        List<OfflineGuideStorage> guides = getOfflineGuides(context);
+
+        long usage = 0;
+
+        for (OfflineGuideStorage storage : guides) {
+            usage += storage.getSize();
+        }
+
+        // The List is ordered with the least recently opened Guides first
+        for (OfflineGuideStorage storage : guides) {
+
+            if (usage <= budget) break;
+
+            if (storage.guideId.equals(keepGuideId)) continue;
+
+            Guide guide = ContentProviderUtils.getGuideFromDatabase(context, storage.guideId);
+
+            if (guide == null) {
+
+                // The Guide was removed without its record
+                ContentProviderUtils.deleteOfflineGuide(context, storage.guideId);
+                usage -= storage.getSize();
+                continue;
+            }
+
+            if (guide.isFavorite()) continue;
+
+            Author author = ContentProviderUtils.getAuthorFromDatabase(context, guide.authorId);
+
+            if (author == null) {
+                author = new Author();
+                author.firebaseId = guide.authorId;
+            }
+
+            Timber.d("Evicting " + guide.firebaseId + " to free " + storage.getSize() + " bytes");
+
+            new OfflineGuideManager(guide, ContentProviderUtils.getSectionsFromDatabase(context, guide.firebaseId), author)
+                    .deleteInBackground(context);
+
+            usage -= storage.getSize();
+        }
+    }
+
+    /**
+     * Sums the size of the database rows and files saved for a Guide
+     *
+     * @param context     Interface to global Context
+     * @param guide       Guide to measure
+     * @param sections    Sections of the Guide
+     * @param author      Author of the Guide or null if it isn't saved
+     * @return The number of bytes used
+     */
+    private static long measureFiles(Context context, Guide guide, Section[] sections,
+                                     @Nullable Author author) {
+
+        GpxFile gpxFile = GpxFile.getDestinationFile(context, guide.firebaseId);
+
+        long size = gpxFile.length()
+                + GpxBinaryUtils.getTrackFile(gpxFile).length()
+                + ImageFile.getDestinationFile(context, guide.firebaseId).length()
+                + DATABASE_ROW_BYTES * (sections.length + 2);
+
+        if (author != null) {
+            size += ImageFile.getDestinationFile(context, author.firebaseId).length();
+        }
+
+        for (Section section : sections) {
+            if (section.hasImage) {
+                size += ImageFile.getDestinationFile(context, section.firebaseId).length();
+            }
+        }
+
+        return size;
+    }
+}
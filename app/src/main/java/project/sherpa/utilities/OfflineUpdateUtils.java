@@ -0,0 +1,165 @@
+package project.sherpa.utilities;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import project.sherpa.models.datamodels.Author;
+import project.sherpa.models.datamodels.Guide;
+import project.sherpa.models.datamodels.Section;
+import project.sherpa.models.datamodels.abstractmodels.BaseModel;
+import project.sherpa.utilities.objects.OfflineGuideStorage;
+
+import static project.sherpa.utilities.FirebaseProviderUtils.FirebaseType.GUIDE;
+
+/**
+ * Utility class for keeping the Guides saved for offline use up to date.
+ *
+ * The time each Guide was last modified on Firebase is recorded as its version when it is saved.
+ * Checking for updates only downloads that timestamp for every cached Guide, and the Guides whose
+ * version has changed are then updated one at a time, downloading only the parts that changed.
+ */
+
+public class OfflineUpdateUtils {
+
+    /**
+     * Checks every cached Guide for updates and updates the ones that have changed
+     *
+     * @param context     Interface to global Context
+     * @param listener    Listener to notify once every Guide has been checked
+     */
+    public static void checkForUpdates(Context context, @NonNull UpdateListener listener) {
+        checkForUpdates(context, null, listener);
+    }
+
+    /**
+     * Checks cached Guides for updates and updates the ones that have changed
+     *
+     * @param context     Interface to global Context
+     * @param guideIds    FirebaseIds of the Guides to check or null to check every cached Guide
+     * @param listener    Listener to notify once every Guide has been checked
+     */
+    public static void checkForUpdates(final Context context,
+                                       @Nullable Collection<String> guideIds,
+                                       @NonNull final UpdateListener listener) {
+
+        // Retrieve the version each Guide was saved at
+        final Map<String, Long> cachedVersions = new HashMap<>();
+
+        for (OfflineGuideStorage storage : OfflineStorageUtils.getOfflineGuides(context)) {
+            if (guideIds == null || guideIds.contains(storage.guideId)) {
+                cachedVersions.put(storage.guideId, storage.version);
+            }
+        }
+
+        FirebaseProviderUtils.getGuideVersions(cachedVersions.keySet(), new FirebaseProviderUtils.FirebaseVersionsListener() {
+            @Override
+            public void onVersionsReady(final Map<String, Long> versions) {
+
+                final List<String> staleIds = new LinkedList<>();
+
+                for (String guideId : versions.keySet()) {
+                    if (versions.get(guideId) > cachedVersions.get(guideId)) {
+                        staleIds.add(guideId);
+                    }
+                }
+
+                if (staleIds.isEmpty()) {
+                    listener.onUpdatesComplete(0);
+                    return;
+                }
+
+                // Always download the latest Sections instead of using the DataCache
+                FirebaseProviderUtils.getSectionsForGuides(staleIds, false, new FirebaseProviderUtils.FirebaseSectionsListener() {
+                    @Override
+                    public void onSectionsReady(Map<String, Section[]> sections) {
+                        updateNextGuide(context, staleIds, versions, sections, 0, listener);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Updates the next Guide in the queue
+     *
+     * @param context         Interface to global Context
+     * @param queue           FirebaseIds of the Guides left to update
+     * @param versions        Time each Guide was last modified on Firebase
+     * @param sections        Latest Sections for each Guide
+     * @param updatedCount    Number of Guides that have been updated so far
+     * @param listener        Listener to notify once the queue is empty
+     */
+    private static void updateNextGuide(final Context context,
+                                        final List<String> queue,
+                                        final Map<String, Long> versions,
+                                        final Map<String, Section[]> sections,
+                                        final int updatedCount,
+                                        final UpdateListener listener) {
+
+        if (queue.isEmpty()) {
+            listener.onUpdatesComplete(updatedCount);
+            return;
+        }
+
+        final String guideId = queue.remove(0);
+
+        FirebaseProviderUtils.getModel(GUIDE, guideId, new FirebaseProviderUtils.FirebaseListener() {
+            @Override
+            public void onModelReady(BaseModel model) {
+
+                // Skip any Guide that couldn't be retrieved
+                if (model == null) {
+                    updateNextGuide(context, queue, versions, sections, updatedCount, listener);
+                    return;
+                }
+
+                Guide guide = (Guide) model;
+
+                Section[] guideSections = sections.get(guideId);
+
+                // The Sections could not be retrieved. Skip the Guide without recording the new
+                // version so the cached Sections are kept and it is checked again next time.
+                if (guideSections == null) {
+                    updateNextGuide(context, queue, versions, sections, updatedCount, listener);
+                    return;
+                }
+
+                // The Author isn't part of the Guide's version so the cached Author is kept
+                Author author = ContentProviderUtils.getAuthorFromDatabase(context, guide.authorId);
+
+                if (author == null) {
+                    author = new Author();
+                    author.firebaseId = guide.authorId;
+                }
+
+                new OfflineGuideManager(guide, guideSections, author).update(context, versions.get(guideId), new MapUtils.MapboxDownloadCallback() {
+                    @Override
+                    public void onDownloadComplete() {
+                        updateNextGuide(context, queue, versions, sections, updatedCount + 1, listener);
+                    }
+
+                    @Override
+                    public void onUpdateProgress(double progress) {
+
+                    }
+
+                    @Override
+                    public void onDownloadCancelled() {
+                        updateNextGuide(context, queue, versions, sections, updatedCount, listener);
+                    }
+                });
+            }
+        });
+    }
+
+    public interface UpdateListener {
+        void onUpdatesComplete(int updatedCount);
+    }
+}
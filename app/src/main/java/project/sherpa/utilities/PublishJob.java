@@ -0,0 +1,468 @@
+package project.sherpa.utilities;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.storage.OnProgressListener;
+import com.google.firebase.storage.UploadTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import project.sherpa.files.ImageFile;
+import project.sherpa.files.abstractfiles.BaseFile;
+import project.sherpa.firebasestorage.StorageProvider;
+import timber.log.Timber;
+
+/**
+ * Publishes a set of records to Firebase Database along with the files they reference on
+ * Firebase Storage as a single job.
+ *
+ * The files are uploaded a few at a time and the records are only written once every file has
+ * been uploaded, as one multi-path update so that either all of them are written or none are. If
+ * any upload or the update fails, the remaining uploads are cancelled and the files that were
+ * uploaded are deleted, leaving nothing behind. The progress of the uploads is weighted by the
+ * size of the files. All callbacks are delivered on the main thread.
+ *
+ * Images are stored under the hash of their contents, so an image that already exists on
+ * Firebase Storage is referenced instead of being uploaded again, and an image used more than
+ * once is only uploaded once. Images that already existed are never removed by a rollback.
+ *
+ * When the job is created with a Context, the sessions of the uploads are persisted so an upload
+ * that was interrupted is resumed from where it stopped the next time the same file is published.
+ * The uploads can also be paused and resumed while the network connection is unavailable. If
+ * the job fails, an upload that has started a session is paused rather than cancelled so the
+ * session stays valid, and the job then removes its listeners and drops the paused task. The task
+ * is never resumed, so the next attempt to publish the file is the only upload using the session.
+ */
+
+public class PublishJob {
+    // ** Constants ** //
+    private static final int MAX_PARALLEL_UPLOADS = 3;
+
+    // ** Member Variables ** //
+    private Context mContext;
+    private Map<String, Object> mChildUpdates;
+    private List<BaseFile> mFiles;
+    private ProgressListener mListener;
+    private Handler mHandler = new Handler(Looper.getMainLooper());
+    private TaskCompletionSource<Void> mCompletionSource = new TaskCompletionSource<>();
+
+    private Deque<BaseFile> mQueue = new ArrayDeque<>();
+    private List<UploadTask> mActiveTasks = new ArrayList<>();
+    private Map<UploadTask, UploadListener> mTaskListeners = new HashMap<>();
+    private List<BaseFile> mUploadedFiles = new ArrayList<>();
+    private int mCompletedFiles;
+    private Map<BaseFile, Long> mTransferredBytes = new HashMap<>();
+    private int mActiveChecks;
+    private long mTotalBytes;
+    private boolean mStarted;
+    private boolean mFinished;
+    private boolean mPaused;
+
+    /**
+     * Creates a job to upload files and then write the records that reference them
+     *
+     * @param childUpdates    Map of the paths in Firebase Database to the values to write to them
+     * @param files           Files to upload to Firebase Storage before the records are written
+     */
+    public PublishJob(@NonNull Map<String, Object> childUpdates, @NonNull List<BaseFile> files) {
+        this(null, childUpdates, files);
+    }
+
+    /**
+     * Creates a job to upload files and then write the records that reference them
+     *
+     * @param context         Interface to global Context used to persist the upload sessions so
+     *                        interrupted uploads can be resumed. Null to upload without them.
+     * @param childUpdates    Map of the paths in Firebase Database to the values to write to them
+     * @param files           Files to upload to Firebase Storage before the records are written
+     */
+    public PublishJob(@Nullable Context context, @NonNull Map<String, Object> childUpdates,
+                      @NonNull List<BaseFile> files) {
+
+        mContext = context != null ? context.getApplicationContext() : null;
+        mChildUpdates = childUpdates;
+        mFiles = new ArrayList<>();
+
+        Set<String> imageIds = new HashSet<>();
+
+        for (BaseFile file : files) {
+
+            // Skip images that are used more than once
+            if (file instanceof ImageFile && !imageIds.add(file.firebaseId)) continue;
+
+            mFiles.add(file);
+            mTotalBytes += file.length();
+        }
+    }
+
+    /**
+     * Returns the number of files the job uploads, not counting images used more than once
+     *
+     * @return The number of files to upload
+     */
+    public int getFileCount() {
+        return mFiles.size();
+    }
+
+    /**
+     * Returns the combined size of the files the job uploads
+     *
+     * @return The size of the files in bytes
+     */
+    public long getTotalBytes() {
+        return mTotalBytes;
+    }
+
+    /**
+     * Sets the listener to notify of the progress of the uploads
+     *
+     * @param listener    ProgressListener to notify
+     */
+    public void setProgressListener(@Nullable ProgressListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Starts uploading the files. Calling this again returns the Task for the job that has
+     * already started.
+     *
+     * @return Task that completes once the records have been written. It fails if the job fails
+     * or is cancelled, after any uploaded files have been deleted.
+     */
+    public Task<Void> start() {
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+
+                if (mStarted) return;
+                mStarted = true;
+
+                mQueue.addAll(mFiles);
+
+                // Fill the available upload slots
+                while (mActiveTasks.size() + mActiveChecks < MAX_PARALLEL_UPLOADS && !mQueue.isEmpty()) {
+                    processFile(mQueue.poll());
+                }
+
+                checkComplete();
+            }
+        });
+
+        return mCompletionSource.getTask();
+    }
+
+    /**
+     * Cancels the job. Nothing is written to Firebase Database and any files that were uploaded
+     * are deleted.
+     */
+    public void cancel() {
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                fail(new CancellationException("Publishing was cancelled"));
+            }
+        });
+    }
+
+    /**
+     * Pauses the uploads in progress, such as when the network connection has been lost
+     */
+    public void pause() {
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+
+                if (mFinished) return;
+                mPaused = true;
+
+                for (UploadTask task : mActiveTasks) {
+                    if (task.isInProgress()) task.pause();
+                }
+            }
+        });
+    }
+
+    /**
+     * Continues the uploads that were paused from where they stopped
+     */
+    public void resume() {
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+
+                if (mFinished) return;
+                mPaused = false;
+
+                for (UploadTask task : mActiveTasks) {
+                    if (task.isPaused()) task.resume();
+                }
+            }
+        });
+    }
+
+    /**
+     * Uploads a single file to Firebase Storage, first checking whether an image has already been
+     * uploaded
+     *
+     * @param file    File to upload
+     */
+    private void processFile(final BaseFile file) {
+
+        if (!(file instanceof ImageFile)) {
+            uploadFile(file);
+            return;
+        }
+
+        mActiveChecks++;
+
+        StorageProvider.getInstance().fileExistsAsync(file)
+                .addOnCompleteListener(new OnCompleteListener<Boolean>() {
+                    @Override
+                    public void onComplete(@NonNull Task<Boolean> task) {
+
+                        mActiveChecks--;
+
+                        if (mFinished) return;
+
+                        if (!task.isSuccessful() || !task.getResult()) {
+                            uploadFile(file);
+                            return;
+                        }
+
+                        // The same image has already been uploaded
+                        mCompletedFiles++;
+                        mTransferredBytes.put(file, file.length());
+                        updateProgress();
+
+                        if (!mQueue.isEmpty()) {
+                            processFile(mQueue.poll());
+                        }
+
+                        checkComplete();
+                    }
+                });
+    }
+
+    /**
+     * Uploads a single file to Firebase Storage
+     *
+     * @param file    File to upload
+     */
+    private void uploadFile(final BaseFile file) {
+
+        UploadTask task = mContext != null
+                ? StorageProvider.getInstance().uploadFileResumable(mContext, file)
+                : StorageProvider.getInstance().uploadFileAsync(file);
+
+        mActiveTasks.add(task);
+
+        // Files started while the job is paused wait to be resumed with the others
+        if (mPaused) task.pause();
+
+        UploadListener listener = new UploadListener(file, task);
+        mTaskListeners.put(task, listener);
+
+        task.addOnProgressListener(listener)
+                .addOnSuccessListener(listener)
+                .addOnFailureListener(listener);
+    }
+
+    /**
+     * Removes the job's listeners from an upload and stops tracking it
+     *
+     * @param task    UploadTask to release
+     */
+    private void releaseTask(UploadTask task) {
+
+        mActiveTasks.remove(task);
+
+        UploadListener listener = mTaskListeners.remove(task);
+
+        if (listener != null) {
+            task.removeOnProgressListener(listener);
+            task.removeOnSuccessListener(listener);
+            task.removeOnFailureListener(listener);
+        }
+    }
+
+    /**
+     * Writes the records once every file has been uploaded
+     */
+    private void checkComplete() {
+
+        if (mFinished || !mActiveTasks.isEmpty() || mActiveChecks > 0 || !mQueue.isEmpty()) return;
+
+        // Prevent the job from being cancelled while the records are written
+        mFinished = true;
+
+        FirebaseDatabase.getInstance().getReference()
+                .updateChildren(mChildUpdates)
+                .addOnSuccessListener(new OnSuccessListener<Void>() {
+                    @Override
+                    public void onSuccess(Void aVoid) {
+                        mCompletionSource.setResult(null);
+                    }
+                })
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Timber.e(e, e.getMessage());
+
+                        // Remove the files the records would have referenced
+                        deleteUploadedFiles();
+                        mCompletionSource.setException(e);
+                    }
+                });
+    }
+
+    /**
+     * Stops the job and rolls back the uploads
+     *
+     * @param e    Exception that caused the job to fail
+     */
+    private void fail(Exception e) {
+
+        if (mFinished) return;
+
+        mFinished = true;
+        mQueue.clear();
+
+        // The job no longer reports progress, so release the listener and whatever it references
+        mListener = null;
+
+        // Stop the uploads in progress. Any that complete anyway are deleted when they finish.
+        for (UploadTask task : new ArrayList<>(mActiveTasks)) {
+
+            if (mContext != null && task.getSnapshot().getUploadSessionUri() != null) {
+
+                // Cancelling an upload also ends its session on the server, so resumable uploads
+                // that have started a session are paused instead. The session is kept for the
+                // next attempt to publish the same file, and the paused task is dropped so it
+                // never runs alongside that attempt.
+                if (task.isInProgress()) task.pause();
+                releaseTask(task);
+            } else {
+                task.cancel();
+            }
+        }
+
+        deleteUploadedFiles();
+        mCompletionSource.setException(e);
+    }
+
+    /**
+     * Deletes the files that have been uploaded from Firebase Storage
+     */
+    private void deleteUploadedFiles() {
+
+        for (BaseFile file : mUploadedFiles) {
+            StorageProvider.getInstance().deleteFileAsync(file);
+        }
+
+        mUploadedFiles.clear();
+    }
+
+    /**
+     * Notifies the ProgressListener of the combined progress of the uploads
+     */
+    private void updateProgress() {
+
+        if (mFinished || mListener == null) return;
+
+        long transferredBytes = 0;
+
+        for (long bytes : mTransferredBytes.values()) {
+            transferredBytes += bytes;
+        }
+
+        mListener.onUpdateProgress(mCompletedFiles, transferredBytes);
+    }
+
+    /**
+     * Tracks the progress and result of the upload of a single file
+     */
+    private class UploadListener implements OnProgressListener<UploadTask.TaskSnapshot>,
+            OnSuccessListener<UploadTask.TaskSnapshot>, OnFailureListener {
+
+        // ** Member Variables ** //
+        private BaseFile mFile;
+        private UploadTask mTask;
+
+        UploadListener(BaseFile file, UploadTask task) {
+            mFile = file;
+            mTask = task;
+        }
+
+        @Override
+        public void onProgress(UploadTask.TaskSnapshot taskSnapshot) {
+            mTransferredBytes.put(mFile, taskSnapshot.getBytesTransferred());
+            updateProgress();
+        }
+
+        @Override
+        public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
+
+            releaseTask(mTask);
+            mUploadedFiles.add(mFile);
+
+            // The job failed while the file was uploading
+            if (mFinished) {
+                deleteUploadedFiles();
+                return;
+            }
+
+            mCompletedFiles++;
+            mTransferredBytes.put(mFile, mFile.length());
+            updateProgress();
+
+            // Start the next file in the queue
+            if (!mQueue.isEmpty()) {
+                processFile(mQueue.poll());
+            }
+
+            checkComplete();
+        }
+
+        @Override
+        public void onFailure(@NonNull Exception e) {
+
+            releaseTask(mTask);
+
+            Timber.e(e, "Failed to upload " + mFile.getName());
+            fail(e);
+        }
+    }
+
+    public interface ProgressListener {
+
+        /**
+         * Called as the files are uploaded
+         *
+         * @param completedFiles      Number of files that have finished uploading
+         * @param bytesTransferred    Combined number of bytes that have been uploaded
+         */
+        void onUpdateProgress(int completedFiles, long bytesTransferred);
+    }
+}
@@ -7,10 +7,18 @@ import android.graphics.Matrix;
 import android.media.ExifInterface;
 import android.net.Uri;
 
+import com.google.android.gms.tasks.Tasks;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
+import project.sherpa.files.abstractfiles.BaseFile;
 import project.sherpa.firebasedatabase.DatabaseProvider;
 import project.sherpa.firebasestorage.StorageProvider;
 import project.sherpa.models.datamodels.Area;
@@ -38,15 +46,43 @@ public class SaveUtils {
     private static final int QUALITY    = 30;
 
     /**
-     * Saves a completed guide to the Firebase Database
+     * Saves a completed guide to the Firebase Database and waits for it to be published
+     *
+     * Always call this method on a separate thread. The thread will be blocked until the guide
+     * has been published.
+     *
+     * @param area        Area corresponding to the trail detailed by the guide
+     * @param author      Author of the guide
+     * @param trail       Trail described by the guide
+     * @param guide       The Guide data model describing the details of the guide
+     * @param sections    An Array of Section data models detailing the trail taken by the guide
+     * @return True if the guide was published. False otherwise.
+     */
+    public static boolean saveGuide(Area area, Author author, Trail trail, Guide guide, Section... sections) {
+
+        try {
+            Tasks.await(createPublishJob(area, author, trail, guide, sections).start());
+            return true;
+        } catch (ExecutionException | InterruptedException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Creates a PublishJob that saves a completed guide to the Firebase Database. The records for
+     * the Area, Trail, Guide, and Sections are written in a single update once all of their files
+     * have been uploaded in parallel. The FirebaseIds of the models are set immediately.
      *
      * @param area        Area corresponding to the trail detailed by the guide
      * @param author      Author of the guide
      * @param trail       Trail described by the guide
      * @param guide       The Guide data model describing the details of the guide
      * @param sections    An Array of Section data models detailing the trail taken by the guide
+     * @return PublishJob to be started by the caller
      */
-    public static void saveGuide(Area area, Author author, Trail trail, Guide guide, Section... sections) {
+    public static PublishJob createPublishJob(Area area, Author author, Trail trail, Guide guide,
+                                              Section... sections) {
         // Check that the data models have all required info
         if (guide.getImageFile() == null) {
             throw new IllegalArgumentException("Guide does not have a hero image.");
@@ -62,49 +98,57 @@ public class SaveUtils {
             }
         }
 
+        // Store the images under the hash of their contents so they are only uploaded once
+        hashImageForModel(guide);
+
+        for (Section section : sections) {
+            hashImageForModel(section);
+        }
+
         // Get an instance of the DatabaseProvider
         DatabaseProvider database = DatabaseProvider.getInstance();
-        StorageProvider storage = StorageProvider.getInstance();
+
+        // The records are collected so they can be written together and the files are collected
+        // so they can be uploaded together
+        Map<String, Object> childUpdates = new HashMap<>();
+        List<BaseFile> files = new ArrayList<>();
 
         // Insert the Area into the Firebase Database if needed
         if (area.firebaseId == null || area.firebaseId.isEmpty()) {
-            database.insertRecord(area);
+            database.addRecord(childUpdates, area);
         }
 
         // Insert the Trail into the Firebase Database if needed
         if (trail.firebaseId == null || trail.firebaseId.isEmpty()) {
             trail.areaId = area.firebaseId;
-            database.insertRecord(trail);
+            database.addRecord(childUpdates, trail);
         }
 
         // Insert the Guide into the Firebase Database if needed
-        if (guide.firebaseId == null || trail.firebaseId.isEmpty()) {
+        if (guide.firebaseId == null || guide.firebaseId.isEmpty()) {
             guide.trailId = trail.firebaseId;
             guide.trailName = trail.name;
             guide.authorId = author.firebaseId;
             guide.authorName = author.name;
             guide.area = area.name;
-            database.insertRecord(guide);
+            database.addRecord(childUpdates, guide);
 
             // Upload the Image and Gpx File associated with the Guide
-            storage.uploadFile(guide.getImageFile());
-            storage.uploadFile(guide.getGpxFile());
+            files.add(guide.getImageFile());
+            files.add(guide.getGpxFile());
         }
 
-        // Set the guideId in each Section
+        // Set the guideId in each Section and insert them into the Firebase Database
         for (Section section: sections) {
             section.guideId = guide.firebaseId;
+            database.addRecord(childUpdates, section);
 
-        }
-
-        // Insert all Sections into the Firebase Database
-        database.insertRecord(sections);
-
-        for (Section section : sections) {
             if (section.hasImage) {
-                storage.uploadFile(section.getImageFile());
+                files.add(section.getImageFile());
             }
         }
+
+        return new PublishJob(childUpdates, files);
     }
 
     /**
@@ -179,6 +223,23 @@ public class SaveUtils {
         model.setImageUri(resizedImage);
     }
 
+    /**
+     * Sets the hash of a data model's image so that the image is stored on Firebase Storage under
+     * the hash of its contents. Identical images are then only uploaded and stored once.
+     *
+     * @param model    The BaseModel containing an ImageFile to be hashed
+     */
+    public static void hashImageForModel(BaseModelWithImage model) {
+
+        if (!model.hasImage || model.getImageUri() == null) {
+            // Model does not contain an associated ImageFile. Nothing to hash.
+            return;
+        }
+
+        // Fall back to storing the image under the model's FirebaseId if it can't be read
+        model.imageHash = HashUtils.hashFile(new File(model.getImageUri().getPath()));
+    }
+
     /**
      * Resize an image file and compresses it with JPEG compression to lower the file size when
      * stored on Firebase Storage.
@@ -0,0 +1,200 @@
+package project.sherpa.utilities;
+
+import java.util.Arrays;
+
+import project.sherpa.utilities.objects.GpxTrack;
+
+/**
+ * Simplifies a GpxTrack into a few levels of detail using the Douglas-Peucker algorithm so that
+ * Polylines drawn on a map only contain as many points as can be distinguished at the current
+ * zoom level.
+ *
+ * Douglas-Peucker is only run once per track. Each point is assigned the largest tolerance at
+ * which it would still be kept, so every level of detail can be generated by filtering the points
+ * without running the algorithm again.
+ */
+
+public class TrackSimplifier {
+    // ** Constants ** //
+    // Maximum distance in meters that a simplified Polyline may deviate from the track at each
+    // level of detail. Level 0 contains every point.
+    private static final double[] LEVEL_TOLERANCES  = {0, 4, 16, 64, 256};
+    public static final int FULL_DETAIL             = 0;
+    public static final int LEVEL_COUNT             = LEVEL_TOLERANCES.length;
+
+    // Meters per pixel at zoom level 0 at the equator for Mapbox's 512px tiles
+    private static final double METERS_PER_PIXEL    = 78271.517;
+
+    private static final double METERS_PER_DEGREE   = 111319.49;
+
+    /**
+     * Selects the level of detail whose tolerance is less than the size of a pixel at the zoom
+     * level of the map
+     *
+     * @param zoom        Zoom level of the map's camera
+     * @param latitude    Latitude of the map's camera
+     * @return The index of the coarsest level of detail that looks identical to the full track
+     */
+    public static int getLevelForZoom(double zoom, double latitude) {
+
+        // Calculate the size of a pixel at the zoom level
+        double metersPerPixel = METERS_PER_PIXEL * Math.cos(Math.toRadians(latitude)) / Math.pow(2, zoom);
+
+        // Find the coarsest level that deviates less than one pixel from the track
+        int level = FULL_DETAIL;
+
+        for (int i = 1; i < LEVEL_COUNT; i++) {
+            if (LEVEL_TOLERANCES[i] <= metersPerPixel) {
+                level = i;
+            }
+        }
+
+        return level;
+    }
+
+    /**
+     * Generates the indices of the points in a GpxTrack to be drawn for each level of detail
+     *
+     * @param track    GpxTrack to be simplified
+     * @return Array of the point indices for each level of detail. The array for FULL_DETAIL is
+     * null as it includes every point.
+     */
+    public static int[][] buildLevels(GpxTrack track) {
+
+        double[] tolerances = getPointTolerances(track);
+
+        int[][] levels = new int[LEVEL_COUNT][];
+
+        // Reusable buffer for the indices of each level
+        int[] buffer = new int[track.size()];
+
+        for (int level = FULL_DETAIL + 1; level < LEVEL_COUNT; level++) {
+            int count = 0;
+
+            // Keep every point whose tolerance is greater than the level's tolerance
+            for (int i = 0; i < track.size(); i++) {
+                if (tolerances[i] > LEVEL_TOLERANCES[level]) {
+                    buffer[count++] = i;
+                }
+            }
+
+            levels[level] = Arrays.copyOf(buffer, count);
+        }
+
+        return levels;
+    }
+
+    /**
+     * Runs the Douglas-Peucker algorithm on each segment of a GpxTrack, recording the largest
+     * tolerance at which each point would be kept
+     *
+     * @param track    GpxTrack to be simplified
+     * @return The tolerance for each point in the GpxTrack in meters
+     */
+    private static double[] getPointTolerances(GpxTrack track) {
+
+        int size = track.size();
+
+        // Project the coordinates to meters on a plane so distances can be compared
+        double[] x = new double[size];
+        double[] y = new double[size];
+
+        double longitudeScale = METERS_PER_DEGREE * Math.cos(Math.toRadians(track.getLatitude(0)));
+
+        for (int i = 0; i < size; i++) {
+            x[i] = track.getLongitude(i) * longitudeScale;
+            y[i] = track.getLatitude(i) * METERS_PER_DEGREE;
+        }
+
+        double[] tolerances = new double[size];
+
+        // Stack of intervals to be split: start, end, and the tolerance of the point that split
+        // the interval from its parent
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        double[] parentTolerances = new double[64];
+
+        for (int segment = 0; segment < track.getSegmentCount(); segment++) {
+            int first = track.getSegmentStart(segment);
+            int last = track.getSegmentEnd(segment) - 1;
+
+            // The end points of each segment are always kept
+            tolerances[first] = Double.POSITIVE_INFINITY;
+            tolerances[last] = Double.POSITIVE_INFINITY;
+
+            int stackSize = 0;
+            starts[stackSize] = first;
+            ends[stackSize] = last;
+            parentTolerances[stackSize] = Double.POSITIVE_INFINITY;
+            stackSize++;
+
+            while (stackSize > 0) {
+                stackSize--;
+                int start = starts[stackSize];
+                int end = ends[stackSize];
+                double parentTolerance = parentTolerances[stackSize];
+
+                if (end - start < 2) continue;
+
+                // Find the point furthest from the line between the start and end
+                int furthest = -1;
+                double maxDistance = -1;
+
+                for (int i = start + 1; i < end; i++) {
+                    double distance = distanceToSegment(x[i], y[i], x[start], y[start], x[end], y[end]);
+
+                    if (distance > maxDistance) {
+                        maxDistance = distance;
+                        furthest = i;
+                    }
+                }
+
+                // A point can only be kept if the point that created its interval is kept
+                double tolerance = Math.min(maxDistance, parentTolerance);
+                tolerances[furthest] = tolerance;
+
+                // Grow the stack if required
+                if (stackSize + 2 > starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                    ends = Arrays.copyOf(ends, ends.length * 2);
+                    parentTolerances = Arrays.copyOf(parentTolerances, parentTolerances.length * 2);
+                }
+
+                // Split the interval at the furthest point
+                starts[stackSize] = start;
+                ends[stackSize] = furthest;
+                parentTolerances[stackSize] = tolerance;
+                stackSize++;
+
+                starts[stackSize] = furthest;
+                ends[stackSize] = end;
+                parentTolerances[stackSize] = tolerance;
+                stackSize++;
+            }
+        }
+
+        return tolerances;
+    }
+
+    /**
+     * Calculates the distance from a point to a line segment
+     */
+    private static double distanceToSegment(double px, double py, double ax, double ay, double bx, double by) {
+
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+
+        // Find the closest position on the segment to the point
+        double t = lengthSq > 0
+                ? ((px - ax) * dx + (py - ay) * dy) / lengthSq
+                : 0;
+
+        t = Math.max(0, Math.min(1, t));
+
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+
+        return Math.sqrt(cx * cx + cy * cy);
+    }
+}
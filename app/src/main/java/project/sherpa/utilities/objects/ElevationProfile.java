@@ -0,0 +1,17 @@
+package project.sherpa.utilities.objects;
+
+import com.github.mikephil.charting.data.Entry;
+
+import java.util.List;
+
+/**
+ * Helper class for storing the downsampled elevation Entries of a Gpx along with the range of the
+ * full elevation data
+ */
+
+public class ElevationProfile {
+    public List<Entry> entries;
+    public double minElevation;
+    public double maxElevation;
+    public double totalDistance;
+}
@@ -7,6 +7,18 @@ package project.sherpa.utilities.objects;
 public class GpxStats {
     public double distance;
     public double elevation;
+
+    // Center of the track's bounds
     public double latitude;
     public double longitude;
+
+    // Point in the middle of the track
+    public double midLatitude;
+    public double midLongitude;
+
+    // Bounds of the track
+    public double north;
+    public double south;
+    public double east;
+    public double west;
 }
@@ -0,0 +1,139 @@
+package project.sherpa.utilities.objects;
+
+import java.io.File;
+
+/**
+ * Immutable representation of the coordinates contained in a GPX file. A GpxTrack is built once
+ * per file and shared by everything that needs to read the track so that the file does not need
+ * to be parsed again.
+ *
+ * The points of every track segment in the file are packed into the same arrays. Each segment is
+ * described by the index of its first point so that the segments can be traversed in order
+ * without copying any coordinates.
+ */
+
+public class GpxTrack {
+
+    // ** Member Variables ** //
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+    private final double[] mElevations;
+    private final int mSize;
+    private final int[] mSegmentStarts;
+
+    private final long mSourceLength;
+    private final long mSourceModified;
+
+    private volatile GpxStats mStats;
+    private volatile int[][] mDetailLevels;
+
+    /**
+     * Creates a GpxTrack from the coordinate arrays. The arrays are not copied, so the caller
+     * must not modify them after handing them to the GpxTrack.
+     *
+     * @param latitudes     Latitude of each point
+     * @param longitudes    Longitude of each point
+     * @param elevations    Elevation of each point
+     * @param size             Number of valid points in the arrays
+     * @param segmentStarts    Index of the first point of each segment in ascending order
+     * @param source           File the coordinates were read from
+     */
+    public GpxTrack(double[] latitudes, double[] longitudes, double[] elevations, int size,
+                    int[] segmentStarts, File source) {
+        mLatitudes = latitudes;
+        mLongitudes = longitudes;
+        mElevations = elevations;
+        mSize = size;
+        mSegmentStarts = segmentStarts;
+
+        mSourceLength = source.length();
+        mSourceModified = source.lastModified();
+    }
+
+    /**
+     * @return The number of points in the track
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The number of segments in the track
+     */
+    public int getSegmentCount() {
+        return mSegmentStarts.length;
+    }
+
+    /**
+     * @param segment    Index of the segment
+     * @return Index of the first point in the segment
+     */
+    public int getSegmentStart(int segment) {
+        return mSegmentStarts[segment];
+    }
+
+    /**
+     * @param segment    Index of the segment
+     * @return Index after the last point in the segment
+     */
+    public int getSegmentEnd(int segment) {
+        return segment + 1 < mSegmentStarts.length
+                ? mSegmentStarts[segment + 1]
+                : mSize;
+    }
+
+    public double getLatitude(int index) {
+        return mLatitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return mLongitudes[index];
+    }
+
+    public double getElevation(int index) {
+        return mElevations[index];
+    }
+
+    /**
+     * @return The GpxStats calculated for the track or null if they have not been calculated yet
+     */
+    public GpxStats getStats() {
+        return mStats;
+    }
+
+    /**
+     * Stores the GpxStats calculated for the track so they only need to be calculated once
+     *
+     * @param stats    GpxStats calculated for the track
+     */
+    public void setStats(GpxStats stats) {
+        mStats = stats;
+    }
+
+    /**
+     * @return The indices of the points to draw for each level of detail or null if they have not
+     * been generated yet
+     */
+    public int[][] getDetailLevels() {
+        return mDetailLevels;
+    }
+
+    /**
+     * Stores the simplified levels of detail for the track so they only need to be generated once
+     *
+     * @param detailLevels    Indices of the points to draw for each level of detail
+     */
+    public void setDetailLevels(int[][] detailLevels) {
+        mDetailLevels = detailLevels;
+    }
+
+    /**
+     * Checks whether the File the track was built from has changed since it was read
+     *
+     * @param source    File the GpxTrack was built from
+     * @return True if the File's length or modification time no longer match. False otherwise.
+     */
+    public boolean isStale(File source) {
+        return source.length() != mSourceLength || source.lastModified() != mSourceModified;
+    }
+}
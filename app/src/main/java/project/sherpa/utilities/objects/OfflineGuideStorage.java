@@ -0,0 +1,23 @@
+package project.sherpa.utilities.objects;
+
+/**
+ * Helper class for storing the storage used by a Guide that has been saved for offline use
+ */
+
+public class OfflineGuideStorage {
+    public String guideId;
+
+    // Time the Guide was last opened in milliseconds
+    public long lastAccessed;
+
+    // Bytes used by the Guide's database rows and files, and its share of the map tiles
+    public long fileSize;
+    public long mapSize;
+
+    // Time the Guide was last modified on Firebase when it was saved
+    public long version;
+
+    public long getSize() {
+        return fileSize + mapSize;
+    }
+}
@@ -0,0 +1,47 @@
+package project.sherpa.utilities.objects;
+
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helper class for storing the regions of Mapbox tiles to download for a track along with an
+ * estimate of the size of the download
+ */
+
+public class OfflineRegionPlan {
+    // Tiles of the coarse overview of the track or null if they are already saved offline
+    public int[] overviewRect;
+
+    // Tiles within the corridor along the track that are not already saved offline
+    public Set<Long> corridorTiles = new HashSet<>();
+
+    // Regions to be downloaded
+    public List<Region> regions = new ArrayList<>();
+
+    // Ids of the OfflineRegions already saved offline that cover part of the track
+    public List<Long> sharedRegionIds = new ArrayList<>();
+
+    // Estimated size of the download
+    public long tileCount;
+    public long estimatedBytes;
+
+    /**
+     * A rectangle of tiles to be downloaded as a single OfflineRegion
+     */
+    public static class Region {
+        // Id of the OfflineRegion once it has been created
+        public long regionId;
+
+        public LatLngBounds bounds;
+        public int minZoom;
+        public int maxZoom;
+
+        // Min x, min y, max x, and max y of the tiles covered by the region at rectZoom
+        public int[] rect;
+        public int rectZoom;
+    }
+}